@@ -0,0 +1,16 @@
+package com.shepherdmoney.interviewproject.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Non-blocking variant of the user and card APIs, on WebFlux and R2DBC. It serves the routes of UserController and
+ * CreditCardController of the main application with the same semantics, and streams the balance history with
+ * backpressure, so requests waiting for the database do not hold a thread.
+ */
+@SpringBootApplication
+public class ReactiveApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveApplication.class, args);
+    }
+}
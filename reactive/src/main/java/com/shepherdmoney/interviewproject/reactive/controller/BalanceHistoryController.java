@@ -0,0 +1,49 @@
+package com.shepherdmoney.interviewproject.reactive.controller;
+
+import com.shepherdmoney.interviewproject.reactive.service.BalanceHistoryService;
+import com.shepherdmoney.interviewproject.reactive.vo.response.BalanceHistoryView;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@RestController
+public class BalanceHistoryController {
+
+    private final BalanceHistoryService balanceHistoryService;
+
+    public BalanceHistoryController(BalanceHistoryService balanceHistoryService) {
+        this.balanceHistoryService = balanceHistoryService;
+    }
+
+    @GetMapping("/credit-card:balance-history-stream")
+    public Mono<ResponseEntity<Flux<BalanceHistoryView>>> streamBalanceHistory(
+            @RequestParam String creditCardNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        // Stream the card's whole history in [from, to] as newline delimited JSON, oldest first. Entries are written
+        // as the client reads them, with rows fetched from the database only as fast as they are written.
+        // Return 400 Bad Request if the card does not exist or the range is invalid.
+        LocalDate fromDate = from == null ? BalanceHistoryService.EARLIEST_DATE : from;
+        LocalDate toDate = to == null ? BalanceHistoryService.LATEST_DATE : to;
+        if (!isValidRange(fromDate, toDate)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return balanceHistoryService.findCardId(creditCardNumber)
+                .map(cardId -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(balanceHistoryService.streamHistory(cardId, fromDate, toDate)))
+                .defaultIfEmpty(ResponseEntity.badRequest().build());
+    }
+
+    private static boolean isValidRange(LocalDate from, LocalDate to) {
+        return !from.isBefore(BalanceHistoryService.EARLIEST_DATE) && !to.isAfter(BalanceHistoryService.LATEST_DATE)
+                && !from.isAfter(to);
+    }
+}
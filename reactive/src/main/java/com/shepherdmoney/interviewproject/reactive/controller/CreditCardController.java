@@ -0,0 +1,113 @@
+package com.shepherdmoney.interviewproject.reactive.controller;
+
+import com.shepherdmoney.interviewproject.reactive.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.reactive.repository.UserRepository;
+import com.shepherdmoney.interviewproject.reactive.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.reactive.vo.request.AddCreditCardToUserPayload;
+import com.shepherdmoney.interviewproject.reactive.vo.request.UpdateBalancePayload;
+import com.shepherdmoney.interviewproject.reactive.vo.response.CreditCardView;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RestController
+public class CreditCardController {
+    private static final int MAX_PAGE_SIZE = 1000;
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final UserRepository userRepository;
+    private final CreditCardRepository creditCardRepository;
+    private final BalanceUpdateService balanceUpdateService;
+
+    public CreditCardController(UserRepository userRepository, CreditCardRepository creditCardRepository,
+                                BalanceUpdateService balanceUpdateService) {
+        this.userRepository = userRepository;
+        this.creditCardRepository = creditCardRepository;
+        this.balanceUpdateService = balanceUpdateService;
+    }
+
+    @PostMapping("/credit-card")
+    public Mono<ResponseEntity<Integer>> addCreditCardToUser(@RequestBody AddCreditCardToUserPayload payload) {
+        // Return 200 OK with the credit card id, 400 Bad Request if the number or bank is missing, 404 Not Found if
+        // there is no such user and 409 Conflict if the number belongs to another card
+        String cardNumber = payload.getCardNumber();
+        String cardIssuanceBank = payload.getCardIssuanceBank();
+        int userId = payload.getUserId();
+        if (cardNumber == null || cardIssuanceBank == null || cardNumber.isEmpty() || cardIssuanceBank.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return userRepository.existsByIdAndDeletedFalse(userId).flatMap(exists -> {
+            if (!exists) {
+                return Mono.just(ResponseEntity.notFound().<Integer>build());
+            }
+            // Card numbers are unique, the unique index rejects a taken one
+            return creditCardRepository.insert(userId, cardIssuanceBank, cardNumber)
+                    .map(ResponseEntity::ok)
+                    .onErrorResume(DataIntegrityViolationException.class,
+                            e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()));
+        });
+    }
+
+    @GetMapping("/credit-card:all")
+    public Mono<ResponseEntity<List<CreditCardView>>> getAllCardOfUser(@RequestParam int userId,
+                                                                       @RequestParam(required = false) Integer page,
+                                                                       @RequestParam(required = false) Integer size) {
+        // Return the cards of the user, an empty list if it has none
+        // Pagination is optional, when page or size is given the other one defaults to 0 and MAX_PAGE_SIZE
+        Flux<CreditCardView> views = creditCardRepository.findViewsByUserId(userId);
+        if (page != null || size != null) {
+            int pageNumber = page == null ? 0 : page;
+            int pageSize = size == null ? MAX_PAGE_SIZE : size;
+            if (pageNumber < 0 || pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+                return Mono.just(ResponseEntity.badRequest().build());
+            }
+            views = creditCardRepository.findViewsByUserId(userId, pageNumber, pageSize);
+        }
+        return views.collectList().map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/credit-card:user-id")
+    public Mono<ResponseEntity<Integer>> getUserIdForCreditCard(@RequestParam String creditCardNumber) {
+        // Return the id of the user owning the card in a 200 OK response, 400 Bad Request if there is none
+        if (creditCardNumber == null || creditCardNumber.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return creditCardRepository.findUserIdByNumber(creditCardNumber)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.badRequest().build());
+    }
+
+    @PostMapping("/credit-card:update-balance")
+    public Mono<ResponseEntity<Integer>> postCreditCardTransaction(@RequestBody UpdateBalancePayload[] payload,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        // Apply the transactions to the cards' balance history. Return 200 OK if they are applied, 400 Bad Request if
+        // a card does not exist, in which case none of them is.
+
+        // There is no journal here to apply a keyed batch exactly once, so a keyed batch is refused rather than
+        // applied again on a retry. The journaled and binary variants are served by the main application.
+        if (idempotencyKey != null || !isValidBatch(payload)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return balanceUpdateService.applyBatch(Arrays.asList(payload))
+                .map(applied -> applied ? ResponseEntity.ok().<Integer>build() : ResponseEntity.badRequest().build());
+    }
+
+    static boolean isValidBatch(UpdateBalancePayload[] payload) {
+        // If empty or null payload
+        if (payload == null || payload.length == 0) {
+            return false;
+        }
+        for (UpdateBalancePayload trans : payload) {
+            if (trans == null || trans.getCreditCardNumber() == null || trans.getTransactionTime() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+package com.shepherdmoney.interviewproject.reactive.controller;
+
+import com.shepherdmoney.interviewproject.reactive.repository.UserRepository;
+import com.shepherdmoney.interviewproject.reactive.service.UserDeletionService;
+import com.shepherdmoney.interviewproject.reactive.vo.request.CreateUserPayload;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+public class UserController {
+
+    private final UserRepository userRepository;
+    private final UserDeletionService userDeletionService;
+
+    public UserController(UserRepository userRepository, UserDeletionService userDeletionService) {
+        this.userRepository = userRepository;
+        this.userDeletionService = userDeletionService;
+    }
+
+    @PutMapping("/user")
+    public Mono<ResponseEntity<Integer>> createUser(@RequestBody CreateUserPayload payload) {
+        // Store the user and return its id in a 200 OK response, a missing body is answered with 400 Bad Request
+        return userRepository.insert(payload.getName(), payload.getEmail()).map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/user")
+    public Mono<ResponseEntity<String>> deleteUser(@RequestParam int userId) {
+        // Return 200 OK if the user existed and is deleted with its cards and their history,
+        // 400 Bad Request if there is no such user
+        return userDeletionService.deleteUser(userId)
+                .map(deleted -> deleted ? ResponseEntity.ok().<String>build() : ResponseEntity.badRequest().build());
+    }
+}
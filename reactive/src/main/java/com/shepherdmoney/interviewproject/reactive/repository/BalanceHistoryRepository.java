@@ -0,0 +1,75 @@
+package com.shepherdmoney.interviewproject.reactive.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Balance history entries, one per card and day with transactions, holding the net amount of that day. The balance on
+ * a day is the sum of the amounts of all earlier days.
+ */
+@Repository("BalanceHistoryRepo")
+public class BalanceHistoryRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public BalanceHistoryRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Add an amount to the entry of a card and day, creating the entry if there is none, in one statement
+     */
+    public Mono<Long> addAmount(int cardId, LocalDate date, double amount) {
+        return databaseClient.sql("merge into balance_history h using (select cast(:cardId as integer) as card_id, "
+                        + "cast(:date as date) as entry_date, cast(:amount as double precision) as amount) s "
+                        + "on h.card_id = s.card_id and h.entry_date = s.entry_date "
+                        + "when matched then update set h.amount = h.amount + s.amount "
+                        + "when not matched then insert (card_id, entry_date, amount) "
+                        + "values (s.card_id, s.entry_date, s.amount)")
+                .bind("cardId", cardId)
+                .bind("date", date)
+                .bind("amount", amount)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Sum of the amounts of a card before the given date, that is its balance on that date
+     */
+    public Mono<Double> sumAmountsBefore(int cardId, LocalDate date) {
+        return databaseClient.sql("select coalesce(sum(amount), 0) from balance_history "
+                        + "where card_id = :cardId and entry_date < :date")
+                .bind("cardId", cardId)
+                .bind("date", date)
+                .map(row -> row.get(0, Double.class))
+                .one();
+    }
+
+    /**
+     * Entries of a card in [from, to], oldest first, emitted as they are requested
+     */
+    public Flux<DailyAmount> findDailyAmounts(int cardId, LocalDate from, LocalDate to) {
+        return databaseClient.sql("select entry_date, amount from balance_history "
+                        + "where card_id = :cardId and entry_date >= :from and entry_date <= :to order by entry_date")
+                .bind("cardId", cardId)
+                .bind("from", from)
+                .bind("to", to)
+                .map(row -> new DailyAmount(row.get(0, LocalDate.class), row.get(1, Double.class)))
+                .all();
+    }
+
+    /**
+     * Delete the history of every card of a user in one statement
+     */
+    public Mono<Long> deleteByUserId(int userId) {
+        return databaseClient.sql("delete from balance_history "
+                        + "where card_id in (select id from credit_card where user_id = :userId)")
+                .bind("userId", userId)
+                .fetch()
+                .rowsUpdated();
+    }
+}
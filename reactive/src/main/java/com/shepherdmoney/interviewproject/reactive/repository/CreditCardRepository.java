@@ -0,0 +1,104 @@
+package com.shepherdmoney.interviewproject.reactive.repository;
+
+import com.shepherdmoney.interviewproject.reactive.vo.response.CreditCardView;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Credit cards, read and written with single statements on the non-blocking driver. Card numbers are unique, an
+ * insert of a taken number fails with a DataIntegrityViolationException.
+ */
+@Repository("CreditCardRepo")
+public class CreditCardRepository {
+
+    private static final String VIEWS_BY_USER_ID = "select c.issuance_bank, c.number from credit_card c "
+            + "join my_user u on u.id = c.user_id where c.user_id = :userId and u.deleted = false order by c.id";
+
+    private final DatabaseClient databaseClient;
+
+    public CreditCardRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Insert a card of a user
+     *
+     * @return the id given to it
+     */
+    public Mono<Integer> insert(int userId, String issuanceBank, String number) {
+        return databaseClient.sql("insert into credit_card (issuance_bank, number, user_id) "
+                        + "values (:issuanceBank, :number, :userId)")
+                .bind("issuanceBank", issuanceBank)
+                .bind("number", number)
+                .bind("userId", userId)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get(0, Integer.class))
+                .one();
+    }
+
+    public Mono<Integer> findIdByNumber(String number) {
+        return databaseClient.sql("select id from credit_card where number = :number")
+                .bind("number", number)
+                .map(row -> row.get(0, Integer.class))
+                .one();
+    }
+
+    /**
+     * Id of the user owning the card with the given number, empty if there is none or it is deleted
+     */
+    public Mono<Integer> findUserIdByNumber(String number) {
+        return databaseClient.sql("select c.user_id from credit_card c join my_user u on u.id = c.user_id "
+                        + "where c.number = :number and u.deleted = false")
+                .bind("number", number)
+                .map(row -> row.get(0, Integer.class))
+                .one();
+    }
+
+    /**
+     * Views of the cards of a user, in the order they were added
+     */
+    public Flux<CreditCardView> findViewsByUserId(int userId) {
+        return databaseClient.sql(VIEWS_BY_USER_ID)
+                .bind("userId", userId)
+                .map(row -> new CreditCardView(row.get(0, String.class), row.get(1, String.class)))
+                .all();
+    }
+
+    /**
+     * One page of the views of the cards of a user, in the order they were added
+     */
+    public Flux<CreditCardView> findViewsByUserId(int userId, int page, int size) {
+        return databaseClient.sql(VIEWS_BY_USER_ID + " limit :size offset :offset")
+                .bind("userId", userId)
+                .bind("size", size)
+                .bind("offset", (long) page * size)
+                .map(row -> new CreditCardView(row.get(0, String.class), row.get(1, String.class)))
+                .all();
+    }
+
+    /**
+     * Id of every card with one of the given numbers, by number, in a single query
+     */
+    public Mono<Map<String, Integer>> findIdsByNumberIn(Collection<String> numbers) {
+        return databaseClient.sql("select number, id from credit_card where number in (:numbers)")
+                .bind("numbers", numbers)
+                .map(row -> Map.entry(row.get(0, String.class), row.get(1, Integer.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * Delete the cards of a user in one statement. Their history must be deleted first.
+     */
+    public Mono<Long> deleteByUserId(int userId) {
+        return databaseClient.sql("delete from credit_card where user_id = :userId")
+                .bind("userId", userId)
+                .fetch()
+                .rowsUpdated();
+    }
+}
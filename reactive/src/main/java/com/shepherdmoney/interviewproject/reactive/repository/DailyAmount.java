@@ -0,0 +1,9 @@
+package com.shepherdmoney.interviewproject.reactive.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Net amount of the transactions of a day
+ */
+public record DailyAmount(LocalDate date, double amount) {
+}
@@ -0,0 +1,53 @@
+package com.shepherdmoney.interviewproject.reactive.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Users, read and written with single statements on the non-blocking driver
+ */
+@Repository("UserRepo")
+public class UserRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public UserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Insert a user
+     *
+     * @return the id given to it
+     */
+    public Mono<Integer> insert(String name, String email) {
+        DatabaseClient.GenericExecuteSpec insert = databaseClient.sql(
+                "insert into my_user (name, email, deleted) values (:name, :email, false)");
+        insert = name == null ? insert.bindNull("name", String.class) : insert.bind("name", name);
+        insert = email == null ? insert.bindNull("email", String.class) : insert.bind("email", email);
+        return insert.filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get(0, Integer.class))
+                .one();
+    }
+
+    public Mono<Boolean> existsByIdAndDeletedFalse(int userId) {
+        return databaseClient.sql("select id from my_user where id = :userId and deleted = false")
+                .bind("userId", userId)
+                .fetch()
+                .first()
+                .hasElement();
+    }
+
+    /**
+     * Delete a user in one statement. Its cards and their history must be deleted first.
+     *
+     * @return the number of users deleted, 0 or 1
+     */
+    public Mono<Long> deleteById(int userId) {
+        return databaseClient.sql("delete from my_user where id = :userId")
+                .bind("userId", userId)
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,71 @@
+package com.shepherdmoney.interviewproject.reactive.service;
+
+import com.shepherdmoney.interviewproject.reactive.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.reactive.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.reactive.vo.response.BalanceHistoryView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Reads the balance history of cards as a stream. Rows are requested from the database as the client consumes them,
+ * a slow client slows down the reading instead of having the history buffered for it.
+ */
+@Service
+public class BalanceHistoryService {
+    public static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1);
+    public static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 30);
+
+    private final CreditCardRepository creditCardRepository;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final TransactionalOperator readOnlyOperator;
+    private final int batchSize;
+
+    public BalanceHistoryService(CreditCardRepository creditCardRepository,
+                                 BalanceHistoryRepository balanceHistoryRepository,
+                                 ReactiveTransactionManager transactionManager,
+                                 @Value("${balance-history.stream.batch-size:256}") int batchSize) {
+        this.creditCardRepository = creditCardRepository;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        DefaultTransactionDefinition readOnly = new DefaultTransactionDefinition(
+                TransactionDefinition.PROPAGATION_REQUIRED);
+        readOnly.setReadOnly(true);
+        this.readOnlyOperator = TransactionalOperator.create(transactionManager, readOnly);
+        this.batchSize = batchSize;
+    }
+
+    public Mono<Integer> findCardId(String cardNumber) {
+        return creditCardRepository.findIdByNumber(cardNumber);
+    }
+
+    /**
+     * Entries of a card in [from, to], oldest first, with the balance before each entry. The opening balance and the
+     * entries are read in one transaction.
+     */
+    public Flux<BalanceHistoryView> streamHistory(int cardId, LocalDate from, LocalDate to) {
+        return balanceHistoryRepository.sumAmountsBefore(cardId, from)
+                .flatMapMany(opening -> {
+                    // running balance of this subscription
+                    double[] balance = {opening};
+                    return balanceHistoryRepository.findDailyAmounts(cardId, from, to)
+                            .limitRate(batchSize)
+                            .map(row -> {
+                                BalanceHistoryView view = BalanceHistoryView.builder()
+                                        .date(row.date())
+                                        .amount(row.amount())
+                                        .balance(balance[0])
+                                        .build();
+                                balance[0] += row.amount();
+                                return view;
+                            });
+                })
+                .as(readOnlyOperator::transactional);
+    }
+}
@@ -0,0 +1,69 @@
+package com.shepherdmoney.interviewproject.reactive.service;
+
+import com.shepherdmoney.interviewproject.reactive.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.reactive.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.reactive.vo.request.UpdateBalancePayload;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies transaction batches to the balance history.
+ * <p>
+ * A batch is summed per card and day first, and each sum is merged into the day's entry with a single statement, all
+ * in one transaction. The entries are merged in card id and date order, so concurrent batches touching the same cards
+ * lock their rows in the same order.
+ */
+@Service
+public class BalanceUpdateService {
+
+    private final CreditCardRepository creditCardRepository;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final TransactionalOperator transactionalOperator;
+
+    public BalanceUpdateService(CreditCardRepository creditCardRepository,
+                                BalanceHistoryRepository balanceHistoryRepository,
+                                ReactiveTransactionManager transactionManager) {
+        this.creditCardRepository = creditCardRepository;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    /**
+     * Apply a batch of transactions, or none of them if a card of the batch does not exist
+     *
+     * @return false if a card does not exist
+     */
+    public Mono<Boolean> applyBatch(List<UpdateBalancePayload> transactions) {
+        // net amount of each card number and day, in cents so the sums are exact
+        Map<String, Map<LocalDate, Long>> centsByNumber = new HashMap<>();
+        for (UpdateBalancePayload trans : transactions) {
+            centsByNumber.computeIfAbsent(trans.getCreditCardNumber(), number -> new TreeMap<>())
+                    .merge(LocalDate.ofInstant(trans.getTransactionTime(), ZoneOffset.UTC),
+                            Math.round(trans.getTransactionAmount() * 100), Long::sum);
+        }
+        return creditCardRepository.findIdsByNumberIn(centsByNumber.keySet())
+                .flatMap(idsByNumber -> {
+                    if (idsByNumber.size() < centsByNumber.size()) {
+                        return Mono.just(false);
+                    }
+                    Map<Integer, Map<LocalDate, Long>> centsByCardId = new TreeMap<>();
+                    centsByNumber.forEach((number, cents) -> centsByCardId.put(idsByNumber.get(number), cents));
+                    return Flux.fromIterable(centsByCardId.entrySet())
+                            .concatMap(card -> Flux.fromIterable(card.getValue().entrySet())
+                                    .concatMap(day -> balanceHistoryRepository.addAmount(card.getKey(), day.getKey(),
+                                            day.getValue() / 100.0)))
+                            .then(Mono.just(true));
+                })
+                .as(transactionalOperator::transactional);
+    }
+}
@@ -0,0 +1,46 @@
+package com.shepherdmoney.interviewproject.reactive.service;
+
+import com.shepherdmoney.interviewproject.reactive.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.reactive.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.reactive.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * Deletes users together with their cards and the cards' balance history, with three bulk statements in one
+ * transaction. Users are always deleted right away, the soft mode of the main application is not offered here.
+ */
+@Service
+public class UserDeletionService {
+
+    private final UserRepository userRepository;
+    private final CreditCardRepository creditCardRepository;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final TransactionalOperator transactionalOperator;
+
+    public UserDeletionService(UserRepository userRepository, CreditCardRepository creditCardRepository,
+                               BalanceHistoryRepository balanceHistoryRepository,
+                               ReactiveTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.creditCardRepository = creditCardRepository;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    /**
+     * Delete a user and everything it owns
+     *
+     * @return false if there is no such user
+     */
+    public Mono<Boolean> deleteUser(int userId) {
+        return userRepository.existsByIdAndDeletedFalse(userId)
+                .flatMap(exists -> !exists ? Mono.just(false) : balanceHistoryRepository.deleteByUserId(userId)
+                        .then(creditCardRepository.deleteByUserId(userId))
+                        .then(userRepository.deleteById(userId))
+                        // a concurrent deletion of the same user got there first
+                        .map(deleted -> deleted > 0))
+                .as(transactionalOperator::transactional);
+    }
+}
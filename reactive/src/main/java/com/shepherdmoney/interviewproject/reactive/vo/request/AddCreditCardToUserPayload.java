@@ -0,0 +1,13 @@
+package com.shepherdmoney.interviewproject.reactive.vo.request;
+
+import lombok.Data;
+
+@Data
+public class AddCreditCardToUserPayload {
+
+    private int userId;
+
+    private String cardIssuanceBank;
+
+    private String cardNumber;
+}
@@ -0,0 +1,11 @@
+package com.shepherdmoney.interviewproject.reactive.vo.request;
+
+import lombok.Data;
+
+@Data
+public class CreateUserPayload {
+
+    private String name;
+
+    private String email;
+}
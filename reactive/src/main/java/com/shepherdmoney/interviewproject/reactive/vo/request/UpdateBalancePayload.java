@@ -0,0 +1,15 @@
+package com.shepherdmoney.interviewproject.reactive.vo.request;
+
+import java.time.Instant;
+
+import lombok.Data;
+
+@Data
+public class UpdateBalancePayload {
+
+    private String creditCardNumber;
+
+    private Instant transactionTime;
+
+    private double transactionAmount;
+}
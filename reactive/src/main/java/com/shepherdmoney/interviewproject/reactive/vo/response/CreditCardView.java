@@ -0,0 +1,15 @@
+package com.shepherdmoney.interviewproject.reactive.vo.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class CreditCardView {
+
+    private String issuanceBank;
+
+    private String number;
+}
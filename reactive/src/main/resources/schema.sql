@@ -0,0 +1,26 @@
+create table if not exists my_user (
+    id integer generated by default as identity primary key,
+    name varchar(255),
+    email varchar(255),
+    deleted boolean default false not null
+);
+
+create table if not exists credit_card (
+    id integer generated by default as identity primary key,
+    issuance_bank varchar(255),
+    number varchar(255),
+    user_id integer not null references my_user (id)
+);
+
+create unique index if not exists ux_credit_card_number on credit_card (number);
+create index if not exists ix_credit_card_user on credit_card (user_id);
+
+-- one entry per card and day with transactions, holding their net amount (see BalanceLedger of the main application)
+create table if not exists balance_history (
+    id integer generated by default as identity primary key,
+    card_id integer not null references credit_card (id),
+    entry_date date not null,
+    amount double precision not null
+);
+
+create unique index if not exists ux_balance_history_card_date on balance_history (card_id, entry_date);
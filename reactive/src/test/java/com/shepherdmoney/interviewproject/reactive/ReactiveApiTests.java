@@ -0,0 +1,205 @@
+package com.shepherdmoney.interviewproject.reactive;
+
+import com.shepherdmoney.interviewproject.reactive.vo.request.AddCreditCardToUserPayload;
+import com.shepherdmoney.interviewproject.reactive.vo.request.CreateUserPayload;
+import com.shepherdmoney.interviewproject.reactive.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+@SpringBootTest(properties = "spring.r2dbc.url=r2dbc:h2:mem:///reactive-api-tests?options=DB_CLOSE_DELAY=-1")
+@AutoConfigureWebTestClient
+public class ReactiveApiTests {
+    private static final LocalDate DAY = LocalDate.parse("2023-04-10");
+
+    private static final ParameterizedTypeReference<Map<String, Object>> ENTRY =
+            new ParameterizedTypeReference<>() {
+            };
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void shouldAddAndLookUpCards() {
+        int userId = createUser("reactive-user");
+
+        webTestClient.post().uri("/credit-card").bodyValue(card(userId, "reactive-111"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$").isNumber();
+        webTestClient.post().uri("/credit-card").bodyValue(card(userId, "reactive-222"))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/credit-card").bodyValue(card(userId, "reactive-111"))
+                .exchange()
+                .expectStatus().isEqualTo(409);
+        webTestClient.post().uri("/credit-card").bodyValue(card(-1, "reactive-333"))
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.post().uri("/credit-card").bodyValue(card(userId, ""))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get().uri("/credit-card:all?userId={userId}", userId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].number").isEqualTo("reactive-111")
+                .jsonPath("$[1].number").isEqualTo("reactive-222");
+        webTestClient.get().uri("/credit-card:all?userId={userId}&page=1&size=1", userId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].number").isEqualTo("reactive-222");
+        webTestClient.get().uri("/credit-card:all?userId={userId}&size=0", userId)
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/credit-card:all?userId=-1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[]");
+
+        webTestClient.get().uri("/credit-card:user-id?creditCardNumber=reactive-222")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Integer.class).isEqualTo(userId);
+        webTestClient.get().uri("/credit-card:user-id?creditCardNumber=reactive-unknown")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldStreamHistoryOfAppliedTransactions() {
+        int userId = createUser("reactive-history-user");
+        webTestClient.post().uri("/credit-card").bodyValue(card(userId, "reactive-history-111"))
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.post().uri("/credit-card:update-balance")
+                .bodyValue(new UpdateBalancePayload[]{
+                        transaction("reactive-history-111", DAY, 10.0),
+                        transaction("reactive-history-111", DAY, 2.5),
+                        transaction("reactive-history-111", DAY.plusDays(2), 20.0)})
+                .exchange()
+                .expectStatus().isOk();
+        // a back-dated transaction is added to the existing entry
+        webTestClient.post().uri("/credit-card:update-balance")
+                .bodyValue(new UpdateBalancePayload[]{transaction("reactive-history-111", DAY, 0.5)})
+                .exchange()
+                .expectStatus().isOk();
+        // the whole batch is rejected when one of its cards does not exist
+        webTestClient.post().uri("/credit-card:update-balance")
+                .bodyValue(new UpdateBalancePayload[]{
+                        transaction("reactive-history-111", DAY, 100.0),
+                        transaction("reactive-history-999", DAY, 100.0)})
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        Flux<Map<String, Object>> history = webTestClient.get()
+                .uri("/credit-card:balance-history-stream?creditCardNumber=reactive-history-111")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(ENTRY)
+                .getResponseBody();
+        StepVerifier.create(history, 1)
+                .expectNext(entry(DAY, 13.0, 0.0))
+                .thenRequest(1)
+                .expectNext(entry(DAY.plusDays(2), 20.0, 13.0))
+                .thenRequest(1)
+                .verifyComplete();
+
+        webTestClient.get().uri("/credit-card:balance-history-stream?creditCardNumber=reactive-history-111"
+                        + "&from={from}", DAY.plusDays(1))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ENTRY)
+                .containsExactly(entry(DAY.plusDays(2), 20.0, 13.0));
+        webTestClient.get().uri("/credit-card:balance-history-stream?creditCardNumber=reactive-history-999")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/credit-card:balance-history-stream?creditCardNumber=reactive-history-111"
+                        + "&from={from}&to={to}", DAY.plusDays(1), DAY)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldDeleteUserWithItsCards() {
+        int userId = createUser("reactive-delete-user");
+        webTestClient.post().uri("/credit-card").bodyValue(card(userId, "reactive-delete-111"))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/credit-card:update-balance")
+                .bodyValue(new UpdateBalancePayload[]{transaction("reactive-delete-111", DAY, 10.0)})
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.delete().uri("/user?userId={userId}", userId)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri("/user?userId={userId}", userId)
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/credit-card:user-id?creditCardNumber=reactive-delete-111")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.get().uri("/credit-card:all?userId={userId}", userId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("[]");
+    }
+
+    @Test
+    void shouldRefuseKeyedBatches() {
+        webTestClient.post().uri("/credit-card:update-balance")
+                .header("Idempotency-Key", "reactive-batch-1")
+                .bodyValue(new UpdateBalancePayload[]{transaction("reactive-111", DAY, 10.0)})
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private int createUser(String name) {
+        CreateUserPayload payload = new CreateUserPayload();
+        payload.setName(name);
+        payload.setEmail(name + "@example.com");
+        return webTestClient.put().uri("/user").bodyValue(payload)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Integer.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private static AddCreditCardToUserPayload card(int userId, String number) {
+        AddCreditCardToUserPayload payload = new AddCreditCardToUserPayload();
+        payload.setUserId(userId);
+        payload.setCardIssuanceBank("BoK");
+        payload.setCardNumber(number);
+        return payload;
+    }
+
+    private static Map<String, Object> entry(LocalDate day, double amount, double balance) {
+        return Map.of("date", day.toString(), "amount", amount, "balance", balance);
+    }
+
+    private static UpdateBalancePayload transaction(String number, LocalDate day, double amount) {
+        UpdateBalancePayload payload = new UpdateBalancePayload();
+        payload.setCreditCardNumber(number);
+        payload.setTransactionTime(day.atTime(12, 0).toInstant(ZoneOffset.UTC));
+        payload.setTransactionAmount(amount);
+        return payload;
+    }
+}
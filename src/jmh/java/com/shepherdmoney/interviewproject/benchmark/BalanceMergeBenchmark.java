@@ -0,0 +1,76 @@
+package com.shepherdmoney.interviewproject.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of applying one transaction to a card's history, for synthetic histories of one entry per day.
+ * <p>
+ * {@code dayAmount} adds the transaction to the net amount of its own day, as the update path does. {@code rewrite} is
+ * the previous approach of adding the amount to the balance of every newer day, kept as a baseline. In-order
+ * transactions land on the newest day of the history, back-dated ones on a random day. Run with the gc profiler
+ * (configured in build.gradle) to check that neither allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BalanceMergeBenchmark {
+    private static final int DAYS_TO_APPLY = 1024;
+
+    @Param({"10", "1000", "100000"})
+    private int historySize;
+
+    @Param({"IN_ORDER", "BACK_DATED"})
+    private String order;
+
+    private long[] amounts;
+
+    private double[] balances;
+
+    private int[] offsets;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        amounts = new long[historySize];
+        balances = new double[historySize];
+        double balance = 0;
+        for (int i = 0; i < historySize; i++) {
+            amounts[i] = random.nextInt(10_000);
+            balances[i] = balance;
+            balance += amounts[i] / 100.0;
+        }
+
+        offsets = new int[DAYS_TO_APPLY];
+        for (int i = 0; i < DAYS_TO_APPLY; i++) {
+            offsets[i] = "IN_ORDER".equals(order) ? historySize - 1 : random.nextInt(historySize);
+        }
+    }
+
+    @Benchmark
+    public long dayAmount() {
+        int offset = offsets[next++ & (DAYS_TO_APPLY - 1)];
+        amounts[offset] += 100;
+        return amounts[offset];
+    }
+
+    @Benchmark
+    public double rewrite() {
+        int offset = offsets[next++ & (DAYS_TO_APPLY - 1)];
+        for (int i = offset + 1; i < balances.length; i++) {
+            balances[i] += 1.0;
+        }
+        return balances[balances.length - 1];
+    }
+}
@@ -0,0 +1,124 @@
+package com.shepherdmoney.interviewproject.benchmark;
+
+import com.shepherdmoney.interviewproject.InterviewProjectApplication;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the card store engine changes for the operations going through it, against an embedded H2 database holding
+ * one user per ten cards.
+ * <p>
+ * The in-memory store only holds users and cards, so {@code addCard} and {@code findCardIds} show its gain, while
+ * {@code applyBatch} still reads and writes the balance history in the database with either engine and shows how much
+ * of a balance update the card lookup is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CardStoreBenchmark {
+    private static final int BATCHES = 64;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"jpa", "memory"})
+    private String engine;
+
+    @Param({"10000"})
+    private int cards;
+
+    private ConfigurableApplicationContext context;
+
+    private CardStore cardStore;
+
+    private BalanceUpdateService balanceUpdateService;
+
+    private int[] userIds;
+
+    private List<List<String>> numberBatches;
+
+    private List<List<UpdateBalancePayload>> transactionBatches;
+
+    private int next;
+
+    private int added;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplication(InterviewProjectApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.url=jdbc:h2:mem:card-store-benchmark-" + engine,
+                "--card-store.engine=" + engine,
+                "--logging.level.root=WARN");
+        cardStore = context.getBean(CardStore.class);
+        balanceUpdateService = context.getBean(BalanceUpdateService.class);
+        // seeded through the store itself, one user per ten cards
+        userIds = new int[cards / 10];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = cardStore.createUser("user-" + i, "user-" + i + "@example.com");
+        }
+        for (int i = 0; i < cards; i++) {
+            cardStore.addCard(userIds[i / 10], "BoK", "card-" + i);
+        }
+        cardStore.flush();
+
+        Random random = new Random(42);
+        Instant now = Instant.now();
+        numberBatches = new ArrayList<>(BATCHES);
+        transactionBatches = new ArrayList<>(BATCHES);
+        for (int i = 0; i < BATCHES; i++) {
+            List<String> batchNumbers = new ArrayList<>(BATCH_SIZE);
+            List<UpdateBalancePayload> transactions = new ArrayList<>(BATCH_SIZE);
+            for (int j = 0; j < BATCH_SIZE; j++) {
+                String number = "card-" + random.nextInt(cards);
+                batchNumbers.add(number);
+                UpdateBalancePayload trans = new UpdateBalancePayload();
+                trans.setCreditCardNumber(number);
+                trans.setTransactionTime(now.minus(random.nextInt(365), ChronoUnit.DAYS));
+                trans.setTransactionAmount(random.nextInt(10_000) / 100.0);
+                transactions.add(trans);
+            }
+            numberBatches.add(batchNumbers);
+            transactionBatches.add(transactions);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Integer> addCard() {
+        return cardStore.addCard(userIds[added % userIds.length], "BoK", "added-" + added++);
+    }
+
+    @Benchmark
+    public Map<String, Integer> findCardIds() {
+        return cardStore.findCardIds(numberBatches.get(next++ & (BATCHES - 1)));
+    }
+
+    @Benchmark
+    public boolean applyBatch() {
+        return balanceUpdateService.applyTransactions(transactionBatches.get(next++ & (BATCHES - 1)));
+    }
+}
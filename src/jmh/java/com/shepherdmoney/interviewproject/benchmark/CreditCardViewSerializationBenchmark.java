@@ -0,0 +1,46 @@
+package com.shepherdmoney.interviewproject.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.vo.response.CreditCardView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the response of GET /credit-card:all
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CreditCardViewSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int cards;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<CreditCardView> views;
+
+    @Setup
+    public void setUp() {
+        views = new ArrayList<>(cards);
+        for (int i = 0; i < cards; i++) {
+            views.add(new CreditCardView("Bank of Shepherd", String.format("4111%012d", i)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(views);
+    }
+}
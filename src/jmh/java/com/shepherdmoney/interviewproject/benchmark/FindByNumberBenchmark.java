@@ -0,0 +1,91 @@
+package com.shepherdmoney.interviewproject.benchmark;
+
+import com.shepherdmoney.interviewproject.InterviewProjectApplication;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.store.InMemoryCardStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Card number lookups against an embedded H2 database seeded with one user per ten cards, and against the in-memory
+ * card store loaded from it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindByNumberBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @Param({"100000"})
+    private int cards;
+
+    private ConfigurableApplicationContext context;
+
+    private CreditCardRepository creditCardRepository;
+
+    private InMemoryCardStore inMemoryCardStore;
+
+    private String[] numbers;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplication(InterviewProjectApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.url=jdbc:h2:mem:find-by-number-benchmark",
+                "--logging.level.root=WARN");
+        creditCardRepository = context.getBean(CreditCardRepository.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO MY_USER (ID, NAME, EMAIL) "
+                + "SELECT X, 'user-' || X, 'user-' || X || '@example.com' FROM SYSTEM_RANGE(1, ?)", cards / 10);
+        jdbcTemplate.update("INSERT INTO CREDIT_CARD (ID, ISSUANCE_BANK, NUMBER, USER_ID) "
+                + "SELECT X, 'BoK', 'card-' || X, X / 10 + 1 FROM SYSTEM_RANGE(0, ?)", cards - 1);
+
+        Random random = new Random(42);
+        numbers = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            numbers[i] = "card-" + random.nextInt(cards);
+        }
+        inMemoryCardStore = new InMemoryCardStore(jdbcTemplate, context.getBean(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), 64, 500);
+    }
+
+    @TearDown
+    public void tearDown() {
+        inMemoryCardStore.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Object findByNumber() {
+        return creditCardRepository.findByNumber(numbers[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public Optional<Integer> findUserIdByNumber() {
+        return creditCardRepository.findUserIdByNumber(numbers[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public Optional<Integer> inMemoryFindUserId() {
+        return inMemoryCardStore.findUserId(numbers[next++ & (LOOKUPS - 1)]);
+    }
+}
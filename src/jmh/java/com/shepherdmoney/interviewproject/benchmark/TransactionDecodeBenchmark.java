@@ -0,0 +1,84 @@
+package com.shepherdmoney.interviewproject.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shepherdmoney.interviewproject.ingestion.BinaryTransactionFormat;
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing an upload of POST /credit-card:update-balance into a columnar batch, from JSON and from the binary format.
+ * Throughput is in batches per second, see the byte sizes printed at setup for the input of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransactionDecodeBenchmark {
+
+    @Param({"1000", "100000"})
+    private int transactions;
+
+    @Param({"100"})
+    private int cards;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private byte[] json;
+
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] cardNumbers = new String[cards];
+        for (int i = 0; i < cards; i++) {
+            cardNumbers[i] = String.format("4111%012d", i);
+        }
+        UpdateBalancePayload[] payload = new UpdateBalancePayload[transactions];
+        int[] cardIndexes = new int[transactions];
+        long[] epochSeconds = new long[transactions];
+        long[] cents = new long[transactions];
+        for (int i = 0; i < transactions; i++) {
+            cardIndexes[i] = i % cards;
+            epochSeconds[i] = 1_680_000_000L + i * 37L;
+            cents[i] = 100 + i % 9_900;
+            payload[i] = new UpdateBalancePayload();
+            payload[i].setCreditCardNumber(cardNumbers[cardIndexes[i]]);
+            payload[i].setTransactionTime(Instant.ofEpochSecond(epochSeconds[i]));
+            payload[i].setTransactionAmount(cents[i] / 100.0);
+        }
+        json = objectMapper.writeValueAsBytes(payload);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryTransactionFormat.encode(cardNumbers, cardIndexes, epochSeconds, cents, output);
+        binary = output.toByteArray();
+        System.out.printf("%n%,d transactions: %,d bytes of JSON, %,d bytes binary%n",
+                transactions, json.length, binary.length);
+    }
+
+    @Benchmark
+    public TransactionBatch decodeJson() throws IOException {
+        UpdateBalancePayload[] payload = objectMapper.readValue(new ByteArrayInputStream(json),
+                UpdateBalancePayload[].class);
+        return BalanceUpdateService.toBatch(Arrays.asList(payload));
+    }
+
+    @Benchmark
+    public TransactionBatch decodeBinary() throws IOException {
+        return BinaryTransactionFormat.decode(new ByteArrayInputStream(binary));
+    }
+}
@@ -0,0 +1,31 @@
+package com.shepherdmoney.interviewproject.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/**
+ * Replays the configured traffic mix against the application on a random port, reports throughput and latency
+ * percentiles per route, and fails when the overall p99 exceeds the threshold. Run with {@code ./gradlew loadTest},
+ * configured with system properties:
+ * <ul>
+ *     <li>{@code loadtest.mix}: route weights, such as {@code list-cards=40,update-balance=20}</li>
+ *     <li>{@code loadtest.threads}: concurrent clients</li>
+ *     <li>{@code loadtest.seed-users}: users with one card created before the run</li>
+ *     <li>{@code loadtest.warmup} and {@code loadtest.duration}: ISO-8601 durations</li>
+ *     <li>{@code loadtest.p99-threshold-ms}: highest accepted p99 latency over all routes</li>
+ *     <li>{@code loadtest.report}: where the JSON report is written</li>
+ * </ul>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:load-test")
+public class ApiLoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void replayTrafficMix() throws Exception {
+        LoadTestRun.replay("http://localhost:" + port);
+    }
+}
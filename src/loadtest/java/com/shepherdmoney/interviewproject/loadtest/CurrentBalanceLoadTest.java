@@ -0,0 +1,61 @@
+package com.shepherdmoney.interviewproject.loadtest;
+
+import com.shepherdmoney.interviewproject.service.CurrentBalanceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays current balance reads, single and batched, against the application on a random port. Nothing writes during
+ * the run, so after the first read of each card the balances are served from the cache, and the run fails when the
+ * p99 of these cache hits is not below {@code loadtest.current-balance.p99-threshold-ms}, one millisecond by default.
+ * Runs with {@code ./gradlew loadTest}, with the same {@code loadtest.threads}, {@code loadtest.seed-users},
+ * {@code loadtest.warmup} and {@code loadtest.duration} settings as {@link ApiLoadTest}.
+ * <p>
+ * A second run mixes balance updates into the reads. An update only drops the balance of the card it wrote, so the
+ * run fails when fewer than {@code loadtest.current-balance.min-hit-ratio} of the lookups, half by default, are still
+ * served from the cache.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:current-balance-load-test")
+public class CurrentBalanceLoadTest {
+    private static final String MIX = "current-balance=80,current-balances=20";
+    private static final String MIX_WITH_WRITES = "current-balance=70,current-balances=20,update-balance=10";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CurrentBalanceService currentBalanceService;
+
+    @Test
+    void serveCurrentBalancesFromCache() throws Exception {
+        double p99ThresholdMillis =
+                Double.parseDouble(System.getProperty("loadtest.current-balance.p99-threshold-ms", "1"));
+        File reportFile = new File(LoadTestRun.reportFile().getParentFile(), "current-balance-results.json");
+        LoadTestRun.replay("http://localhost:" + port, LoadMix.parse(MIX), p99ThresholdMillis, reportFile);
+        System.out.printf("current balance cache: %,d hits, %,d misses%n",
+                currentBalanceService.getHitCount(), currentBalanceService.getMissCount());
+    }
+
+    @Test
+    void serveCurrentBalancesFromCacheWhileWriting() throws Exception {
+        double p99ThresholdMillis = Double.parseDouble(System.getProperty("loadtest.p99-threshold-ms", "50"));
+        double minHitRatio =
+                Double.parseDouble(System.getProperty("loadtest.current-balance.min-hit-ratio", "0.5"));
+        File reportFile = new File(LoadTestRun.reportFile().getParentFile(), "current-balance-writes-results.json");
+        long hits = currentBalanceService.getHitCount();
+        long misses = currentBalanceService.getMissCount();
+        LoadTestRun.replay("http://localhost:" + port, LoadMix.parse(MIX_WITH_WRITES), p99ThresholdMillis, reportFile);
+        hits = currentBalanceService.getHitCount() - hits;
+        misses = currentBalanceService.getMissCount() - misses;
+        System.out.printf("current balance cache while writing: %,d hits, %,d misses%n", hits, misses);
+        assertTrue(hits >= minHitRatio * (hits + misses),
+                String.format("hit ratio %.2f is below %.2f", (double) hits / (hits + misses), minHitRatio));
+    }
+}
@@ -0,0 +1,189 @@
+package com.shepherdmoney.interviewproject.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a weighted mix of API calls from a number of threads against a running server, each thread sending its
+ * next request as soon as the previous one is answered. Users and cards created during the run are used by the later
+ * requests, so the read routes hit real data.
+ */
+public class LoadGenerator {
+    private static final LocalDate FIRST_TRANSACTION_DAY = LocalDate.parse("2023-01-01");
+    private static final int CURRENT_BALANCE_BATCH_SIZE = 10;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final String baseUrl;
+
+    private final LoadMix mix;
+
+    private final int threads;
+
+    // unique suffix of the generated users and card numbers
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final List<Integer> userIds = new ArrayList<>();
+
+    private final List<String> cardNumbers = new ArrayList<>();
+
+    public LoadGenerator(String baseUrl, LoadMix mix, int threads) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.threads = threads;
+    }
+
+    /**
+     * Create users with one card each, so that every route has data from the first request on
+     */
+    public void seed(int users) throws IOException, InterruptedException {
+        for (int i = 0; i < users; i++) {
+            send(Route.CREATE_USER, ThreadLocalRandom.current());
+            send(Route.ADD_CARD, ThreadLocalRandom.current());
+        }
+    }
+
+    /**
+     * Replay the mix for the given duration
+     *
+     * @return the latencies of each route
+     */
+    public Map<Route, LatencyRecorder> run(Duration duration) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Map<Route, LatencyRecorder>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    Map<Route, LatencyRecorder> recorders = new EnumMap<>(Route.class);
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        Route route = mix.next(random);
+                        long start = System.nanoTime();
+                        boolean success;
+                        try {
+                            success = send(route, random);
+                        } catch (IOException e) {
+                            success = false;
+                        }
+                        recorders.computeIfAbsent(route, r -> new LatencyRecorder())
+                                .record(System.nanoTime() - start, success);
+                    }
+                    return recorders;
+                }));
+            }
+            Map<Route, LatencyRecorder> merged = new EnumMap<>(Route.class);
+            for (Future<Map<Route, LatencyRecorder>> future : futures) {
+                future.get().forEach((route, recorder) ->
+                        merged.computeIfAbsent(route, r -> new LatencyRecorder()).merge(recorder));
+            }
+            return merged;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load generator thread failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean send(Route route, ThreadLocalRandom random) throws IOException, InterruptedException {
+        long id = sequence.incrementAndGet();
+        return switch (route) {
+            case CREATE_USER -> {
+                HttpResponse<String> response = client.send(json("PUT", "/user",
+                        "{\"name\":\"load-" + id + "\",\"email\":\"load-" + id + "@example.com\"}"),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    synchronized (userIds) {
+                        userIds.add(Integer.parseInt(response.body().trim()));
+                    }
+                }
+                yield response.statusCode() == 200;
+            }
+            case ADD_CARD -> {
+                Integer userId = pick(userIds, random);
+                if (userId == null) {
+                    yield false;
+                }
+                String number = "load-card-" + id;
+                int status = status(json("POST", "/credit-card", "{\"userId\":" + userId
+                        + ",\"cardIssuanceBank\":\"BoK\",\"cardNumber\":\"" + number + "\"}"));
+                if (status == 200) {
+                    synchronized (cardNumbers) {
+                        cardNumbers.add(number);
+                    }
+                }
+                yield status == 200;
+            }
+            case LIST_CARDS -> {
+                Integer userId = pick(userIds, random);
+                yield userId != null && status(get("/credit-card:all?userId=" + userId)) == 200;
+            }
+            case OWNER_LOOKUP -> {
+                String number = pick(cardNumbers, random);
+                yield number != null && status(get("/credit-card:user-id?creditCardNumber=" + number)) == 200;
+            }
+            case UPDATE_BALANCE -> {
+                String number = pick(cardNumbers, random);
+                if (number == null) {
+                    yield false;
+                }
+                LocalDate day = FIRST_TRANSACTION_DAY.plusDays(random.nextInt(365));
+                yield status(json("POST", "/credit-card:update-balance", "[{\"creditCardNumber\":\"" + number
+                        + "\",\"transactionTime\":\"" + day + "T12:00:00Z\",\"transactionAmount\":"
+                        + random.nextInt(1, 10_000) / 100.0 + "}]")) == 200;
+            }
+            case CURRENT_BALANCE -> {
+                String number = pick(cardNumbers, random);
+                yield number != null
+                        && status(get("/credit-card:current-balance?creditCardNumber=" + number)) == 200;
+            }
+            case CURRENT_BALANCES -> {
+                StringBuilder body = new StringBuilder("{\"creditCardNumbers\":[");
+                for (int i = 0; i < CURRENT_BALANCE_BATCH_SIZE; i++) {
+                    String number = pick(cardNumbers, random);
+                    if (number == null) {
+                        yield false;
+                    }
+                    body.append(i == 0 ? "\"" : ",\"").append(number).append('"');
+                }
+                yield status(json("POST", "/credit-card:current-balance", body.append("]}").toString())) == 200;
+            }
+        };
+    }
+
+    private int status(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest json(String method, String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static <T> T pick(List<T> values, ThreadLocalRandom random) {
+        synchronized (values) {
+            return values.isEmpty() ? null : values.get(random.nextInt(values.size()));
+        }
+    }
+}
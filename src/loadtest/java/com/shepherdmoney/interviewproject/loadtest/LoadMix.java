@@ -0,0 +1,55 @@
+package com.shepherdmoney.interviewproject.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Relative weights of the routes, parsed from a list such as {@code list-cards=40,update-balance=20}. Routes left
+ * out are not replayed.
+ */
+public class LoadMix {
+
+    private final Route[] routes;
+
+    private final int[] cumulativeWeights;
+
+    private LoadMix(Map<Route, Integer> weights) {
+        routes = weights.keySet().toArray(new Route[0]);
+        cumulativeWeights = new int[routes.length];
+        int total = 0;
+        for (int i = 0; i < routes.length; i++) {
+            total += weights.get(routes[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Load mix has no weight");
+        }
+    }
+
+    public static LoadMix parse(String mix) {
+        Map<Route, Integer> weights = new EnumMap<>(Route.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Load mix entries are route=weight: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in load mix: " + entry);
+            }
+            weights.put(Route.ofKey(parts[0].trim()), weight);
+        }
+        return new LoadMix(weights);
+    }
+
+    public Route next(RandomGenerator random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return routes[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+}
@@ -0,0 +1,85 @@
+package com.shepherdmoney.interviewproject.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One run of the configured traffic mix against a server: seeds it, warms it up, replays the mix, prints and writes
+ * the report, and fails when a request failed or the overall p99 exceeds the threshold. Configured with the
+ * {@code loadtest.*} system properties listed on {@link ApiLoadTest}.
+ */
+final class LoadTestRun {
+    private static final String DEFAULT_MIX =
+            "create-user=5,add-card=5,list-cards=35,owner-lookup=35,update-balance=20";
+
+    private LoadTestRun() {
+    }
+
+    static void replay(String baseUrl) throws Exception {
+        replay(baseUrl, LoadMix.parse(System.getProperty("loadtest.mix", DEFAULT_MIX)),
+                Double.parseDouble(System.getProperty("loadtest.p99-threshold-ms", "50")), reportFile());
+    }
+
+    /**
+     * Replay the given mix instead of the configured one, against its own p99 threshold and report file
+     */
+    static void replay(String baseUrl, LoadMix mix, double p99ThresholdMillis, File reportFile) throws Exception {
+        int threads = Integer.getInteger("loadtest.threads", 16);
+        int seedUsers = Integer.getInteger("loadtest.seed-users", 500);
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+
+        LoadGenerator generator = new LoadGenerator(baseUrl, mix, threads);
+        generator.seed(seedUsers);
+        generator.run(warmup);
+        Map<Route, LatencyRecorder> results = generator.run(duration);
+
+        LatencyRecorder total = new LatencyRecorder();
+        Map<String, Object> report = new LinkedHashMap<>();
+        System.out.printf("%-36s %10s %10s %8s %8s %8s %8s %8s%n", "route", "requests", "req/s", "errors",
+                "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<Route, LatencyRecorder> entry : results.entrySet()) {
+            report.put(entry.getKey().getKey(), print(entry.getKey().getDescription(), entry.getValue(), duration));
+            total.merge(entry.getValue());
+        }
+        Map<String, Object> overall = print("all routes", total, duration);
+        report.put("all", overall);
+        report.put("threads", threads);
+        report.put("durationSeconds", duration.toSeconds());
+        report.put("p99ThresholdMs", p99ThresholdMillis);
+
+        reportFile.getParentFile().mkdirs();
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+
+        assertEquals(0, total.errors(), "requests failed under load");
+        double p99Millis = total.percentile(99) / 1e6;
+        assertTrue(p99Millis <= p99ThresholdMillis,
+                String.format("p99 latency %.2f ms exceeds the threshold of %.2f ms", p99Millis, p99ThresholdMillis));
+    }
+
+    static File reportFile() {
+        return new File(System.getProperty("loadtest.report", "build/reports/loadtest/results.json"));
+    }
+
+    private static Map<String, Object> print(String name, LatencyRecorder recorder, Duration duration) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", recorder.count());
+        stats.put("requestsPerSecond", recorder.count() / (double) duration.toSeconds());
+        stats.put("errors", recorder.errors());
+        stats.put("p50Ms", recorder.percentile(50) / 1e6);
+        stats.put("p90Ms", recorder.percentile(90) / 1e6);
+        stats.put("p99Ms", recorder.percentile(99) / 1e6);
+        stats.put("maxMs", recorder.percentile(100) / 1e6);
+        System.out.printf("%-36s %,10d %,10.0f %,8d %8.2f %8.2f %8.2f %8.2f%n", name, recorder.count(),
+                stats.get("requestsPerSecond"), recorder.errors(), stats.get("p50Ms"), stats.get("p90Ms"),
+                stats.get("p99Ms"), stats.get("maxMs"));
+        return stats;
+    }
+}
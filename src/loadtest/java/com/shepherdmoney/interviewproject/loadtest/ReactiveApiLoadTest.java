@@ -0,0 +1,82 @@
+package com.shepherdmoney.interviewproject.loadtest;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Replays the same traffic mix as {@link ApiLoadTest} against the application of the reactive module, for comparing the
+ * two stacks under the same load. The reactive application cannot share a classpath with the servlet one, so it is
+ * started in a JVM of its own. Run with {@code ./gradlew reactiveLoadTest} and the same {@code loadtest.*} settings as
+ * {@code ./gradlew loadTest}, for instance a read-only mix at high concurrency:
+ * {@code -Dloadtest.mix=list-cards=50,owner-lookup=50 -Dloadtest.threads=512}.
+ */
+@Tag("reactive")
+public class ReactiveApiLoadTest {
+    private static final String MAIN_CLASS = "com.shepherdmoney.interviewproject.reactive.ReactiveApplication";
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    @Test
+    void replayTrafficMix() throws Exception {
+        String classpath = System.getProperty("loadtest.reactive-classpath");
+        assertNotNull(classpath, "loadtest.reactive-classpath is set by the reactiveLoadTest task");
+        int port = freePort();
+        File log = new File(LoadTestRun.reportFile().getParentFile(), "reactive-server.log");
+        log.getParentFile().mkdirs();
+
+        Process server = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classpath, MAIN_CLASS, "--server.port=" + port, "--logging.level.root=WARN")
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            String baseUrl = "http://localhost:" + port;
+            awaitStartup(baseUrl, server, log);
+            LoadTestRun.replay(baseUrl);
+        } finally {
+            server.destroy();
+            if (!server.waitFor(10, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        }
+    }
+
+    private static void awaitStartup(String baseUrl, Process server, File log) throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest probe = HttpRequest.newBuilder(
+                URI.create(baseUrl + "/credit-card:user-id?creditCardNumber=startup-probe")).GET().build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("Reactive application exited on startup, see " + log);
+            }
+            try {
+                // any answer means the server is up, the probed card does not exist
+                client.send(probe, HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (IOException e) {
+                Thread.sleep(200);
+            }
+        }
+        throw new IllegalStateException("Reactive application did not start within " + STARTUP_TIMEOUT + ", see " + log);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
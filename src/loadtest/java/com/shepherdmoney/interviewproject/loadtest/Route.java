@@ -0,0 +1,39 @@
+package com.shepherdmoney.interviewproject.loadtest;
+
+/**
+ * The API routes replayed by the load generator, with the key used for them in {@code loadtest.mix}
+ */
+public enum Route {
+    CREATE_USER("create-user", "PUT /user"),
+    ADD_CARD("add-card", "POST /credit-card"),
+    LIST_CARDS("list-cards", "GET /credit-card:all"),
+    OWNER_LOOKUP("owner-lookup", "GET /credit-card:user-id"),
+    UPDATE_BALANCE("update-balance", "POST /credit-card:update-balance"),
+    CURRENT_BALANCE("current-balance", "GET /credit-card:current-balance"),
+    CURRENT_BALANCES("current-balances", "POST /credit-card:current-balance");
+
+    private final String key;
+    private final String description;
+
+    Route(String key, String description) {
+        this.key = key;
+        this.description = description;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static Route ofKey(String key) {
+        for (Route route : values()) {
+            if (route.key.equals(key)) {
+                return route;
+            }
+        }
+        throw new IllegalArgumentException("Unknown route in load mix: " + key);
+    }
+}
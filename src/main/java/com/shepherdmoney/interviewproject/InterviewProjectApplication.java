@@ -2,13 +2,18 @@ package com.shepherdmoney.interviewproject;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
 @EnableJpaRepositories
 public class InterviewProjectApplication {
     public static void main(String[] args) {
-        SpringApplication.run(InterviewProjectApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(InterviewProjectApplication.class, args);
+        // the CDS training run of ./gradlew cdsArchive stops once started, the JVM dumps the archive on exit
+        if (Boolean.getBoolean("cds.training-run")) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
 }
@@ -0,0 +1,196 @@
+package com.shepherdmoney.interviewproject.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe, size-bounded LRU cache that counts hits and misses.
+ * <p>
+ * Values are loaded outside of the lock. A loaded value is only stored if its key was not invalidated while it was
+ * being loaded, so a load racing with a write can never put a stale value back into the cache, and invalidating one
+ * key does not keep the values of others out.
+ */
+public class BoundedCache<K, V> {
+
+    private final LinkedHashMap<K, V> entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    // incremented by every invalidation, guarded by this
+    private long clock;
+
+    // keys being loaded, guarded by this
+    private final Map<K, InFlight> inFlight = new HashMap<>();
+
+    public BoundedCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Cached value of the key, loaded and cached on a miss. Null values are returned but not cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        return get(key, value -> true, loader);
+    }
+
+    /**
+     * Cached value of the key if it is still fresh, otherwise loaded and cached in place of the stale one
+     */
+    public V get(K key, Predicate<? super V> fresh, Function<? super K, ? extends V> loader) {
+        long loadStart;
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null && fresh.test(value)) {
+                hits.increment();
+                return value;
+            }
+            loadStart = startLoad(key);
+        }
+        misses.increment();
+        V value = null;
+        try {
+            value = loader.apply(key);
+        } finally {
+            synchronized (this) {
+                if (finishLoad(key, loadStart) && value != null) {
+                    entries.put(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Cached values of the keys that are still fresh, and values of the others loaded by a single call of the loader
+     * and cached. Keys the loader has no value for are left out.
+     *
+     * @return the values by key, in the order of the given keys
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys, Predicate<? super V> fresh,
+                            Function<? super Set<K>, ? extends Map<K, ? extends V>> loader) {
+        Map<K, V> values = new LinkedHashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        long loadStart;
+        synchronized (this) {
+            for (K key : keys) {
+                V value = entries.get(key);
+                if (value != null && fresh.test(value)) {
+                    values.put(key, value);
+                } else {
+                    // keeps the key's position in the result
+                    values.put(key, null);
+                    missing.add(key);
+                }
+            }
+            loadStart = clock;
+            for (K key : missing) {
+                startLoad(key);
+            }
+        }
+        hits.add(values.size() - missing.size());
+        if (missing.isEmpty()) {
+            return values;
+        }
+        misses.add(missing.size());
+        Map<K, ? extends V> loaded = Map.of();
+        try {
+            loaded = loader.apply(missing);
+        } finally {
+            synchronized (this) {
+                for (K key : missing) {
+                    V value = loaded.get(key);
+                    if (finishLoad(key, loadStart) && value != null) {
+                        entries.put(key, value);
+                    }
+                }
+            }
+        }
+        for (K key : missing) {
+            V value = loaded.get(key);
+            if (value == null) {
+                values.remove(key);
+            } else {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    public synchronized void invalidate(K key) {
+        clock++;
+        markInvalidated(key);
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll(Collection<? extends K> keys) {
+        clock++;
+        for (K key : keys) {
+            markInvalidated(key);
+            entries.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        clock++;
+        inFlight.values().forEach(load -> load.invalidatedAt = clock);
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // called holding the lock, returns the clock the load started at
+    private long startLoad(K key) {
+        inFlight.computeIfAbsent(key, k -> new InFlight()).loads++;
+        return clock;
+    }
+
+    // called holding the lock, whether the key was left alone since the load started and the value may be cached
+    private boolean finishLoad(K key, long loadStart) {
+        InFlight load = inFlight.get(key);
+        boolean current = load.invalidatedAt <= loadStart;
+        if (--load.loads == 0) {
+            inFlight.remove(key);
+        }
+        return current;
+    }
+
+    private void markInvalidated(K key) {
+        InFlight load = inFlight.get(key);
+        if (load != null) {
+            load.invalidatedAt = clock;
+        }
+    }
+
+    // loads of a key in progress and when the key was last invalidated during them
+    private static final class InFlight {
+        int loads;
+        long invalidatedAt = -1;
+    }
+}
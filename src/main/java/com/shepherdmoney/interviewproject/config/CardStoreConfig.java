@@ -0,0 +1,43 @@
+package com.shepherdmoney.interviewproject.config;
+
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.CreditCardOwnerService;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import com.shepherdmoney.interviewproject.store.InMemoryCardStore;
+import com.shepherdmoney.interviewproject.store.JpaCardStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Card store selected by {@code card-store.engine}, "jpa" (the default) or "memory"
+ */
+@Slf4j
+@Configuration
+public class CardStoreConfig {
+
+    // the schema is created with the entity manager factory, before the in-memory store loads from it
+    @Bean
+    @DependsOn("entityManagerFactory")
+    public CardStore cardStore(@Value("${card-store.engine:jpa}") String engine,
+                               UserRepository userRepository, CreditCardRepository creditCardRepository,
+                               CreditCardOwnerService creditCardOwnerService, JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                               @Value("${card-store.shards:64}") int shards,
+                               @Value("${card-store.write-batch-size:500}") int writeBatchSize) {
+        if ("memory".equals(engine)) {
+            log.info("Serving users and cards from memory, {} shards", shards);
+            return new InMemoryCardStore(jdbcTemplate, transactionManager, meterRegistry, shards, writeBatchSize);
+        }
+        if (!"jpa".equals(engine)) {
+            throw new IllegalArgumentException("card-store.engine must be jpa or memory: " + engine);
+        }
+        return new JpaCardStore(userRepository, creditCardRepository, creditCardOwnerService);
+    }
+}
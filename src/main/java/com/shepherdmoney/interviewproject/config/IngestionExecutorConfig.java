@@ -0,0 +1,45 @@
+package com.shepherdmoney.interviewproject.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor of the asynchronous transaction ingestion.
+ * <p>
+ * With {@code ingestion.executor=virtual} (the default) every task runs on its own virtual thread when the JVM
+ * supports them (JDK 21+). The project still compiles for JDK 17, so the factory method is looked up reflectively,
+ * and older JVMs or {@code ingestion.executor=platform} get a bounded pool of platform threads instead.
+ */
+@Slf4j
+@Configuration
+public class IngestionExecutorConfig {
+
+    @Bean(name = "ingestionExecutor", destroyMethod = "shutdown")
+    public ExecutorService ingestionExecutor(@Value("${ingestion.executor:virtual}") String mode,
+                                             @Value("${ingestion.platform-threads:8}") int platformThreads,
+                                             @Value("${ingestion.lanes:64}") int lanes) {
+        if ("virtual".equals(mode)) {
+            try {
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                log.info("Ingesting transactions on virtual threads");
+                return executor;
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                log.info("Virtual threads are not available on this JVM, falling back to platform threads");
+            }
+        }
+        log.info("Ingesting transactions on {} platform threads", platformThreads);
+        // each lane hands at most one task to the executor at a time, so a queue of one slot per lane never overflows
+        return new ThreadPoolExecutor(platformThreads, platformThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(lanes), new CustomizableThreadFactory("ingestion-"));
+    }
+}
@@ -0,0 +1,21 @@
+package com.shepherdmoney.interviewproject.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor of the parallel portfolio aggregation, one platform thread per database connection it may hold at once
+ */
+@Configuration
+public class PortfolioExecutorConfig {
+
+    @Bean(name = "portfolioExecutor", destroyMethod = "shutdown")
+    public ExecutorService portfolioExecutor(@Value("${portfolio.parallelism:4}") int parallelism) {
+        return Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("portfolio-"));
+    }
+}
@@ -0,0 +1,25 @@
+package com.shepherdmoney.interviewproject.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Fork-join pool of the balance history recomputation. Each worker holds a database connection while it writes a
+ * chunk, so the parallelism should stay below the size of the connection pool.
+ */
+@Configuration
+public class RecomputationPoolConfig {
+
+    @Bean(name = "recomputationPool", destroyMethod = "shutdown")
+    public ForkJoinPool recomputationPool(@Value("${recomputation.parallelism:4}") int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("recomputation-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
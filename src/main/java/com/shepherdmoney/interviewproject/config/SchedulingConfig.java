@@ -0,0 +1,12 @@
+package com.shepherdmoney.interviewproject.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the periodic background jobs, such as the purge of soft deleted users
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
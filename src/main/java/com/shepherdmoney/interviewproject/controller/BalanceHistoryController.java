@@ -0,0 +1,120 @@
+package com.shepherdmoney.interviewproject.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.service.BalanceHistoryService;
+import com.shepherdmoney.interviewproject.vo.response.BalanceHistoryPage;
+import com.shepherdmoney.interviewproject.vo.response.BalanceHistoryView;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@RestController
+public class BalanceHistoryController {
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // one entry per day is written, so the dense series is limited to about a century
+    private static final int MAX_SERIES_DAYS = 36_525;
+
+    private final BalanceHistoryService balanceHistoryService;
+    private final ObjectMapper objectMapper;
+
+    public BalanceHistoryController(BalanceHistoryService balanceHistoryService, ObjectMapper objectMapper) {
+        this.balanceHistoryService = balanceHistoryService;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping("/credit-card:balance-history")
+    public ResponseEntity<BalanceHistoryPage> getBalanceHistory(
+            @RequestParam String creditCardNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate after,
+            @RequestParam(defaultValue = "100") int limit) {
+        // Return one page of the card's history in [from, to], oldest first. Pass the returned cursor as "after"
+        // to get the next page. Return 400 Bad Request if the card does not exist or the range is invalid.
+        LocalDate fromDate = from == null ? BalanceHistoryService.EARLIEST_DATE : from;
+        LocalDate toDate = to == null ? BalanceHistoryService.LATEST_DATE : to;
+        if (limit <= 0 || limit > MAX_PAGE_SIZE || !isValidRange(fromDate, toDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Integer> cardId = balanceHistoryService.findCardId(creditCardNumber);
+        if (cardId.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(balanceHistoryService.getPage(cardId.get(), fromDate, toDate, after, limit));
+    }
+
+    @GetMapping("/credit-card:balance-history-stream")
+    public ResponseEntity<StreamingResponseBody> streamBalanceHistory(
+            @RequestParam String creditCardNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        // Stream the card's whole history in [from, to] as newline delimited JSON, oldest first.
+        // Rows are read from a database cursor and written as they come, nothing is collected in memory.
+        LocalDate fromDate = from == null ? BalanceHistoryService.EARLIEST_DATE : from;
+        LocalDate toDate = to == null ? BalanceHistoryService.LATEST_DATE : to;
+        if (!isValidRange(fromDate, toDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Integer> cardId = balanceHistoryService.findCardId(creditCardNumber);
+        if (cardId.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(ndjson(consumer ->
+                balanceHistoryService.streamHistory(cardId.get(), fromDate, toDate, consumer)));
+    }
+
+    @GetMapping("/credit-card:balance-series")
+    public ResponseEntity<StreamingResponseBody> streamDailySeries(
+            @RequestParam String creditCardNumber,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        // Stream one entry for every day in [from, to] as newline delimited JSON, oldest first. Only days with
+        // transactions are stored, the days in between are filled in while streaming with an amount of 0.
+        if (!isValidRange(from, to) || to.toEpochDay() - from.toEpochDay() >= MAX_SERIES_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Integer> cardId = balanceHistoryService.findCardId(creditCardNumber);
+        if (cardId.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(ndjson(consumer ->
+                balanceHistoryService.streamDailySeries(cardId.get(), from, to, consumer)));
+    }
+
+    private StreamingResponseBody ndjson(Consumer<Consumer<BalanceHistoryView>> producer) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(new SerializedString("\n"));
+                producer.accept(view -> {
+                    try {
+                        generator.writeObject(view);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeRaw('\n');
+            }
+        };
+    }
+
+    private static boolean isValidRange(LocalDate from, LocalDate to) {
+        return !from.isBefore(BalanceHistoryService.EARLIEST_DATE) && !to.isAfter(BalanceHistoryService.LATEST_DATE)
+                && !from.isAfter(to);
+    }
+}
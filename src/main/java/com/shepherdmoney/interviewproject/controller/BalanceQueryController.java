@@ -0,0 +1,133 @@
+package com.shepherdmoney.interviewproject.controller;
+
+import com.shepherdmoney.interviewproject.service.BalanceHistoryService;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import com.shepherdmoney.interviewproject.service.CurrentBalanceService;
+import com.shepherdmoney.interviewproject.vo.request.BalanceAtPayload;
+import com.shepherdmoney.interviewproject.vo.request.CurrentBalancePayload;
+import com.shepherdmoney.interviewproject.vo.response.BalanceAtView;
+import com.shepherdmoney.interviewproject.vo.response.BalanceSummaryView;
+import com.shepherdmoney.interviewproject.vo.response.CurrentBalanceView;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+public class BalanceQueryController {
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final BalanceQueryService balanceQueryService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final CurrentBalanceService currentBalanceService;
+
+    public BalanceQueryController(BalanceQueryService balanceQueryService,
+                                  BalanceHistoryService balanceHistoryService,
+                                  CurrentBalanceService currentBalanceService) {
+        this.balanceQueryService = balanceQueryService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.currentBalanceService = currentBalanceService;
+    }
+
+    @GetMapping("/credit-card:balance-at")
+    public ResponseEntity<BalanceAtView> getBalanceAt(
+            @RequestParam String creditCardNumber,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        // Return the card's balance on the given date, 400 Bad Request if the card does not exist
+        if (!isValidDate(date)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Double> balance = balanceQueryService.getBalanceOn(creditCardNumber, date);
+        if (balance.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(BalanceAtView.builder()
+                .creditCardNumber(creditCardNumber)
+                .date(date)
+                .balance(balance.get())
+                .build());
+    }
+
+    @PostMapping("/credit-card:balance-at")
+    public ResponseEntity<List<BalanceAtView>> getBalancesAt(@RequestBody BalanceAtPayload payload) {
+        // Return the balances of up to MAX_BATCH_SIZE cards on the given date, in the order of the request.
+        // Return 400 Bad Request if a card does not exist.
+        if (payload == null || !isValidDate(payload.getDate()) || payload.getCreditCardNumbers() == null
+                || payload.getCreditCardNumbers().isEmpty()
+                || payload.getCreditCardNumbers().size() > MAX_BATCH_SIZE
+                || payload.getCreditCardNumbers().contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Map<String, Double>> balances =
+                balanceQueryService.getBalancesOn(payload.getCreditCardNumbers(), payload.getDate());
+        if (balances.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<BalanceAtView> views = new ArrayList<>(balances.get().size());
+        balances.get().forEach((cardNumber, balance) -> views.add(BalanceAtView.builder()
+                .creditCardNumber(cardNumber)
+                .date(payload.getDate())
+                .balance(balance)
+                .build()));
+        return ResponseEntity.ok(views);
+    }
+
+    @GetMapping("/credit-card:current-balance")
+    public ResponseEntity<CurrentBalanceView> getCurrentBalance(@RequestParam String creditCardNumber) {
+        // Return the card's balance after every transaction up to and including today,
+        // 400 Bad Request if the card does not exist
+        Optional<CurrentBalanceView> balance = currentBalanceService.getCurrentBalance(creditCardNumber);
+        if (balance.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(balance.get());
+    }
+
+    @PostMapping("/credit-card:current-balance")
+    public ResponseEntity<List<CurrentBalanceView>> getCurrentBalances(@RequestBody CurrentBalancePayload payload) {
+        // Return the current balances of up to MAX_BATCH_SIZE cards, in the order of the request.
+        // Return 400 Bad Request if a card does not exist.
+        if (payload == null || payload.getCreditCardNumbers() == null || payload.getCreditCardNumbers().isEmpty()
+                || payload.getCreditCardNumbers().size() > MAX_BATCH_SIZE
+                || payload.getCreditCardNumbers().contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<List<CurrentBalanceView>> balances =
+                currentBalanceService.getCurrentBalances(payload.getCreditCardNumbers());
+        if (balances.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(balances.get());
+    }
+
+    @GetMapping("/credit-card:balance-summary")
+    public ResponseEntity<BalanceSummaryView> getBalanceSummary(
+            @RequestParam String creditCardNumber,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        // Return the minimum, maximum and average daily balance over [from, to],
+        // 400 Bad Request if the card does not exist or the window is invalid
+        if (!isValidDate(from) || !isValidDate(to) || from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Integer> cardId = balanceHistoryService.findCardId(creditCardNumber);
+        if (cardId.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(balanceQueryService.summarize(cardId.get(), from, to));
+    }
+
+    private static boolean isValidDate(LocalDate date) {
+        return date != null && !date.isBefore(BalanceHistoryService.EARLIEST_DATE)
+                && !date.isAfter(BalanceHistoryService.LATEST_DATE);
+    }
+}
@@ -0,0 +1,43 @@
+package com.shepherdmoney.interviewproject.controller;
+
+import com.shepherdmoney.interviewproject.service.BulkImportService;
+import com.shepherdmoney.interviewproject.vo.response.ImportResult;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+@RestController
+public class BulkImportController {
+    public static final String TEXT_CSV = "text/csv";
+
+    private final BulkImportService bulkImportService;
+
+    public BulkImportController(BulkImportService bulkImportService) {
+        this.bulkImportService = bulkImportService;
+    }
+
+    @PostMapping(value = "/user:import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportResult> importUsersFromJson(InputStream body) {
+        // Import a JSON array of {name, email, cards: [{issuanceBank, number}]}, read as it arrives.
+        // Return 200 OK with the rows imported and rejected, or 400 Bad Request with the same counts
+        // if the input is malformed, in which case the rows before the error are imported.
+        return toResponse(bulkImportService.importJson(body));
+    }
+
+    @PostMapping(value = "/user:import", consumes = TEXT_CSV)
+    public ResponseEntity<ImportResult> importUsersFromCsv(InputStream body) {
+        // Import CSV lines of name,email,issuanceBank,cardNumber. Consecutive lines with the same email
+        // are one user, leave the card columns empty for a user without cards.
+        return toResponse(bulkImportService.importCsv(body));
+    }
+
+    private static ResponseEntity<ImportResult> toResponse(ImportResult result) {
+        if (result.getError() != null) {
+            return ResponseEntity.badRequest().body(result);
+        }
+        return ResponseEntity.ok(result);
+    }
+}
@@ -1,25 +1,23 @@
 package com.shepherdmoney.interviewproject.controller;
 
-import com.shepherdmoney.interviewproject.model.BalanceHistory;
-import com.shepherdmoney.interviewproject.model.CreditCard;
-import com.shepherdmoney.interviewproject.model.User;
-import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
-import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.ingestion.BinaryTransactionFormat;
+import com.shepherdmoney.interviewproject.ingestion.TransactionJournalService;
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.service.BalanceHistoryService;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.store.CardStore;
 import com.shepherdmoney.interviewproject.vo.request.AddCreditCardToUserPayload;
 import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
 import com.shepherdmoney.interviewproject.vo.response.CreditCardView;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -30,14 +28,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 
 @RestController
 public class CreditCardController {
+    private static final int MAX_PAGE_SIZE = 1000;
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
     // TODO: wire in CreditCard repository here (~1 line)
-    private final CreditCardRepository creditCardRepository;
-    private final UserRepository userRepository;
-
-    public CreditCardController(CreditCardRepository creditCardRepository, UserRepository userRepository) {
-        this.creditCardRepository = creditCardRepository;
-        this.userRepository = userRepository;
+    private final CardStore cardStore;
+    private final BalanceUpdateService balanceUpdateService;
+    private final TransactionJournalService transactionJournalService;
+
+    public CreditCardController(CardStore cardStore, BalanceUpdateService balanceUpdateService,
+                                TransactionJournalService transactionJournalService) {
+        this.cardStore = cardStore;
+        this.balanceUpdateService = balanceUpdateService;
+        this.transactionJournalService = transactionJournalService;
     }
 
     @PostMapping("/credit-card")
@@ -53,35 +56,36 @@ public class CreditCardController {
         if (cardNumber == null || cardIssuanceBank == null || cardNumber.isEmpty() || cardIssuanceBank.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-        Optional<User> userOptional = userRepository.findById(userId);
         // No such user found
-        if (userOptional.isEmpty()) {
+        if (!cardStore.userExists(userId)) {
             return ResponseEntity.notFound().build();
         }
 
-        CreditCard creditCard = new CreditCard();
-        creditCard.setUser(userOptional.get());
-        creditCard.setIssuanceBank(cardIssuanceBank);
-        creditCard.setNumber(cardNumber);
-        return ResponseEntity.ok(creditCardRepository.save(creditCard).getId());
+        // Card numbers are unique
+        Optional<Integer> creditCardId = cardStore.addCard(userId, cardIssuanceBank, cardNumber);
+        if (creditCardId.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok(creditCardId.get());
     }
 
     @GetMapping("/credit-card:all")
-    public ResponseEntity<List<CreditCardView>> getAllCardOfUser(@RequestParam int userId) {
+    public ResponseEntity<List<CreditCardView>> getAllCardOfUser(@RequestParam int userId,
+                                                                 @RequestParam(required = false) Integer page,
+                                                                 @RequestParam(required = false) Integer size) {
         // TODO: return a list of all credit card associated with the given userId, using CreditCardView class
         //       if the user has no credit card, return empty list, never return null
-        Optional<User> userOptional = userRepository.findById(userId);
-        List<CreditCardView> creditCardViews = new ArrayList<>();
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            for (CreditCard card : user.getCreditCards()) {
-                creditCardViews.add(CreditCardView.builder()
-                        .issuanceBank(card.getIssuanceBank())
-                        .number(card.getNumber())
-                        .build());
+        // Pagination is optional, when page or size is given the other one defaults to 0 and MAX_PAGE_SIZE
+        Pageable pageable = Pageable.unpaged();
+        if (page != null || size != null) {
+            int pageNumber = page == null ? 0 : page;
+            int pageSize = size == null ? MAX_PAGE_SIZE : size;
+            if (pageNumber < 0 || pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+                return ResponseEntity.badRequest().build();
             }
+            pageable = PageRequest.of(pageNumber, pageSize);
         }
-        return ResponseEntity.ok(creditCardViews);
+        return ResponseEntity.ok(cardStore.findCardViews(userId, pageable));
     }
 
     @GetMapping("/credit-card:user-id")
@@ -91,9 +95,9 @@ public class CreditCardController {
         if (creditCardNumber == null || creditCardNumber.isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } else {
-            List<CreditCard> creditCards = creditCardRepository.findByNumber(creditCardNumber);
-            if (!creditCards.isEmpty()) {
-                return ResponseEntity.ok(creditCards.get(0).getUser().getId());
+            Optional<Integer> userId = cardStore.findUserId(creditCardNumber);
+            if (userId.isPresent()) {
+                return ResponseEntity.ok(userId.get());
             } else {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
             }
@@ -101,7 +105,8 @@ public class CreditCardController {
     }
 
     @PostMapping("/credit-card:update-balance")
-    public ResponseEntity<Integer> postCreditCardTransaction(@RequestBody UpdateBalancePayload[] payload) {
+    public ResponseEntity<Integer> postCreditCardTransaction(@RequestBody UpdateBalancePayload[] payload,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         //TODO: Given a list of transactions, update credit cards' balance history.
         //      For example: if today is 4/12, a credit card's balanceHistory is [{date: 4/12, balance: 110}, {date: 4/10, balance: 100}],
         //      Given a transaction of {date: 4/10, amount: 10}, the new balanceHistory is
@@ -109,84 +114,61 @@ public class CreditCardController {
         //      Return 200 OK if update is done and successful, 400 Bad Request if the given card number
         //      is not associated with a card.
 
-        // If empty or null payload
-        if (payload == null || payload.length == 0) {
+        //      With an Idempotency-Key header the batch is journaled before it is applied, and a batch whose key
+        //      was applied before is acknowledged without being applied again.
+
+        if (!isValidBatch(payload) || (idempotencyKey != null && !TransactionJournalService.isValidKey(idempotencyKey))) {
+            return ResponseEntity.badRequest().build();
+        }
+        // no credit card found for at least one transaction, the whole batch is rejected
+        if (!applyBatch(BalanceUpdateService.toBatch(Arrays.asList(payload)), idempotencyKey)) {
             return ResponseEntity.badRequest().build();
         }
+        return ResponseEntity.ok().build();
+    }
 
-        // Update for each transaction
-        for (UpdateBalancePayload trans : payload) {
-            String creditCardNumber = trans.getCreditCardNumber();
-            Instant transTime = trans.getTransactionTime();
-            double transAmount = trans.getTransactionAmount();
+    @PostMapping(value = "/credit-card:update-balance", consumes = BinaryTransactionFormat.MEDIA_TYPE)
+    public ResponseEntity<Integer> postCreditCardTransactionBinary(InputStream body,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        // Same as above, with the transactions in the compact binary format of BinaryTransactionFormat.
+        // They are decoded from the request stream straight into a columnar batch.
+        if (idempotencyKey != null && !TransactionJournalService.isValidKey(idempotencyKey)) {
+            return ResponseEntity.badRequest().build();
+        }
+        TransactionBatch batch;
+        try {
+            batch = BinaryTransactionFormat.decode(body);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (batch.size() == 0 || !applyBatch(batch, idempotencyKey)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().build();
+    }
 
-            List<CreditCard> creditCards = creditCardRepository.findByNumber(creditCardNumber);
-            // no credit card found
-            if (creditCards.isEmpty()) {
-                return ResponseEntity.badRequest().build();
-            }
-            CreditCard creditCard = creditCards.get(0);
-            List<BalanceHistory> histories = creditCard.getBalanceHistoryList();
-
-            BalanceHistory sameDayHistory = new BalanceHistory();
-            sameDayHistory.setDate(transTime);
-            sameDayHistory.setCreditCard(creditCard);
-            BalanceHistory nextDayHistory = new BalanceHistory();
-            nextDayHistory.setDate(transTime.plus(1, ChronoUnit.DAYS));
-            nextDayHistory.setCreditCard(creditCard);
-
-            boolean found = false;
-            double curBalance = histories.get(histories.size() - 1).getBalance();
-            for (int i = histories.size() - 1; i > 0; i--) {
-                BalanceHistory curHistory = histories.get(i);
-                BalanceHistory laterHistory = histories.get(i - 1);
-                // if the insert pos is not found
-                if (!found) {
-                    if (curHistory.getDate().isBefore(transTime)) {
-                        // if the transaction must happen after the previous history
-                        if (laterHistory.getDate().isAfter(transTime)) {
-                            sameDayHistory.setBalance(curBalance);
-                            histories.add(i, sameDayHistory);
-                            laterHistory.setBalance(laterHistory.getBalance() + transAmount);
-                            // if the prevHistory is more than 1 day after transaction, one more history add
-                            if (laterHistory.getDate().isAfter(nextDayHistory.getDate())) {
-                                nextDayHistory.setBalance(curBalance + transAmount);
-                                histories.add(i, nextDayHistory);
-                            } // otherwise, laterHistory is nextDayHistory
-                        } // otherwise the transaction happened on prevHistory date, no change to laterHistory
-                        // update current history with transaction amount
-                        curHistory.setBalance(curHistory.getBalance() + transAmount);
-                        found = true;
-                    } // trans happened on curHistory will be handled in next iteration
-                } else {
-                    // if already found, only update balance is needed
-                    curHistory.setBalance(curHistory.getBalance() + transAmount);
-                }
-                curBalance = curHistory.getBalance();
-            }
-            // if still not found after iteration, trans happened after all history
-            if (!found) {
-                sameDayHistory.setBalance(curBalance);
-                histories.add(0, sameDayHistory);
-                nextDayHistory.setBalance(curBalance + transAmount);
-                histories.add(0, nextDayHistory);
-                curBalance = curBalance + transAmount;
+    private boolean applyBatch(TransactionBatch batch, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return balanceUpdateService.applyBatch(batch);
+        }
+        return transactionJournalService.applyOnce(idempotencyKey, batch);
+    }
+
+    static boolean isValidBatch(UpdateBalancePayload[] payload) {
+        // If empty or null payload
+        if (payload == null || payload.length == 0) {
+            return false;
+        }
+        for (UpdateBalancePayload trans : payload) {
+            if (trans == null || trans.getCreditCardNumber() == null || trans.getTransactionTime() == null) {
+                return false;
             }
-            // check if the top history is the current data
-            Instant currentTime = Instant.now().truncatedTo(ChronoUnit.DAYS);
-            LocalDate firstDate = LocalDateTime.ofInstant(histories.get(0).getDate(), ZoneId.systemDefault()).toLocalDate();
-            LocalDate currentDate = LocalDateTime.ofInstant(currentTime, ZoneId.systemDefault()).toLocalDate();
-            if (!firstDate.equals(currentDate)) {
-                 BalanceHistory topHistory = new BalanceHistory();
-                 topHistory.setCreditCard(creditCard);
-                 topHistory.setDate(currentTime);
-                 topHistory.setBalance(curBalance);
-                 histories.add(0, topHistory);
+            // outside the days the history can be read for
+            if (!BalanceHistoryService.isValidTransactionTime(trans.getTransactionTime().getEpochSecond())) {
+                return false;
             }
-            System.out.print(histories);
-            creditCardRepository.save(creditCard);
         }
-        return ResponseEntity.ok().build();
+        return true;
     }
     
 }
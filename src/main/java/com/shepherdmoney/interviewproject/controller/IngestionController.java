@@ -0,0 +1,87 @@
+package com.shepherdmoney.interviewproject.controller;
+
+import com.shepherdmoney.interviewproject.ingestion.BinaryTransactionFormat;
+import com.shepherdmoney.interviewproject.ingestion.IngestionJob;
+import com.shepherdmoney.interviewproject.ingestion.TransactionIngestionService;
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import com.shepherdmoney.interviewproject.vo.response.IngestionJobView;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Optional;
+
+@RestController
+public class IngestionController {
+
+    private final TransactionIngestionService transactionIngestionService;
+
+    public IngestionController(TransactionIngestionService transactionIngestionService) {
+        this.transactionIngestionService = transactionIngestionService;
+    }
+
+    @PostMapping("/credit-card:update-balance-async")
+    public ResponseEntity<IngestionJobView> postCreditCardTransactionAsync(@RequestBody UpdateBalancePayload[] payload,
+            @RequestHeader(value = CreditCardController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        // Same input as /credit-card:update-balance, but the batch is applied in the background.
+        // Return 202 Accepted with the job to poll, 400 Bad Request if a card number is not associated with a card,
+        // and 503 Service Unavailable if too many transactions are already queued.
+        // With an Idempotency-Key header the batch is journaled, and so safe from a crash, before 202 is returned.
+        if (!CreditCardController.isValidBatch(payload)
+                || (idempotencyKey != null && !transactionIngestionService.isValidKey(idempotencyKey))) {
+            return ResponseEntity.badRequest().build();
+        }
+        return submit(BalanceUpdateService.toBatch(Arrays.asList(payload)), idempotencyKey);
+    }
+
+    @PostMapping(value = "/credit-card:update-balance-async", consumes = BinaryTransactionFormat.MEDIA_TYPE)
+    public ResponseEntity<IngestionJobView> postCreditCardTransactionAsyncBinary(InputStream body,
+            @RequestHeader(value = CreditCardController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        // Same as above, with the transactions in the compact binary format of BinaryTransactionFormat
+        if (idempotencyKey != null && !transactionIngestionService.isValidKey(idempotencyKey)) {
+            return ResponseEntity.badRequest().build();
+        }
+        TransactionBatch batch;
+        try {
+            batch = BinaryTransactionFormat.decode(body);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (batch.size() == 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return submit(batch, idempotencyKey);
+    }
+
+    @GetMapping("/credit-card:update-balance-job")
+    public ResponseEntity<IngestionJobView> getIngestionJob(@RequestParam String jobId) {
+        // Return 404 Not Found if the job is unknown or no longer retained
+        return transactionIngestionService.findJob(jobId)
+                .map(job -> ResponseEntity.ok(IngestionJobView.of(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<IngestionJobView> submit(TransactionBatch batch, String idempotencyKey) {
+        if (!transactionIngestionService.allCardsExist(batch)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<IngestionJob> job = transactionIngestionService.submit(batch, idempotencyKey);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/credit-card:update-balance-job?jobId=" + job.get().getId()))
+                .body(IngestionJobView.of(job.get()));
+    }
+}
@@ -0,0 +1,38 @@
+package com.shepherdmoney.interviewproject.controller;
+
+import com.shepherdmoney.interviewproject.service.PortfolioService;
+import com.shepherdmoney.interviewproject.vo.response.PortfolioBalanceView;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+
+@RestController
+public class PortfolioController {
+    private static final int MAX_DAYS = 3660;
+
+    private final PortfolioService portfolioService;
+
+    public PortfolioController(PortfolioService portfolioService) {
+        this.portfolioService = portfolioService;
+    }
+
+    @GetMapping("/user:portfolio-balance")
+    public ResponseEntity<PortfolioBalanceView> getPortfolioBalance(
+            @RequestParam int userId,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "false") boolean parallel) {
+        // Return the summed balance of all the user's cards today, and for each of the last `days` days.
+        // Return 400 Bad Request if the user does not exist or `days` is out of range.
+        if (days < 1 || days > MAX_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<PortfolioBalanceView> portfolio = portfolioService.getPortfolio(userId, days, parallel);
+        if (portfolio.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(portfolio.get());
+    }
+}
@@ -0,0 +1,55 @@
+package com.shepherdmoney.interviewproject.controller;
+
+import com.shepherdmoney.interviewproject.service.BalanceRecomputationService;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.service.RecomputationJob;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import com.shepherdmoney.interviewproject.vo.response.RecomputationJobView;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Optional;
+
+@RestController
+public class RecomputationController {
+
+    private final BalanceRecomputationService balanceRecomputationService;
+
+    public RecomputationController(BalanceRecomputationService balanceRecomputationService) {
+        this.balanceRecomputationService = balanceRecomputationService;
+    }
+
+    @PostMapping("/credit-card:recompute-balance-history")
+    public ResponseEntity<RecomputationJobView> recomputeBalanceHistory(@RequestBody UpdateBalancePayload[] payload) {
+        // Admin job for restated transactions: the given transactions replace all transactions of their cards on
+        // their days, and the history of every affected card is recomputed in the background.
+        // Return 202 Accepted with the job to poll, 400 Bad Request if a card number is not associated with a card or
+        // a transaction is dated in a month whose history may be compacted.
+        if (!CreditCardController.isValidBatch(payload)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<RecomputationJob> job = balanceRecomputationService.submit(
+                BalanceUpdateService.toBatch(Arrays.asList(payload)));
+        if (job.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/credit-card:recompute-balance-history-job?jobId=" + job.get().getId()))
+                .body(RecomputationJobView.of(job.get()));
+    }
+
+    @GetMapping("/credit-card:recompute-balance-history-job")
+    public ResponseEntity<RecomputationJobView> getRecomputationJob(@RequestParam String jobId) {
+        // Progress of the job, with the cards processed per second. Return 404 Not Found if the job is unknown or no
+        // longer retained
+        return balanceRecomputationService.findJob(jobId)
+                .map(job -> ResponseEntity.ok(RecomputationJobView.of(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -1,23 +1,23 @@
 package com.shepherdmoney.interviewproject.controller;
 
-import com.shepherdmoney.interviewproject.model.User;
-import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.UserDeletionService;
+import com.shepherdmoney.interviewproject.store.CardStore;
 import com.shepherdmoney.interviewproject.vo.request.CreateUserPayload;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Optional;
-
 @RestController
 public class UserController {
 
     // TODO: wire in the user repository (~ 1 line)
-    private final UserRepository userRepository;
+    private final CardStore cardStore;
+    private final UserDeletionService userDeletionService;
 
-    public UserController(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public UserController(CardStore cardStore, UserDeletionService userDeletionService) {
+        this.cardStore = cardStore;
+        this.userDeletionService = userDeletionService;
     }
 
     @PutMapping("/user")
@@ -27,12 +27,7 @@ public class UserController {
         if (payload == null) {
             return ResponseEntity.badRequest().build();
         }
-        String name = payload.getName();
-        String email = payload.getEmail();
-        User user = new User();
-        user.setName(name);
-        user.setEmail(email);
-        return ResponseEntity.ok(userRepository.save(user).getId());
+        return ResponseEntity.ok(cardStore.createUser(payload.getName(), payload.getEmail()));
     }
 
     @DeleteMapping("/user")
@@ -40,11 +35,10 @@ public class UserController {
         // TODO: Return 200 OK if a user with the given ID exists, and the deletion is successful
         //       Return 400 Bad Request if a user with the ID does not exist
         //       The response body could be anything you consider appropriate
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isEmpty()) {
+        // The user, its cards and their history are removed with bulk statements, nothing is loaded
+        if (!userDeletionService.deleteUser(userId)) {
             return ResponseEntity.badRequest().build();
         }
-        userRepository.deleteById(userId);
         return ResponseEntity.status(HttpStatus.OK).build();
     }
 }
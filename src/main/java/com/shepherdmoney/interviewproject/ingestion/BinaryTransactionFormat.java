@@ -0,0 +1,178 @@
+package com.shepherdmoney.interviewproject.ingestion;
+
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.service.BalanceHistoryService;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of a batch of transactions, decoded straight into a {@link TransactionBatch}.
+ * <p>
+ * All numbers are big-endian. A batch is
+ * <pre>
+ *   magic        4 bytes   "SMTX"
+ *   version      1 byte    1
+ *   cards        int32     number of card numbers in the dictionary
+ *   card number  uint16 length, then that many bytes of UTF-8, once per card
+ *   transaction  int32 card index, int64 epoch second, int64 amount in cents, 20 bytes each until the end
+ * </pre>
+ * The decoder reads the stream through one fixed buffer and allocates nothing per transaction. Transaction times must
+ * fall between {@link BalanceHistoryService#EARLIEST_DATE} and {@link BalanceHistoryService#LATEST_DATE}.
+ */
+public final class BinaryTransactionFormat {
+    public static final String MEDIA_TYPE = "application/x-shepherd-transactions";
+
+    private static final byte[] MAGIC = {'S', 'M', 'T', 'X'};
+    private static final byte VERSION = 1;
+    private static final int TRANSACTION_BYTES = 20;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CARDS = 10_000_000;
+
+    private BinaryTransactionFormat() {
+    }
+
+    /**
+     * Decode a batch from the stream, reading it to its end
+     *
+     * @throws IOException if the stream cannot be read, or does not hold a well-formed batch
+     */
+    public static TransactionBatch decode(InputStream input) throws IOException {
+        Reader reader = new Reader(input);
+        for (byte b : MAGIC) {
+            if (reader.readByte() != b) {
+                throw new IOException("Not a binary transaction batch");
+            }
+        }
+        byte version = reader.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary transaction batch version: " + version);
+        }
+        int cards = reader.readInt();
+        if (cards < 0 || cards > MAX_CARDS) {
+            throw new IOException("Invalid number of cards: " + cards);
+        }
+        // the card count comes from the client, the batch grows with what the body actually holds
+        TransactionBatch batch = new TransactionBatch();
+        for (int i = 0; i < cards; i++) {
+            int length = reader.readUnsignedShort();
+            if (batch.addCard(reader.readString(length)) != i) {
+                throw new IOException("Card number listed twice in the dictionary");
+            }
+        }
+        while (reader.ensure(1)) {
+            if (!reader.ensure(TRANSACTION_BYTES)) {
+                throw new EOFException("Truncated transaction record");
+            }
+            int cardIndex = reader.buffer.getInt();
+            long epochSecond = reader.buffer.getLong();
+            long cents = reader.buffer.getLong();
+            if (cardIndex < 0 || cardIndex >= cards) {
+                throw new IOException("Transaction refers to card index " + cardIndex + " of " + cards);
+            }
+            if (!BalanceHistoryService.isValidTransactionTime(epochSecond)) {
+                throw new IOException("Transaction time out of range: " + epochSecond);
+            }
+            batch.add(cardIndex, Cents.epochDay(epochSecond), cents);
+        }
+        return batch;
+    }
+
+    /**
+     * Encode transactions given as parallel arrays, the reverse of {@link #decode}
+     */
+    public static void encode(String[] cardNumbers, int[] cardIndexes, long[] epochSeconds, long[] cents,
+                              OutputStream output) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.put(MAGIC).put(VERSION).putInt(cardNumbers.length);
+        for (String cardNumber : cardNumbers) {
+            byte[] bytes = cardNumber.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Card number too long: " + cardNumber);
+            }
+            if (buffer.remaining() < 2 + bytes.length) {
+                flush(buffer, output);
+            }
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        for (int i = 0; i < cardIndexes.length; i++) {
+            if (buffer.remaining() < TRANSACTION_BYTES) {
+                flush(buffer, output);
+            }
+            buffer.putInt(cardIndexes[i]).putLong(epochSeconds[i]).putLong(cents[i]);
+        }
+        flush(buffer, output);
+    }
+
+    private static void flush(ByteBuffer buffer, OutputStream output) throws IOException {
+        output.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    /**
+     * Buffered big-endian reader over an input stream
+     */
+    private static final class Reader {
+        private final InputStream input;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+        Reader(InputStream input) {
+            this.input = input;
+        }
+
+        /**
+         * Make at least n bytes available in the buffer, returning false if the stream ends before
+         */
+        boolean ensure(int n) throws IOException {
+            if (buffer.remaining() >= n) {
+                return true;
+            }
+            buffer.compact();
+            try {
+                while (buffer.position() < n) {
+                    int read = input.read(buffer.array(), buffer.position(), buffer.remaining());
+                    if (read < 0) {
+                        return false;
+                    }
+                    buffer.position(buffer.position() + read);
+                }
+                return true;
+            } finally {
+                buffer.flip();
+            }
+        }
+
+        byte readByte() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            return buffer.getInt();
+        }
+
+        int readUnsignedShort() throws IOException {
+            require(2);
+            return Short.toUnsignedInt(buffer.getShort());
+        }
+
+        String readString(int length) throws IOException {
+            require(length);
+            String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+
+        private void require(int n) throws IOException {
+            if (!ensure(n)) {
+                throw new EOFException("Truncated binary transaction batch");
+            }
+        }
+    }
+}
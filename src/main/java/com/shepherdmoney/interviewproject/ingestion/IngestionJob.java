@@ -0,0 +1,101 @@
+package com.shepherdmoney.interviewproject.ingestion;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of one asynchronously ingested batch. A batch is split into partitions by card number, and the job is done
+ * when every partition has either been applied or failed.
+ */
+public class IngestionJob {
+
+    private final String id;
+
+    private final Instant submittedAt = Instant.now();
+
+    private final int transactions;
+
+    private final int partitions;
+
+    private final AtomicInteger appliedTransactions = new AtomicInteger();
+
+    private final AtomicInteger failedPartitions = new AtomicInteger();
+
+    private final AtomicInteger finishedPartitions = new AtomicInteger();
+
+    private volatile boolean started;
+
+    private volatile Instant completedAt;
+
+    private volatile String error;
+
+    IngestionJob(String id, int transactions, int partitions) {
+        this.id = id;
+        this.transactions = transactions;
+        this.partitions = partitions;
+    }
+
+    void partitionStarted() {
+        started = true;
+    }
+
+    void partitionApplied(int partitionTransactions) {
+        appliedTransactions.addAndGet(partitionTransactions);
+        finishPartition();
+    }
+
+    void partitionFailed(String reason) {
+        error = reason;
+        failedPartitions.incrementAndGet();
+        finishPartition();
+    }
+
+    private void finishPartition() {
+        if (finishedPartitions.incrementAndGet() == partitions) {
+            completedAt = Instant.now();
+        }
+    }
+
+    public IngestionJobStatus getStatus() {
+        if (finishedPartitions.get() == partitions) {
+            return failedPartitions.get() == 0 ? IngestionJobStatus.SUCCEEDED : IngestionJobStatus.FAILED;
+        }
+        return started ? IngestionJobStatus.RUNNING : IngestionJobStatus.QUEUED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public int getTransactions() {
+        return transactions;
+    }
+
+    public int getAppliedTransactions() {
+        return appliedTransactions.get();
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getFinishedPartitions() {
+        return finishedPartitions.get();
+    }
+
+    public int getFailedPartitions() {
+        return failedPartitions.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+}
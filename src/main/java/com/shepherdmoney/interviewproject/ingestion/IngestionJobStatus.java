@@ -0,0 +1,8 @@
+package com.shepherdmoney.interviewproject.ingestion;
+
+public enum IngestionJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
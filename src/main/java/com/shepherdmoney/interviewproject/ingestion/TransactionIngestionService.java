@@ -0,0 +1,194 @@
+package com.shepherdmoney.interviewproject.ingestion;
+
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies transaction batches in the background.
+ * <p>
+ * A submitted batch is split into partitions by card number. Each partition goes to one of a fixed number of lanes
+ * chosen by the card number's hash, and a lane applies its partitions one after another. All updates of a card
+ * therefore stay in submission order, across jobs too, while different lanes run in parallel on the ingestion
+ * executor without any global lock. The number of queued transactions is bounded; submissions beyond the bound are
+ * refused so that callers can back off.
+ * <p>
+ * A batch submitted with an idempotency key has each of its partitions journaled under the key and the partition's
+ * lane before the job is returned, so it is applied exactly once even if the process dies before the lanes get to it
+ * (see {@link TransactionJournalService}). Retries must therefore reach a process with the same number of lanes. The
+ * lane is appended to the key, so keys are shorter than the ones of the synchronous endpoint by the longest suffix.
+ */
+@Slf4j
+@Service
+public class TransactionIngestionService {
+
+    private final BalanceUpdateService balanceUpdateService;
+    private final CardStore cardStore;
+    private final TransactionJournalService transactionJournalService;
+    private final SerialExecutor[] lanes;
+    private final long maxQueuedTransactions;
+    private final int maxKeyLength;
+    private final AtomicLong queuedTransactions = new AtomicLong();
+    private final Map<String, IngestionJob> jobs;
+
+    public TransactionIngestionService(BalanceUpdateService balanceUpdateService,
+                                       CardStore cardStore,
+                                       TransactionJournalService transactionJournalService,
+                                       @Qualifier("ingestionExecutor") Executor ingestionExecutor,
+                                       @Value("${ingestion.lanes:64}") int laneCount,
+                                       @Value("${ingestion.max-queued-transactions:1000000}") long maxQueuedTransactions,
+                                       @Value("${ingestion.retained-jobs:10000}") int retainedJobs) {
+        this.balanceUpdateService = balanceUpdateService;
+        this.cardStore = cardStore;
+        this.transactionJournalService = transactionJournalService;
+        this.maxQueuedTransactions = maxQueuedTransactions;
+        this.lanes = new SerialExecutor[laneCount];
+        this.maxKeyLength = TransactionJournalService.MAX_KEY_LENGTH - partitionKey("", laneCount - 1).length();
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new SerialExecutor(ingestionExecutor);
+        }
+        // the oldest jobs are forgotten once more than retainedJobs have been submitted
+        this.jobs = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IngestionJob> eldest) {
+                return size() > retainedJobs;
+            }
+        };
+    }
+
+    /**
+     * Whether the key can identify a submitted batch, it must leave room for the lane suffix of its partitions
+     */
+    public boolean isValidKey(String idempotencyKey) {
+        return TransactionJournalService.isValidKey(idempotencyKey) && idempotencyKey.length() <= maxKeyLength;
+    }
+
+    public int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+
+    /**
+     * Whether every card number of the batch belongs to a card
+     */
+    public boolean allCardsExist(TransactionBatch batch) {
+        List<String> cardNumbers = batch.cardNumbers();
+        return cardNumbers.isEmpty() || cardStore.findCardIds(cardNumbers).size() == cardNumbers.size();
+    }
+
+    /**
+     * Queue a batch for ingestion.
+     *
+     * @return the job tracking the batch, or empty if too many transactions are queued already
+     */
+    public Optional<IngestionJob> submit(TransactionBatch batch) {
+        return submit(batch, null);
+    }
+
+    /**
+     * Queue a batch for ingestion, journaling it first if it has an idempotency key. A batch whose key was applied
+     * before is skipped by each of its partitions.
+     *
+     * @return the job tracking the batch, or empty if too many transactions are queued already
+     */
+    public Optional<IngestionJob> submit(TransactionBatch batch, String idempotencyKey) {
+        if (queuedTransactions.addAndGet(batch.size()) > maxQueuedTransactions) {
+            queuedTransactions.addAndGet(-batch.size());
+            return Optional.empty();
+        }
+
+        TransactionBatch[] partitions = new TransactionBatch[lanes.length];
+        int partitionCount = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            String cardNumber = batch.cardNumbers().get(batch.cardIndex(i));
+            int lane = laneOf(cardNumber);
+            if (partitions[lane] == null) {
+                partitions[lane] = new TransactionBatch();
+                partitionCount++;
+            }
+            partitions[lane].add(cardNumber, batch.day(i), batch.amount(i));
+        }
+
+        // all partitions are appended before waiting, so one group commit covers them
+        String[] partitionKeys = new String[lanes.length];
+        TransactionJournal.Position[] positions = new TransactionJournal.Position[lanes.length];
+        if (idempotencyKey != null) {
+            try {
+                for (int lane = 0; lane < partitions.length; lane++) {
+                    if (partitions[lane] != null) {
+                        partitionKeys[lane] = partitionKey(idempotencyKey, lane);
+                        positions[lane] = transactionJournalService.append(partitionKeys[lane], partitions[lane]);
+                    }
+                }
+                for (TransactionJournal.Position position : positions) {
+                    if (position != null) {
+                        transactionJournalService.awaitDurable(position);
+                    }
+                }
+            } catch (RuntimeException e) {
+                queuedTransactions.addAndGet(-batch.size());
+                throw e;
+            }
+        }
+
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), batch.size(), partitionCount);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        for (int lane = 0; lane < partitions.length; lane++) {
+            TransactionBatch partition = partitions[lane];
+            if (partition != null) {
+                String partitionKey = partitionKeys[lane];
+                TransactionJournal.Position position = positions[lane];
+                lanes[lane].execute(() -> applyPartition(job, partition, partitionKey, position));
+            }
+        }
+        return Optional.of(job);
+    }
+
+    public Optional<IngestionJob> findJob(String jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId));
+        }
+    }
+
+    private void applyPartition(IngestionJob job, TransactionBatch partition, String partitionKey,
+                                TransactionJournal.Position position) {
+        job.partitionStarted();
+        try {
+            if (balanceUpdateService.applyBatch(partition, partitionKey)) {
+                job.partitionApplied(partition.size());
+            } else {
+                job.partitionFailed("A credit card of the batch no longer exists");
+            }
+            if (position != null) {
+                transactionJournalService.release(position);
+            }
+        } catch (RuntimeException e) {
+            // a keyed partition stays journaled and is replayed on the next start
+            log.error("Failed to apply a partition of ingestion job {}", job.getId(), e);
+            job.partitionFailed(e.getMessage());
+        } finally {
+            queuedTransactions.addAndGet(-partition.size());
+        }
+    }
+
+    private static String partitionKey(String idempotencyKey, int lane) {
+        return idempotencyKey + "#" + lane;
+    }
+
+    private int laneOf(String cardNumber) {
+        return Math.floorMod(cardNumber.hashCode(), lanes.length);
+    }
+}
@@ -0,0 +1,362 @@
+package com.shepherdmoney.interviewproject.ingestion;
+
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of transaction batches, each recorded with its idempotency key before it is applied.
+ * <p>
+ * The journal is a sequence of memory-mapped segment files of a fixed size. A record is
+ * <pre>
+ *   length       int32     bytes of the payload, 0 marks the end of a segment
+ *   checksum     int32     CRC32C of the payload
+ *   payload      uint16 key length, the key in UTF-8, int32 cards, each card as uint16 length and UTF-8,
+ *                int32 transactions, then int32 card index, int32 epoch day, int64 amount in cents for each
+ * </pre>
+ * Appending only copies the record into the mapping. {@link #awaitDurable} then forces it to disk with group commit:
+ * one waiting thread forces everything appended so far while the others wait for it, so a single fsync covers all
+ * records appended meanwhile. A record is released once it is applied, and a segment whose records are all released
+ * is deleted as soon as the journal has moved on to the next one.
+ * <p>
+ * {@link #replay} reads the segments left behind by a previous process, stopping at the first torn record of each,
+ * and deletes them once every record has been handed over. A journal holds a lock on its directory while open, so
+ * the segments of a live journal are never mistaken for left over ones by another.
+ */
+public class TransactionJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LOCK_FILE = "journal.lock";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FileChannel lockChannel;
+    private final FileLock directoryLock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition durableChanged = lock.newCondition();
+
+    // segments left behind by a previous process, to be replayed
+    private final List<Path> leftoverSegments;
+
+    // segments of this process by sequence number, the last one is appended to
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private long nextSequence;
+
+    // bytes appended and bytes forced to disk over the life of the journal
+    private long appended;
+    private long durable;
+    private boolean forcing;
+
+    /**
+     * Journal a batch with its idempotency key
+     */
+    public record Entry(String idempotencyKey, TransactionBatch batch) {
+    }
+
+    /**
+     * Position of an appended record, to wait for its durability and to release it
+     */
+    public static final class Position {
+        private final Segment segment;
+        private final long end;
+
+        private Position(Segment segment, long end) {
+            this.segment = segment;
+            this.end = end;
+        }
+    }
+
+    @FunctionalInterface
+    public interface ReplayHandler {
+        void accept(Entry entry) throws IOException;
+    }
+
+    /**
+     * Open the journal in the given directory, taking over the segments a previous process left there
+     *
+     * @throws IllegalStateException if another journal, of this process or another one, has the directory open
+     */
+    public TransactionJournal(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Journal segments must be at least 1 KB: " + segmentSize);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // held by another journal of this process
+            fileLock = null;
+        }
+        if (fileLock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Journal directory is in use by another journal: " + directory);
+        }
+        this.directoryLock = fileLock;
+        this.leftoverSegments = existingSegments();
+        for (Path path : leftoverSegments) {
+            nextSequence = Math.max(nextSequence, sequenceOf(path) + 1);
+        }
+    }
+
+    /**
+     * Hand every record left by a previous process to the handler, oldest first, then delete their segments.
+     * Records appended by this process are not replayed. If the handler throws, the segments are kept for the next
+     * replay.
+     *
+     * @return the number of records replayed
+     */
+    public int replay(ReplayHandler handler) throws IOException {
+        int records = 0;
+        for (Path path : leftoverSegments) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                Entry entry;
+                while ((entry = readRecord(buffer)) != null) {
+                    handler.accept(entry);
+                    records++;
+                }
+            }
+        }
+        for (Path path : leftoverSegments) {
+            Files.deleteIfExists(path);
+        }
+        leftoverSegments.clear();
+        return records;
+    }
+
+    /**
+     * Copy a record into the journal. It is not durable before {@link #awaitDurable} returns for its position.
+     */
+    public Position append(String idempotencyKey, TransactionBatch batch) throws IOException {
+        byte[] key = idempotencyKey.getBytes(StandardCharsets.UTF_8);
+        if (key.length > 0xFFFF) {
+            throw new IllegalArgumentException("Idempotency key too long");
+        }
+        List<byte[]> cards = new ArrayList<>(batch.cardNumbers().size());
+        long payloadBytes = 2L + key.length + 4 + 4 + 16L * batch.size();
+        for (String cardNumber : batch.cardNumbers()) {
+            byte[] card = cardNumber.getBytes(StandardCharsets.UTF_8);
+            if (card.length > 0xFFFF) {
+                throw new IllegalArgumentException("Card number too long: " + cardNumber);
+            }
+            cards.add(card);
+            payloadBytes += 2 + card.length;
+        }
+        // a record and the end marker after it must fit in a segment
+        if (payloadBytes > Integer.MAX_VALUE - 2 * HEADER_BYTES) {
+            throw new IllegalArgumentException("Batch too large for the journal: " + batch.size());
+        }
+        int recordBytes = HEADER_BYTES + (int) payloadBytes;
+
+        lock.lock();
+        try {
+            Segment segment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+            if (segment == null || segment.buffer.remaining() < recordBytes + HEADER_BYTES) {
+                segment = roll(segment, recordBytes + HEADER_BYTES);
+            }
+            MappedByteBuffer buffer = segment.buffer;
+            int start = buffer.position();
+            buffer.position(start + HEADER_BYTES);
+            buffer.putShort((short) key.length).put(key).putInt(cards.size());
+            for (byte[] card : cards) {
+                buffer.putShort((short) card.length).put(card);
+            }
+            buffer.putInt(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                buffer.putInt(batch.cardIndex(i)).putInt(batch.day(i)).putLong(batch.amount(i));
+            }
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.slice(start + HEADER_BYTES, (int) payloadBytes));
+            // the length goes in last, a reader never sees a record before its payload is complete
+            buffer.putInt(start + 4, (int) checksum.getValue());
+            buffer.putInt(start, (int) payloadBytes);
+            segment.unreleased++;
+            appended += recordBytes;
+            return new Position(segment, appended);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the record at the given position is on disk, forcing the journal if no other thread is doing so
+     */
+    public void awaitDurable(Position position) throws IOException {
+        lock.lock();
+        try {
+            while (durable < position.end) {
+                if (forcing) {
+                    durableChanged.awaitUninterruptibly();
+                    continue;
+                }
+                // records of earlier segments were forced when the journal rolled over to this one
+                forcing = true;
+                long target = appended;
+                Segment segment = segments.lastEntry().getValue();
+                lock.unlock();
+                try {
+                    segment.buffer.force();
+                } finally {
+                    lock.lock();
+                    forcing = false;
+                    durableChanged.signalAll();
+                }
+                durable = Math.max(durable, target);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mark the record at the given position as applied, deleting its segment if it was the last unapplied one there
+     */
+    public void release(Position position) throws IOException {
+        lock.lock();
+        try {
+            Segment segment = position.segment;
+            segment.unreleased--;
+            if (segment.unreleased == 0 && segment != segments.lastEntry().getValue()) {
+                segments.remove(segment.sequence);
+                segment.delete();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                if (segment.unreleased == 0) {
+                    segment.delete();
+                } else {
+                    segment.buffer.force();
+                    segment.channel.close();
+                }
+            }
+            segments.clear();
+            if (lockChannel.isOpen()) {
+                directoryLock.release();
+                lockChannel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Segment roll(Segment current, int minimumSize) throws IOException {
+        if (current != null) {
+            current.buffer.force();
+            durable = appended;
+            if (current.unreleased == 0) {
+                segments.remove(current.sequence);
+                current.delete();
+            }
+        }
+        long sequence = nextSequence++;
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, minimumSize));
+        Segment segment = new Segment(sequence, path, channel, buffer);
+        segments.put(sequence, segment);
+        return segment;
+    }
+
+    private static Entry readRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        int checksum = buffer.getInt(start + 4);
+        if (length <= 0 || length > buffer.remaining() - HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer payload = buffer.slice(start + HEADER_BYTES, length);
+        CRC32C actual = new CRC32C();
+        actual.update(payload.duplicate());
+        // torn record of a crash while appending, nothing after it was acknowledged
+        if ((int) actual.getValue() != checksum) {
+            return null;
+        }
+        String key = readString(payload);
+        int cards = payload.getInt();
+        TransactionBatch batch = new TransactionBatch();
+        for (int i = 0; i < cards; i++) {
+            batch.addCard(readString(payload));
+        }
+        int transactions = payload.getInt();
+        for (int i = 0; i < transactions; i++) {
+            batch.add(payload.getInt(), payload.getInt(), payload.getLong());
+        }
+        buffer.position(start + HEADER_BYTES + length);
+        return new Entry(key, batch);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private List<Path> existingSegments() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(null);
+        return paths;
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int unreleased;
+
+        private Segment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+    }
+}
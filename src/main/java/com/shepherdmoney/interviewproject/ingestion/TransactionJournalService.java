@@ -0,0 +1,149 @@
+package com.shepherdmoney.interviewproject.ingestion;
+
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.repository.ProcessedBatchRepository;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Applies transaction batches that carry a client-supplied idempotency key, through the {@link TransactionJournal}.
+ * <p>
+ * A keyed batch is journaled and forced to disk before it is applied, and released from the journal once applied, or
+ * refused because a card of it does not exist. If the process dies in between, or applying the batch fails, the batch
+ * stays in the journal and is replayed on the next start. A batch that fails again on replay is journaled anew for the
+ * start after, so that it neither blocks the startup nor is lost. Its key is stored with its
+ * history (see {@link BalanceUpdateService}), so a batch that was applied before the crash, or that the client retries
+ * with the same key, is skipped instead of being counted twice. Keys are forgotten after
+ * {@code journal.key-retention}, which bounds how late a retry may come.
+ */
+@Slf4j
+@Service
+public class TransactionJournalService implements ApplicationRunner {
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private final BalanceUpdateService balanceUpdateService;
+    private final ProcessedBatchRepository processedBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionJournal journal;
+    private final Duration keyRetention;
+
+    public TransactionJournalService(BalanceUpdateService balanceUpdateService,
+                                     ProcessedBatchRepository processedBatchRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${journal.directory:${user.home}/shepherd-journal}") Path directory,
+                                     @Value("${journal.segment-size:67108864}") int segmentSize,
+                                     @Value("${journal.key-retention:P7D}") Duration keyRetention) throws IOException {
+        this.balanceUpdateService = balanceUpdateService;
+        this.processedBatchRepository = processedBatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.journal = new TransactionJournal(directory, segmentSize);
+        this.keyRetention = keyRetention;
+    }
+
+    public static boolean isValidKey(String idempotencyKey) {
+        return idempotencyKey != null && !idempotencyKey.isBlank() && idempotencyKey.length() <= MAX_KEY_LENGTH;
+    }
+
+    /**
+     * Replay the batches journaled but possibly not applied by the previous process
+     */
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        int replayed = journal.replay(entry -> {
+            try {
+                if (!balanceUpdateService.applyBatch(entry.batch(), entry.idempotencyKey())) {
+                    log.warn("Dropped journaled batch {}, a credit card of it no longer exists",
+                            entry.idempotencyKey());
+                }
+            } catch (RuntimeException e) {
+                // never released, so the next start replays it again
+                journal(entry.idempotencyKey(), entry.batch());
+                log.error("Failed to replay journaled batch {}, kept for the next start", entry.idempotencyKey(), e);
+            }
+        });
+        if (replayed > 0) {
+            log.info("Replayed {} journaled transaction batches", replayed);
+        }
+    }
+
+    /**
+     * Journal a batch and apply it, unless a batch with the same key was applied before. If applying it throws, the
+     * batch stays in the journal and is replayed on the next start.
+     *
+     * @return false if a transaction refers to a card number that does not exist, in which case nothing is written
+     */
+    public boolean applyOnce(String idempotencyKey, TransactionBatch batch) {
+        TransactionJournal.Position position = journal(idempotencyKey, batch);
+        boolean applied = balanceUpdateService.applyBatch(batch, idempotencyKey);
+        release(position);
+        return applied;
+    }
+
+    /**
+     * Journal a batch and wait until it is durable. It must be {@link #release released} once applied, and only then.
+     */
+    public TransactionJournal.Position journal(String idempotencyKey, TransactionBatch batch) {
+        TransactionJournal.Position position = append(idempotencyKey, batch);
+        awaitDurable(position);
+        return position;
+    }
+
+    /**
+     * Journal a batch without waiting for it to be durable, see {@link #awaitDurable}
+     */
+    public TransactionJournal.Position append(String idempotencyKey, TransactionBatch batch) {
+        try {
+            return journal.append(idempotencyKey, batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to journal batch " + idempotencyKey, e);
+        }
+    }
+
+    public void awaitDurable(TransactionJournal.Position position) {
+        try {
+            journal.awaitDurable(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to force the transaction journal", e);
+        }
+    }
+
+    public void release(TransactionJournal.Position position) {
+        try {
+            journal.release(position);
+        } catch (IOException e) {
+            // the segment stays on disk, its batches are skipped when replayed
+            log.warn("Failed to delete an applied journal segment", e);
+        }
+    }
+
+    /**
+     * Forget the keys of batches applied longer ago than the retention
+     */
+    @Scheduled(fixedDelayString = "${journal.key-purge-interval:PT1H}")
+    public void purgeExpiredKeys() {
+        Integer purged = transactionTemplate.execute(status ->
+                processedBatchRepository.deleteAppliedBefore(Instant.now().minus(keyRetention)));
+        if (purged != null && purged > 0) {
+            log.info("Forgot {} expired idempotency keys", purged);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        journal.close();
+    }
+}
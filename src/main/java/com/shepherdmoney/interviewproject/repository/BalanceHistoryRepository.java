@@ -0,0 +1,129 @@
+package com.shepherdmoney.interviewproject.repository;
+
+import com.shepherdmoney.interviewproject.model.BalanceHistory;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Crud repository to store balance histories
+ */
+@Repository("BalanceHistoryRepo")
+public interface BalanceHistoryRepository extends JpaRepository<BalanceHistory, Integer> {
+
+    /**
+     * Load the history entries of the given cards on the given dates
+     */
+    @Query("select h from BalanceHistory h where h.creditCard.id in :cardIds and h.date in :dates")
+    List<BalanceHistory> findByCardIdInAndDateIn(@Param("cardIds") Collection<Integer> cardIds,
+                                                 @Param("dates") Collection<Instant> dates);
+
+    /**
+     * Sum of the amounts of a card before the given date, that is the card's balance on that date
+     */
+    @Query("select coalesce(sum(h.amount), 0) from BalanceHistory h where h.creditCard.id = :cardId and h.date < :date")
+    double sumAmountsBefore(@Param("cardId") int cardId, @Param("date") Instant date);
+
+    /**
+     * Sum of the amounts of each of the given cards before the given date, that is their balances on that date.
+     * Cards without earlier entries are left out.
+     */
+    @Query("select new com.shepherdmoney.interviewproject.repository.CardAmount(h.creditCard.id, sum(h.amount)) "
+            + "from BalanceHistory h where h.creditCard.id in :cardIds and h.date < :date group by h.creditCard.id")
+    List<CardAmount> sumAmountsBeforeByCard(@Param("cardIds") Collection<Integer> cardIds,
+                                            @Param("date") Instant date);
+
+    /**
+     * Sum of the amounts of a card in [from, to)
+     */
+    @Query("select coalesce(sum(h.amount), 0) from BalanceHistory h where h.creditCard.id = :cardId "
+            + "and h.date >= :from and h.date < :to")
+    double sumAmountsBetween(@Param("cardId") int cardId, @Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Sum of the amounts of each of the given cards in [from, to). Cards without entries in the range are left out.
+     */
+    @Query("select new com.shepherdmoney.interviewproject.repository.CardAmount(h.creditCard.id, sum(h.amount)) "
+            + "from BalanceHistory h where h.creditCard.id in :cardIds and h.date >= :from and h.date < :to "
+            + "group by h.creditCard.id")
+    List<CardAmount> sumAmountsBetweenByCard(@Param("cardIds") Collection<Integer> cardIds,
+                                             @Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Net amount of each day in [from, to) over every card of a user, oldest first
+     */
+    @Query("select new com.shepherdmoney.interviewproject.repository.DailyAmount(h.date, sum(h.amount)) "
+            + "from BalanceHistory h where h.creditCard.user.id = :userId and h.date >= :from and h.date < :to "
+            + "group by h.date order by h.date")
+    List<DailyAmount> sumDailyAmountsByUser(@Param("userId") int userId, @Param("from") Instant from,
+                                            @Param("to") Instant to);
+
+    /**
+     * Net amount of each day in [from, to) over the given cards, oldest first
+     */
+    @Query("select new com.shepherdmoney.interviewproject.repository.DailyAmount(h.date, sum(h.amount)) "
+            + "from BalanceHistory h where h.creditCard.id in :cardIds and h.date >= :from and h.date < :to "
+            + "group by h.date order by h.date")
+    List<DailyAmount> sumDailyAmountsByCards(@Param("cardIds") Collection<Integer> cardIds,
+                                             @Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Entries of a card in [from, to), oldest first, limited by the given page
+     */
+    @Query("select new com.shepherdmoney.interviewproject.repository.DailyAmount(h.date, h.amount) "
+            + "from BalanceHistory h where h.creditCard.id = :cardId and h.date >= :from and h.date < :to "
+            + "order by h.date")
+    List<DailyAmount> findDailyAmounts(@Param("cardId") int cardId, @Param("from") Instant from,
+                                       @Param("to") Instant to, Pageable pageable);
+
+    /**
+     * Entries of a card in [from, to), oldest first, read from a database cursor. Must be consumed and closed
+     * inside a transaction.
+     */
+    @Query("select new com.shepherdmoney.interviewproject.repository.DailyAmount(h.date, h.amount) "
+            + "from BalanceHistory h where h.creditCard.id = :cardId and h.date >= :from and h.date < :to "
+            + "order by h.date")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<DailyAmount> streamDailyAmounts(@Param("cardId") int cardId, @Param("from") Instant from,
+                                           @Param("to") Instant to);
+
+    /**
+     * Id and number of the cards with entries in [from, cutoff) in months that are not compacted yet, lowest id first
+     */
+    @Query("select distinct c.id as id, c.number as number from BalanceHistory h join h.creditCard c "
+            + "where h.date >= :from and h.date < :cutoff and not exists (select s.id from BalanceSnapshot s "
+            + "where s.creditCard = c and s.month <= h.date and s.nextMonth > h.date) order by c.id")
+    List<CreditCardKey> findCardsWithUncompactedEntriesBetween(@Param("from") Instant from,
+                                                               @Param("cutoff") Instant cutoff, Pageable pageable);
+
+    /**
+     * Delete the entries of the given cards in [from, cutoff) in months that are not compacted yet
+     */
+    @Modifying
+    @Query("delete from BalanceHistory h where h.creditCard.id in :cardIds and h.date >= :from and h.date < :cutoff "
+            + "and not exists (select s.id from BalanceSnapshot s "
+            + "where s.creditCard = h.creditCard and s.month <= h.date and s.nextMonth > h.date)")
+    int deleteUncompactedEntriesBetween(@Param("cardIds") Collection<Integer> cardIds, @Param("from") Instant from,
+                                        @Param("cutoff") Instant cutoff);
+
+    /**
+     * Delete the history of every card of a user in one statement, without loading it
+     */
+    @Modifying
+    @Query("delete from BalanceHistory h where h.creditCard.id in "
+            + "(select c.id from CreditCard c where c.user.id = :userId)")
+    int deleteByUserId(@Param("userId") int userId);
+}
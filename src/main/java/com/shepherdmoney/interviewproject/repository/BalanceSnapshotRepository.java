@@ -0,0 +1,58 @@
+package com.shepherdmoney.interviewproject.repository;
+
+import com.shepherdmoney.interviewproject.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Crud repository to store the monthly balance snapshots of compacted history
+ */
+@Repository("BalanceSnapshotRepo")
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Integer> {
+
+    /**
+     * Snapshots of the given cards for the months ending after the given instant
+     */
+    @Query("select s from BalanceSnapshot s where s.creditCard.id in :cardIds and s.nextMonth > :after")
+    List<BalanceSnapshot> findByCardIdInEndingAfter(@Param("cardIds") Collection<Integer> cardIds,
+                                                    @Param("after") Instant after);
+
+    /**
+     * Snapshots of a card for the months overlapping [from, to), oldest first
+     */
+    @Query("select s from BalanceSnapshot s where s.creditCard.id = :cardId and s.nextMonth > :from and s.month < :to "
+            + "order by s.month")
+    List<BalanceSnapshot> findOverlapping(@Param("cardId") int cardId, @Param("from") Instant from,
+                                          @Param("to") Instant to);
+
+    /**
+     * Snapshot of the latest compacted month of a card starting on or before the given instant, a seek on the
+     * {@code (card_id, month)} index
+     */
+    Optional<BalanceSnapshot> findFirstByCreditCardIdAndMonthLessThanEqualOrderByMonthDesc(int cardId, Instant date);
+
+    /**
+     * Snapshot of the latest compacted month starting on or before the given instant of each of the given cards.
+     * Cards without such a month are left out.
+     */
+    @Query("select s from BalanceSnapshot s where s.creditCard.id in :cardIds and s.month = "
+            + "(select max(t.month) from BalanceSnapshot t where t.creditCard = s.creditCard and t.month <= :date)")
+    List<BalanceSnapshot> findLatestByCardIdInStartingBy(@Param("cardIds") Collection<Integer> cardIds,
+                                                        @Param("date") Instant date);
+
+    /**
+     * Delete the snapshots of every card of a user in one statement, without loading them
+     */
+    @Modifying
+    @Query("delete from BalanceSnapshot s where s.creditCard.id in "
+            + "(select c.id from CreditCard c where c.user.id = :userId)")
+    int deleteByUserId(@Param("userId") int userId);
+}
@@ -0,0 +1,7 @@
+package com.shepherdmoney.interviewproject.repository;
+
+/**
+ * An amount summed per card
+ */
+public record CardAmount(int cardId, double amount) {
+}
@@ -0,0 +1,10 @@
+package com.shepherdmoney.interviewproject.repository;
+
+/**
+ * Projection of a credit card onto its id and number, used when the card itself does not need to be loaded
+ */
+public interface CreditCardKey {
+    Integer getId();
+
+    String getNumber();
+}
@@ -1,15 +1,76 @@
 package com.shepherdmoney.interviewproject.repository;
 
 import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.vo.response.CreditCardView;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
- * Crud repository to store credit cards
+ * Crud repository to store credit cards. The lookups marked cacheable are served from the query cache when the
+ * second-level cache is enabled (prod profile).
  */
 @Repository("CreditCardRepo")
 public interface CreditCardRepository extends JpaRepository<CreditCard, Integer> {
     List<CreditCard> findByNumber(String number);
+
+    boolean existsByNumber(String number);
+
+    /**
+     * Id of the card with the given number, unless its user is soft deleted
+     */
+    @Query("select c.id from CreditCard c where c.number = :number and c.user.deleted = false")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    Optional<Integer> findIdByNumber(@Param("number") String number);
+
+    /**
+     * Id of the user owning the card with the given number, read from the card row only
+     */
+    @Query("select c.user.id from CreditCard c where c.number = :number and c.user.deleted = false")
+    Optional<Integer> findUserIdByNumber(@Param("number") String number);
+
+    /**
+     * Views of the cards of a user, in one statement and without loading the user or the cards. Empty for a soft
+     * deleted user.
+     */
+    @Query("select new com.shepherdmoney.interviewproject.vo.response.CreditCardView(c.issuanceBank, c.number) "
+            + "from CreditCard c where c.user.id = :userId and c.user.deleted = false order by c.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<CreditCardView> findViewsByUserId(@Param("userId") int userId, Pageable pageable);
+
+    @Query("select c.number from CreditCard c where c.user.id = :userId")
+    List<String> findNumbersByUserId(@Param("userId") int userId);
+
+    @Query("select c.id from CreditCard c where c.user.id = :userId order by c.id")
+    List<Integer> findIdsByUserId(@Param("userId") int userId);
+
+    /**
+     * Id and number of every card with one of the given numbers whose user is not soft deleted, in a single query and
+     * without loading the cards
+     */
+    @Query("select c.id as id, c.number as number from CreditCard c "
+            + "where c.number in :numbers and c.user.deleted = false")
+    List<CreditCardKey> findKeysByNumberIn(@Param("numbers") Collection<String> numbers);
+
+    /**
+     * The given numbers that are taken, by soft deleted users' cards too
+     */
+    @Query("select c.number from CreditCard c where c.number in :numbers")
+    List<String> findTakenNumbersIn(@Param("numbers") Collection<String> numbers);
+
+    /**
+     * Delete the cards of a user in one statement, without loading them. Their history must be deleted first.
+     */
+    @Modifying
+    @Query("delete from CreditCard c where c.user.id = :userId")
+    int deleteByUserId(@Param("userId") int userId);
 }
@@ -0,0 +1,9 @@
+package com.shepherdmoney.interviewproject.repository;
+
+import java.time.Instant;
+
+/**
+ * Projection of a balance history entry onto its date and amount, read without managing an entity
+ */
+public record DailyAmount(Instant date, double amount) {
+}
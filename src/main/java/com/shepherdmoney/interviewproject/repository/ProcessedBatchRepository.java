@@ -0,0 +1,24 @@
+package com.shepherdmoney.interviewproject.repository;
+
+import com.shepherdmoney.interviewproject.model.ProcessedBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+/**
+ * Crud repository to store the idempotency keys of applied transaction batches
+ */
+@Repository("ProcessedBatchRepo")
+public interface ProcessedBatchRepository extends JpaRepository<ProcessedBatch, String> {
+
+    /**
+     * Forget the keys of batches applied before the given instant, returning the number of keys removed
+     */
+    @Modifying
+    @Query("delete from ProcessedBatch p where p.appliedAt < :before")
+    int deleteAppliedBefore(@Param("before") Instant before);
+}
@@ -2,12 +2,47 @@ package com.shepherdmoney.interviewproject.repository;
 
 import com.shepherdmoney.interviewproject.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Crud Repository to store User classes
  */
 @Repository("UserRepo")
 public interface UserRepository extends JpaRepository<User, Integer> {
+
+    /**
+     * The user with the given id, unless it is soft deleted
+     */
+    Optional<User> findByIdAndDeletedFalse(int id);
+
+    boolean existsByIdAndDeletedFalse(int id);
+
+    boolean existsByIdAndDeletedTrue(int id);
+
+    /**
+     * Soft delete a user, returning the number of users marked
+     */
+    @Modifying
+    @Query("update User u set u.deleted = true where u.id = :userId and u.deleted = false")
+    int markDeleted(@Param("userId") int userId);
+
+    /**
+     * Delete a user in one statement, without loading it. Its cards must be deleted first.
+     */
+    @Modifying
+    @Query("delete from User u where u.id = :userId")
+    int deleteInBulkById(@Param("userId") int userId);
+
+    /**
+     * Ids of the soft deleted users, lowest first
+     */
+    @Query("select u.id from User u where u.deleted = true order by u.id")
+    List<Integer> findDeletedIds();
 }
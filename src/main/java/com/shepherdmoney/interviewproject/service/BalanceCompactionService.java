@@ -0,0 +1,235 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.model.BalanceHistory;
+import com.shepherdmoney.interviewproject.model.BalanceSnapshot;
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.BalanceSnapshotRepository;
+import com.shepherdmoney.interviewproject.repository.CardAmount;
+import com.shepherdmoney.interviewproject.repository.CreditCardKey;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.DailyAmount;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Rolls the daily balance history older than a horizon up into monthly snapshots.
+ * <p>
+ * Every month before the cutoff, the first day of the month {@code balance-history.compaction.horizon} ago, is
+ * compacted: its daily entries are replaced by a single entry on the month's last day holding their net amount, and a
+ * {@link BalanceSnapshot} keeps the month's opening, closing, lowest and highest balance. Balance sums over the history
+ * are unchanged, so every read treats the compacted months and the recent daily entries as one timeline, with the
+ * balance within a compacted month reading as its opening balance. A card thus keeps at most one entry per month
+ * beyond the horizon.
+ * <p>
+ * Cards are compacted a chunk at a time, each chunk in a transaction of its own holding the cards' locks, so
+ * concurrent balance updates wait for at most one chunk.
+ */
+@Slf4j
+@Service
+// created on startup under lazy initialization too, the schedule is only registered for created beans
+@Lazy(false)
+public class BalanceCompactionService {
+    private static final Instant EARLIEST =
+            BalanceHistoryService.EARLIEST_DATE.atStartOfDay(ZoneOffset.UTC).toInstant();
+
+    private final BalanceUpdateService balanceUpdateService;
+    private final CreditCardRepository creditCardRepository;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final Period horizon;
+    private final int cardsPerChunk;
+    private final Counter removedEntries;
+
+    public BalanceCompactionService(BalanceUpdateService balanceUpdateService,
+                                    CreditCardRepository creditCardRepository,
+                                    BalanceHistoryRepository balanceHistoryRepository,
+                                    BalanceSnapshotRepository balanceSnapshotRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${balance-history.compaction.horizon:P365D}") Period horizon,
+                                    @Value("${balance-history.compaction.cards-per-chunk:100}") int cardsPerChunk) {
+        this.balanceUpdateService = balanceUpdateService;
+        this.creditCardRepository = creditCardRepository;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.horizon = horizon;
+        this.cardsPerChunk = cardsPerChunk;
+        this.removedEntries = Counter.builder("balance.history.compaction.removed.entries")
+                .description("Daily balance history entries removed by rolling them up into months")
+                .register(meterRegistry);
+    }
+
+    /**
+     * First day of the first month that is not compacted
+     */
+    static LocalDate cutoff(Period horizon, LocalDate today) {
+        return today.minus(horizon).withDayOfMonth(1);
+    }
+
+    @Scheduled(fixedDelayString = "${balance-history.compaction.interval:PT1H}",
+            initialDelayString = "${balance-history.compaction.interval:PT1H}")
+    public void compactInBackground() {
+        compact();
+    }
+
+    /**
+     * Compact every month before the cutoff that still has daily entries
+     *
+     * @return the number of history entries removed, net of the monthly entries written
+     */
+    public long compact() {
+        Instant cutoff = cutoff(horizon, LocalDate.now(ZoneOffset.UTC)).atStartOfDay(ZoneOffset.UTC).toInstant();
+        long removed = 0;
+        int cards = 0;
+        List<CreditCardKey> chunk;
+        // a compacted card no longer matches, so the first page is always the next chunk
+        while (!(chunk = balanceHistoryRepository.findCardsWithUncompactedEntriesBetween(EARLIEST, cutoff,
+                PageRequest.of(0, cardsPerChunk))).isEmpty()) {
+            List<Integer> cardIds = new ArrayList<>(chunk.size());
+            List<String> cardNumbers = new ArrayList<>(chunk.size());
+            for (CreditCardKey key : chunk) {
+                cardIds.add(key.getId());
+                cardNumbers.add(key.getNumber());
+            }
+            Integer chunkRemoved = balanceUpdateService.inCardTransaction(cardNumbers,
+                    status -> compactLocked(cardIds, cutoff));
+            removed += chunkRemoved == null ? 0 : chunkRemoved;
+            cards += chunk.size();
+        }
+        if (cards > 0) {
+            removedEntries.increment(removed);
+            log.info("Compacted the history before {} of {} cards, {} fewer entries", cutoff, cards, removed);
+        }
+        return removed;
+    }
+
+    private int compactLocked(List<Integer> cardIds, Instant cutoff) {
+        Map<Integer, Set<Instant>> compactedMonthsByCard = new HashMap<>();
+        for (BalanceSnapshot snapshot : balanceSnapshotRepository.findByCardIdInEndingAfter(cardIds, EARLIEST)) {
+            compactedMonthsByCard.computeIfAbsent(snapshot.getCreditCard().getId(), cardId -> new HashSet<>())
+                    .add(snapshot.getMonth());
+        }
+        // entries before the earliest date are left in place, but still count towards the snapshots' balances
+        Map<Integer, Long> balancesBefore = new HashMap<>();
+        for (CardAmount sum : balanceHistoryRepository.sumAmountsBeforeByCard(cardIds, EARLIEST)) {
+            balancesBefore.put(sum.cardId(), Cents.fromAmount(sum.amount()));
+        }
+        List<MonthRollup> rollups = new ArrayList<>();
+        for (int cardId : cardIds) {
+            try (Stream<DailyAmount> rows = balanceHistoryRepository.streamDailyAmounts(cardId, EARLIEST, cutoff)) {
+                rollUp(cardId, balancesBefore.getOrDefault(cardId, 0L), rows.iterator(),
+                        compactedMonthsByCard.getOrDefault(cardId, Set.of()), rollups);
+            }
+        }
+        // the same rows the rollups were built from, anything older is left alone rather than lost
+        int removed = balanceHistoryRepository.deleteUncompactedEntriesBetween(cardIds, EARLIEST, cutoff);
+
+        List<BalanceHistory> monthEntries = new ArrayList<>(rollups.size());
+        List<BalanceSnapshot> snapshots = new ArrayList<>(rollups.size());
+        for (MonthRollup rollup : rollups) {
+            BalanceHistory entry = new BalanceHistory();
+            entry.setCreditCard(creditCardRepository.getReferenceById(rollup.cardId));
+            entry.setDate(startOf(rollup.month.plusMonths(1).minusDays(1)));
+            entry.setAmount(Cents.toAmount(rollup.closing - rollup.opening));
+            monthEntries.add(entry);
+
+            BalanceSnapshot snapshot = new BalanceSnapshot();
+            snapshot.setCreditCard(entry.getCreditCard());
+            snapshot.setMonth(startOf(rollup.month));
+            snapshot.setNextMonth(startOf(rollup.month.plusMonths(1)));
+            snapshot.setOpeningBalance(Cents.toAmount(rollup.opening));
+            snapshot.setClosingBalance(Cents.toAmount(rollup.closing));
+            snapshot.setMinBalance(Cents.toAmount(rollup.min));
+            snapshot.setMaxBalance(Cents.toAmount(rollup.max));
+            snapshots.add(snapshot);
+        }
+        balanceHistoryRepository.saveAll(monthEntries);
+        balanceSnapshotRepository.saveAll(snapshots);
+        return removed - monthEntries.size();
+    }
+
+    /**
+     * Walk the entries of a card oldest first, carrying the balance from the given balance before them, and add a
+     * rollup for every month with entries that is not compacted yet
+     */
+    private static void rollUp(int cardId, long balance, Iterator<DailyAmount> rows, Set<Instant> compactedMonths,
+                               List<MonthRollup> rollups) {
+        LocalDate currentMonth = null;
+        long currentMonthLastDay = 0;
+        // rollup of the current month, null if it is compacted already
+        MonthRollup current = null;
+        long previousDay = Long.MIN_VALUE;
+        while (rows.hasNext()) {
+            DailyAmount row = rows.next();
+            long day = Cents.epochDay(row.date().getEpochSecond());
+            // the balance after the entries of a day holds from the next day on, if that is still in the month
+            if (current != null && day != previousDay && previousDay < currentMonthLastDay) {
+                current.observe(balance);
+            }
+            LocalDate month = LocalDate.ofEpochDay(day).withDayOfMonth(1);
+            if (!month.equals(currentMonth)) {
+                if (current != null) {
+                    current.closing = balance;
+                    rollups.add(current);
+                }
+                currentMonth = month;
+                currentMonthLastDay = month.plusMonths(1).minusDays(1).toEpochDay();
+                current = compactedMonths.contains(startOf(month)) ? null : new MonthRollup(cardId, month, balance);
+            }
+            balance += Cents.fromAmount(row.amount());
+            previousDay = day;
+        }
+        if (current != null) {
+            if (previousDay < currentMonthLastDay) {
+                current.observe(balance);
+            }
+            current.closing = balance;
+            rollups.add(current);
+        }
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private static final class MonthRollup {
+        private final int cardId;
+        private final LocalDate month;
+        private final long opening;
+        private long closing;
+        private long min;
+        private long max;
+
+        private MonthRollup(int cardId, LocalDate month, long opening) {
+            this.cardId = cardId;
+            this.month = month;
+            this.opening = opening;
+            this.min = opening;
+            this.max = opening;
+        }
+
+        private void observe(long balance) {
+            min = Math.min(min, balance);
+            max = Math.max(max, balance);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.DailyAmount;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import com.shepherdmoney.interviewproject.vo.response.BalanceHistoryPage;
+import com.shepherdmoney.interviewproject.vo.response.BalanceHistoryView;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads the balance history of a card for a date range, page by page or as a stream.
+ * <p>
+ * Entries are returned oldest first. The balance of the first entry is read by the {@link OpeningBalanceService}, and
+ * the following balances are carried forward from it, so neither form ever loads more than one page of the history.
+ * <p>
+ * Only days with transactions are stored. The dense series with an entry for every day is expanded from them while
+ * it is read, see {@link #streamDailySeries}. A month compacted by {@link BalanceCompactionService} reads as a single
+ * entry on its last day.
+ */
+@Service
+public class BalanceHistoryService {
+    public static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1);
+    public static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 30);
+    private static final long EARLIEST_EPOCH_SECOND = EARLIEST_DATE.atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+    private static final long END_EPOCH_SECOND = LATEST_DATE.plusDays(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+
+    private final CardStore cardStore;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final OpeningBalanceService openingBalanceService;
+
+    public BalanceHistoryService(CardStore cardStore,
+                                 BalanceHistoryRepository balanceHistoryRepository,
+                                 OpeningBalanceService openingBalanceService) {
+        this.cardStore = cardStore;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.openingBalanceService = openingBalanceService;
+    }
+
+    /**
+     * Whether a transaction made at the given epoch second falls on a day between EARLIEST_DATE and LATEST_DATE, the
+     * days the history can be read for
+     */
+    public static boolean isValidTransactionTime(long epochSecond) {
+        return epochSecond >= EARLIEST_EPOCH_SECOND && epochSecond < END_EPOCH_SECOND;
+    }
+
+    public Optional<Integer> findCardId(String cardNumber) {
+        return cardStore.findCardId(cardNumber);
+    }
+
+    /**
+     * One page of a card's history in [from, to], starting after the {@code after} cursor when given
+     */
+    @Transactional(readOnly = true)
+    public BalanceHistoryPage getPage(int cardId, LocalDate from, LocalDate to, LocalDate after, int limit) {
+        LocalDate start = after != null && !after.isBefore(from) ? after.plusDays(1) : from;
+        double balance = Cents.toAmount(openingBalanceService.openingBalance(cardId, start));
+        List<DailyAmount> rows = balanceHistoryRepository.findDailyAmounts(cardId, startOf(start),
+                startOf(to.plusDays(1)), PageRequest.of(0, limit));
+
+        List<BalanceHistoryView> items = new ArrayList<>(rows.size());
+        for (DailyAmount row : rows) {
+            items.add(toView(row, balance));
+            balance += row.amount();
+        }
+        LocalDate nextCursor = rows.size() == limit ? items.get(items.size() - 1).getDate() : null;
+        return BalanceHistoryPage.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Pass every entry of a card's history in [from, to] to the consumer, reading them from a database cursor
+     */
+    @Transactional(readOnly = true)
+    public void streamHistory(int cardId, LocalDate from, LocalDate to, Consumer<BalanceHistoryView> consumer) {
+        double balance = Cents.toAmount(openingBalanceService.openingBalance(cardId, from));
+        try (Stream<DailyAmount> rows = balanceHistoryRepository.streamDailyAmounts(cardId, startOf(from),
+                startOf(to.plusDays(1)))) {
+            Iterator<DailyAmount> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                DailyAmount row = iterator.next();
+                consumer.accept(toView(row, balance));
+                balance += row.amount();
+            }
+        }
+    }
+
+    /**
+     * Pass one entry for every day in [from, to] to the consumer, expanded from the stored entries as they are read
+     * from a database cursor. Days without transactions have an amount of 0.
+     */
+    @Transactional(readOnly = true)
+    public void streamDailySeries(int cardId, LocalDate from, LocalDate to, Consumer<BalanceHistoryView> consumer) {
+        long balance = openingBalanceService.openingBalance(cardId, from);
+        try (Stream<DailyAmount> rows = balanceHistoryRepository.streamDailyAmounts(cardId, startOf(from),
+                startOf(to.plusDays(1)))) {
+            new DailySeriesIterator(rows.iterator(), from, to, balance).forEachRemaining(consumer);
+        }
+    }
+
+    private static BalanceHistoryView toView(DailyAmount row, double balance) {
+        return BalanceHistoryView.builder()
+                .date(LocalDate.ofInstant(row.date(), ZoneOffset.UTC))
+                .amount(row.amount())
+                .balance(balance)
+                .build();
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -0,0 +1,138 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.model.BalanceSnapshot;
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.BalanceSnapshotRepository;
+import com.shepherdmoney.interviewproject.repository.DailyAmount;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import com.shepherdmoney.interviewproject.vo.response.BalanceSummaryView;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Answers balance questions from the per-day amounts stored in the balance history.
+ * <p>
+ * The balance on a day is the sum of the amounts of every earlier day. It is read by the {@link OpeningBalanceService}
+ * from the card's latest compacted month and the entries after it, for one card or a whole batch of cards in a fixed
+ * number of statements. A window summary reads the balance before the window once and then walks only the days of the
+ * window that have an entry, since the balance does not change on the days in between. No history entity is ever
+ * loaded.
+ * <p>
+ * Compacted months (see {@link BalanceCompactionService}) keep their net amount in one entry, so balances are exact
+ * on their boundaries. A summary overlapping a compacted month also takes the month's lowest and highest balance from
+ * its snapshot.
+ */
+@Service
+public class BalanceQueryService {
+
+    private final CardStore cardStore;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final OpeningBalanceService openingBalanceService;
+
+    public BalanceQueryService(CardStore cardStore,
+                               BalanceHistoryRepository balanceHistoryRepository,
+                               BalanceSnapshotRepository balanceSnapshotRepository,
+                               OpeningBalanceService openingBalanceService) {
+        this.cardStore = cardStore;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.openingBalanceService = openingBalanceService;
+    }
+
+    /**
+     * Balance of a card on the given day, or empty if no card has the given number
+     */
+    @Transactional(readOnly = true)
+    public Optional<Double> getBalanceOn(String cardNumber, LocalDate day) {
+        return cardStore.findCardId(cardNumber)
+                .map(cardId -> Cents.toAmount(openingBalanceService.openingBalance(cardId, day)));
+    }
+
+    /**
+     * Balances of several cards on the given day, in a fixed number of statements whatever the number of cards
+     *
+     * @return the balance by card number, in the order of the given numbers, or empty if a number has no card
+     */
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Double>> getBalancesOn(Collection<String> cardNumbers, LocalDate day) {
+        Map<Integer, String> numbersById = new HashMap<>();
+        cardStore.findCardIds(cardNumbers).forEach((cardNumber, cardId) -> numbersById.put(cardId, cardNumber));
+        Map<String, Double> balances = new LinkedHashMap<>();
+        for (String cardNumber : cardNumbers) {
+            balances.put(cardNumber, null);
+        }
+        if (numbersById.size() != balances.size()) {
+            return Optional.empty();
+        }
+        openingBalanceService.openingBalances(numbersById.keySet(), day).forEach((cardId, balance) ->
+                balances.put(numbersById.get(cardId), Cents.toAmount(balance)));
+        return Optional.of(balances);
+    }
+
+    /**
+     * Minimum, maximum and average daily balance of a card over the days [from, to]
+     */
+    @Transactional(readOnly = true)
+    public BalanceSummaryView summarize(int cardId, LocalDate from, LocalDate to) {
+        long balance = openingBalanceService.openingBalance(cardId, from);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        // sum of the daily balances in cents, as a double since a long could overflow over long windows
+        double total = 0;
+        long day = from.toEpochDay();
+        try (Stream<DailyAmount> rows = balanceHistoryRepository.streamDailyAmounts(cardId, startOf(from),
+                startOf(to.plusDays(1)))) {
+            Iterator<DailyAmount> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                DailyAmount row = iterator.next();
+                // the balance holds from the current day up to and including the day of the entry
+                long entryDay = Cents.epochDay(row.date().getEpochSecond());
+                if (entryDay >= day) {
+                    min = Math.min(min, balance);
+                    max = Math.max(max, balance);
+                    total += (double) balance * (entryDay - day + 1);
+                    day = entryDay + 1;
+                }
+                balance += Cents.fromAmount(row.amount());
+            }
+        }
+        long lastDay = to.toEpochDay();
+        if (day <= lastDay) {
+            min = Math.min(min, balance);
+            max = Math.max(max, balance);
+            total += (double) balance * (lastDay - day + 1);
+        }
+        // within a compacted month the daily balances are only known through the month's envelope
+        for (BalanceSnapshot snapshot : balanceSnapshotRepository.findOverlapping(cardId, startOf(from),
+                startOf(to.plusDays(1)))) {
+            min = Math.min(min, Cents.fromAmount(snapshot.getMinBalance()));
+            max = Math.max(max, Cents.fromAmount(snapshot.getMaxBalance()));
+        }
+        long days = lastDay - from.toEpochDay() + 1;
+        return BalanceSummaryView.builder()
+                .from(from)
+                .to(to)
+                .days(days)
+                .minBalance(Cents.toAmount(min))
+                .maxBalance(Cents.toAmount(max))
+                .averageBalance(Math.round(total / days) / 100.0)
+                .build();
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
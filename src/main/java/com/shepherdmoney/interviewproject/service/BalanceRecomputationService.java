@@ -0,0 +1,268 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.model.BalanceHistory;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Recomputes the balance history of many cards at once from a corrected set of transactions, for when a bank restates
+ * the transactions of some days.
+ * <p>
+ * The corrected set replaces every transaction of the cards and days it covers: the entry of each such card and day is
+ * set to the net amount of its corrected transactions, or removed when that is 0. Other days are left alone, and the
+ * balances of the later days follow since they are sums of the entries.
+ * <p>
+ * The affected cards are sorted by id and split in halves on the recomputation fork-join pool until at most
+ * {@code recomputation.cards-per-chunk} are left. Each chunk is written in a database transaction of its own holding
+ * the locks of its cards, so concurrent balance updates of those cards wait for at most one chunk, and a failed chunk
+ * only fails its own cards. Days in compacted months no longer have entries of their own and cannot be restated.
+ */
+@Slf4j
+@Service
+public class BalanceRecomputationService {
+
+    private final BalanceUpdateService balanceUpdateService;
+    private final CardStore cardStore;
+    private final CreditCardRepository creditCardRepository;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ForkJoinPool recomputationPool;
+    private final Counter recomputedCards;
+    private final int cardsPerChunk;
+    private final Period compactionHorizon;
+    private final Map<String, RecomputationJob> jobs;
+
+    public BalanceRecomputationService(BalanceUpdateService balanceUpdateService, CardStore cardStore,
+                                       CreditCardRepository creditCardRepository,
+                                       BalanceHistoryRepository balanceHistoryRepository,
+                                       ApplicationEventPublisher eventPublisher,
+                                       @Qualifier("recomputationPool") ForkJoinPool recomputationPool,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${recomputation.cards-per-chunk:500}") int cardsPerChunk,
+                                       @Value("${recomputation.retained-jobs:100}") int retainedJobs,
+                                       @Value("${balance-history.compaction.horizon:P365D}") Period compactionHorizon) {
+        if (cardsPerChunk <= 0) {
+            throw new IllegalArgumentException("recomputation.cards-per-chunk must be positive: " + cardsPerChunk);
+        }
+        this.balanceUpdateService = balanceUpdateService;
+        this.cardStore = cardStore;
+        this.creditCardRepository = creditCardRepository;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.recomputationPool = recomputationPool;
+        this.cardsPerChunk = cardsPerChunk;
+        this.compactionHorizon = compactionHorizon;
+        this.recomputedCards = Counter.builder("balance.recomputation.cards")
+                .description("Cards whose balance history was recomputed, its rate is the cards processed per second")
+                .baseUnit("cards")
+                .register(meterRegistry);
+        // the oldest jobs are forgotten once more than retainedJobs have been submitted
+        this.jobs = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RecomputationJob> eldest) {
+                return size() > retainedJobs;
+            }
+        };
+    }
+
+    /**
+     * Start recomputing the history of the cards of the corrected transactions in the background.
+     *
+     * @return the job tracking the recomputation, or empty if a card number does not belong to a card or a
+     * transaction is dated in a month that may be compacted
+     */
+    public Optional<RecomputationJob> submit(TransactionBatch corrections) {
+        int earliestDay = Integer.MAX_VALUE;
+        for (int i = 0; i < corrections.size(); i++) {
+            earliestDay = Math.min(earliestDay, corrections.day(i));
+        }
+        if (earliestDay < compactionCutoff()) {
+            return Optional.empty();
+        }
+        List<String> cardNumbers = corrections.cardNumbers();
+        Map<String, Integer> cardIdsByNumber = cardStore.findCardIds(cardNumbers);
+        if (cardIdsByNumber.size() != cardNumbers.size()) {
+            return Optional.empty();
+        }
+
+        List<CardCorrection> cards = toCardCorrections(corrections, cardIdsByNumber);
+        RecomputationJob job = new RecomputationJob(UUID.randomUUID().toString(), cards.size());
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        recomputationPool.execute(() -> {
+            job.started();
+            new ChunkTask(job, cards, 0, cards.size()).invoke();
+            log.info("Recomputed the history of {} cards, {} failed, {} cards/s", job.getProcessedCards(),
+                    job.getFailedCards(), Math.round(job.getCardsPerSecond()));
+        });
+        return Optional.of(job);
+    }
+
+    public Optional<RecomputationJob> findJob(String jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId));
+        }
+    }
+
+    /**
+     * The corrected net amount of each day of each card, in card id order
+     */
+    private static List<CardCorrection> toCardCorrections(TransactionBatch corrections,
+                                                          Map<String, Integer> cardIdsByNumber) {
+        List<String> cardNumbers = corrections.cardNumbers();
+        List<SortedMap<Integer, Long>> amountsByCardIndex = new ArrayList<>(cardNumbers.size());
+        for (int i = 0; i < cardNumbers.size(); i++) {
+            amountsByCardIndex.add(new TreeMap<>());
+        }
+        for (int i = 0; i < corrections.size(); i++) {
+            amountsByCardIndex.get(corrections.cardIndex(i))
+                    .merge(corrections.day(i), corrections.amount(i), Long::sum);
+        }
+        List<CardCorrection> cards = new ArrayList<>(cardNumbers.size());
+        for (int i = 0; i < cardNumbers.size(); i++) {
+            cards.add(new CardCorrection(cardNumbers.get(i), cardIdsByNumber.get(cardNumbers.get(i)),
+                    amountsByCardIndex.get(i)));
+        }
+        cards.sort(Comparator.comparingInt(CardCorrection::cardId));
+        return cards;
+    }
+
+    private void recomputeChunk(RecomputationJob job, List<CardCorrection> chunk) {
+        List<String> cardNumbers = chunk.stream().map(CardCorrection::number).toList();
+        try {
+            balanceUpdateService.inCardTransaction(cardNumbers, status -> {
+                rewriteLocked(chunk, cardNumbers);
+                return null;
+            });
+            recomputedCards.increment(chunk.size());
+            job.chunkProcessed(chunk.size());
+        } catch (RuntimeException e) {
+            log.warn("Recomputing the history of {} cards failed", chunk.size(), e);
+            job.chunkFailed(chunk.size(), e.getMessage());
+        }
+    }
+
+    private void rewriteLocked(List<CardCorrection> chunk, List<String> cardNumbers) {
+        // compaction may have moved its cutoff past a restated day since the job was submitted
+        int cutoff = compactionCutoff();
+        Map<Integer, CardCorrection> cardsById = new HashMap<>();
+        Set<Instant> dates = new HashSet<>();
+        for (CardCorrection card : chunk) {
+            if (card.amountsByDay().firstKey() < cutoff) {
+                throw new IllegalStateException("Card " + card.number() + " has restated days in a compacted month");
+            }
+            cardsById.put(card.cardId(), card);
+            for (int day : card.amountsByDay().keySet()) {
+                dates.add(Instant.ofEpochSecond(Cents.startOfDayEpochSecond(day)));
+            }
+        }
+
+        // the entries of the restated days, a day of one card may be loaded because another card restates it
+        Map<HistoryKey, BalanceHistory> keptHistories = new HashMap<>();
+        List<BalanceHistory> removedHistories = new ArrayList<>();
+        for (BalanceHistory history : balanceHistoryRepository.findByCardIdInAndDateIn(cardsById.keySet(), dates)) {
+            int cardId = history.getCreditCard().getId();
+            int day = Cents.epochDay(history.getDate().getEpochSecond());
+            Long amount = cardsById.get(cardId).amountsByDay().get(day);
+            if (amount == null) {
+                continue;
+            }
+            // a day restated to nothing loses its entry, and a day keeps a single entry
+            if (amount == 0 || keptHistories.putIfAbsent(new HistoryKey(cardId, day), history) != null) {
+                removedHistories.add(history);
+            }
+        }
+
+        List<BalanceHistory> writtenHistories = new ArrayList<>();
+        for (CardCorrection card : chunk) {
+            CreditCard creditCard = null;
+            for (Map.Entry<Integer, Long> amount : card.amountsByDay().entrySet()) {
+                if (amount.getValue() == 0) {
+                    continue;
+                }
+                BalanceHistory history = keptHistories.get(new HistoryKey(card.cardId(), amount.getKey()));
+                if (history == null) {
+                    if (creditCard == null) {
+                        creditCard = creditCardRepository.getReferenceById(card.cardId());
+                    }
+                    history = new BalanceHistory();
+                    history.setCreditCard(creditCard);
+                    history.setDate(Instant.ofEpochSecond(Cents.startOfDayEpochSecond(amount.getKey())));
+                }
+                history.setAmount(Cents.toAmount(amount.getValue()));
+                writtenHistories.add(history);
+            }
+        }
+        balanceHistoryRepository.deleteAll(removedHistories);
+        balanceHistoryRepository.saveAll(writtenHistories);
+        eventPublisher.publishEvent(new BalanceUpdatedEvent(cardNumbers));
+    }
+
+    private int compactionCutoff() {
+        return (int) BalanceCompactionService.cutoff(compactionHorizon, LocalDate.now(ZoneOffset.UTC)).toEpochDay();
+    }
+
+    /**
+     * Recomputes the cards in [from, to) of the job, as one chunk or by forking two halves
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private final RecomputationJob job;
+        private final List<CardCorrection> cards;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(RecomputationJob job, List<CardCorrection> cards, int from, int to) {
+            this.job = job;
+            this.cards = cards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= cardsPerChunk) {
+                recomputeChunk(job, cards.subList(from, to));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(job, cards, from, middle), new ChunkTask(job, cards, middle, to));
+        }
+    }
+
+    private record CardCorrection(String number, int cardId, SortedMap<Integer, Long> amountsByDay) {
+    }
+
+    private record HistoryKey(int cardId, int day) {
+    }
+}
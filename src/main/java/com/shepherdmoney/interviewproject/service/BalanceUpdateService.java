@@ -0,0 +1,304 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.model.BalanceHistory;
+import com.shepherdmoney.interviewproject.model.BalanceSnapshot;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.ProcessedBatch;
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.BalanceSnapshotRepository;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.ProcessedBatchRepository;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies batches of transactions to the balance history of credit cards.
+ * <p>
+ * The history stores the net amount of each day, so a transaction only touches the entry of its own day, however far
+ * back it is dated. The ids of all cards of a batch are resolved by the {@link CardStore} and the entries of the
+ * touched days with one query. The transactions are added up per card and day, each touched day's sum is added to its
+ * entry, and only those entries are written back. Hibernate sends them in JDBC batches (see
+ * {@code hibernate.jdbc.batch_size}).
+ * <p>
+ * Applying a batch reads the persisted amounts of a day and writes back their sum with the new transactions, so two
+ * concurrent batches touching the same card would lose one of the updates. Each batch therefore holds the lock stripes
+ * of its cards for the whole database transaction, committing before it releases them. Batches on different cards
+ * still run in parallel. The locks live in this process, which is the only writer of the database.
+ * <p>
+ * A batch can carry an idempotency key. The key is stored in the same transaction as the batch's history, and a batch
+ * whose key is already stored is skipped, so retried and replayed batches are counted once.
+ * <p>
+ * A transaction dated in a month whose history has been compacted (see {@link BalanceCompactionService}) is added to
+ * the month's single entry, and the month's snapshot and those of the later compacted months are moved by its amount.
+ */
+@Service
+public class BalanceUpdateService {
+
+    private final CreditCardRepository creditCardRepository;
+    private final CardStore cardStore;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final ProcessedBatchRepository processedBatchRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CardLockStripes cardLocks;
+    private final DistributionSummary batchSizes;
+    private final DistributionSummary rowsWritten;
+    private final Counter duplicateBatches;
+    private final Period compactionHorizon;
+
+    public BalanceUpdateService(CreditCardRepository creditCardRepository, CardStore cardStore,
+                                BalanceHistoryRepository balanceHistoryRepository,
+                                ProcessedBatchRepository processedBatchRepository,
+                                BalanceSnapshotRepository balanceSnapshotRepository,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${balance-update.lock-stripes:1024}") int lockStripes,
+                                @Value("${balance-history.compaction.horizon:P365D}") Period compactionHorizon) {
+        this.creditCardRepository = creditCardRepository;
+        this.cardStore = cardStore;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.processedBatchRepository = processedBatchRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.compactionHorizon = compactionHorizon;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // a batch must commit before its card locks are released, so it never joins a caller's transaction
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cardLocks = new CardLockStripes(lockStripes);
+        this.batchSizes = DistributionSummary.builder("balance.update.batch.size")
+                .description("Transactions per applied batch")
+                .baseUnit("transactions")
+                .register(meterRegistry);
+        this.rowsWritten = DistributionSummary.builder("balance.update.rows.written")
+                .description("Balance history rows inserted or updated per applied batch")
+                .baseUnit("rows")
+                .register(meterRegistry);
+        this.duplicateBatches = Counter.builder("balance.update.duplicate.batches")
+                .description("Batches skipped because their idempotency key was already applied")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Apply the given transactions in one database transaction of their own.
+     *
+     * @return false if a transaction refers to a card number that does not exist, in which case nothing is written
+     */
+    public boolean applyTransactions(List<UpdateBalancePayload> transactions) {
+        return applyBatch(toBatch(transactions));
+    }
+
+    /**
+     * Convert transaction payloads to a columnar batch
+     */
+    public static TransactionBatch toBatch(List<UpdateBalancePayload> transactions) {
+        TransactionBatch batch = new TransactionBatch(transactions.size());
+        for (UpdateBalancePayload trans : transactions) {
+            batch.add(trans.getCreditCardNumber(), Cents.epochDay(trans.getTransactionTime().getEpochSecond()),
+                    Cents.fromAmount(trans.getTransactionAmount()));
+        }
+        return batch;
+    }
+
+    /**
+     * Apply a columnar batch of transactions in one database transaction of its own, holding the locks of its cards.
+     *
+     * @return false if a transaction refers to a card number that does not exist, in which case nothing is written
+     */
+    public boolean applyBatch(TransactionBatch batch) {
+        return applyBatch(batch, null);
+    }
+
+    /**
+     * Apply a columnar batch of transactions like {@link #applyBatch(TransactionBatch)}, unless a batch with the same
+     * idempotency key has been applied already.
+     *
+     * @param idempotencyKey key of the batch, or null to apply it unconditionally
+     * @return false if a transaction refers to a card number that does not exist, in which case nothing is written.
+     * True if the batch was applied, now or before.
+     */
+    public boolean applyBatch(TransactionBatch batch, String idempotencyKey) {
+        if (batch.size() == 0) {
+            return true;
+        }
+        return Boolean.TRUE.equals(inCardTransaction(batch.cardNumbers(),
+                status -> applyLocked(batch, idempotencyKey)));
+    }
+
+    /**
+     * Run the callback in a database transaction of its own while holding the locks of the given cards, so that no
+     * batch updates their history meanwhile
+     */
+    <T> T inCardTransaction(List<String> cardNumbers, TransactionCallback<T> callback) {
+        int[] locked = cardLocks.lock(cardNumbers);
+        try {
+            return transactionTemplate.execute(callback);
+        } finally {
+            cardLocks.unlock(locked);
+        }
+    }
+
+    private boolean applyLocked(TransactionBatch batch, String idempotencyKey) {
+        if (idempotencyKey != null && processedBatchRepository.existsById(idempotencyKey)) {
+            duplicateBatches.increment();
+            return true;
+        }
+        List<String> cardNumbers = batch.cardNumbers();
+        Map<String, Integer> cardIdsByNumber = cardStore.findCardIds(cardNumbers);
+        // no credit card found for at least one of the transactions
+        if (cardIdsByNumber.size() != cardNumbers.size()) {
+            return false;
+        }
+
+        // card index in the batch by card id
+        Map<Integer, Integer> cardIndexesById = new HashMap<>();
+        for (int i = 0; i < cardNumbers.size(); i++) {
+            cardIndexesById.put(cardIdsByNumber.get(cardNumbers.get(i)), i);
+        }
+        // transaction days, moved to the entry of their month where it is compacted
+        int[] days = new int[batch.size()];
+        int earliestDay = Integer.MAX_VALUE;
+        for (int i = 0; i < days.length; i++) {
+            days[i] = batch.day(i);
+            earliestDay = Math.min(earliestDay, days[i]);
+        }
+        // compaction holds the card locks too and takes its cutoff before locking, so a month it compacted is always
+        // before this cutoff
+        LocalDate cutoff = BalanceCompactionService.cutoff(compactionHorizon, LocalDate.now(ZoneOffset.UTC));
+        if (earliestDay < cutoff.toEpochDay()) {
+            moveCompactedMonths(batch, days, earliestDay, cardIndexesById);
+        }
+
+        // net amount of the batch on each touched day of each card
+        Map<HistoryKey, Long> amounts = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            amounts.merge(new HistoryKey(batch.cardIndex(i), days[i]), batch.amount(i), Long::sum);
+        }
+
+        // the persisted entries of the touched days, a day of one card may be loaded because another card touches it
+        Map<HistoryKey, BalanceHistory> existingHistories = new HashMap<>();
+        List<BalanceHistory> touchedHistories = balanceHistoryRepository.findByCardIdInAndDateIn(
+                cardIndexesById.keySet(), distinctDates(days));
+        for (BalanceHistory history : touchedHistories) {
+            int cardIndex = cardIndexesById.get(history.getCreditCard().getId());
+            int day = Cents.epochDay(history.getDate().getEpochSecond());
+            existingHistories.putIfAbsent(new HistoryKey(cardIndex, day), history);
+        }
+
+        CreditCard[] cards = new CreditCard[cardNumbers.size()];
+        List<BalanceHistory> changedHistories = new ArrayList<>(amounts.size());
+        for (Map.Entry<HistoryKey, Long> amount : amounts.entrySet()) {
+            HistoryKey key = amount.getKey();
+            long cents = amount.getValue();
+            BalanceHistory history = existingHistories.get(key);
+            if (history == null) {
+                if (cards[key.cardIndex()] == null) {
+                    cards[key.cardIndex()] = creditCardRepository.getReferenceById(
+                            cardIdsByNumber.get(cardNumbers.get(key.cardIndex())));
+                }
+                history = new BalanceHistory();
+                history.setCreditCard(cards[key.cardIndex()]);
+                history.setDate(Instant.ofEpochSecond(Cents.startOfDayEpochSecond(key.day())));
+            } else {
+                cents += Cents.fromAmount(history.getAmount());
+            }
+            history.setAmount(Cents.toAmount(cents));
+            changedHistories.add(history);
+        }
+        balanceHistoryRepository.saveAll(changedHistories);
+        if (idempotencyKey != null) {
+            processedBatchRepository.save(new ProcessedBatch(idempotencyKey, Instant.now()));
+        }
+        batchSizes.record(batch.size());
+        rowsWritten.record(changedHistories.size());
+        eventPublisher.publishEvent(new BalanceUpdatedEvent(List.copyOf(cardNumbers)));
+        return true;
+    }
+
+    /**
+     * Move the days of transactions in compacted months to the last day of their month, which holds the month's
+     * entry, and update the snapshots of the months they change. The snapshots are written back on commit.
+     */
+    private void moveCompactedMonths(TransactionBatch batch, int[] days, int earliestDay,
+                                     Map<Integer, Integer> cardIndexesById) {
+        List<BalanceSnapshot> snapshots = balanceSnapshotRepository.findByCardIdInEndingAfter(cardIndexesById.keySet(),
+                Instant.ofEpochSecond(Cents.startOfDayEpochSecond(earliestDay)));
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<BalanceSnapshot>> snapshotsByCardIndex = new HashMap<>();
+        for (BalanceSnapshot snapshot : snapshots) {
+            snapshotsByCardIndex.computeIfAbsent(cardIndexesById.get(snapshot.getCreditCard().getId()),
+                    cardIndex -> new ArrayList<>()).add(snapshot);
+        }
+        for (int i = 0; i < days.length; i++) {
+            List<BalanceSnapshot> cardSnapshots = snapshotsByCardIndex.get(batch.cardIndex(i));
+            if (cardSnapshots == null) {
+                continue;
+            }
+            long amount = batch.amount(i);
+            int day = batch.day(i);
+            for (BalanceSnapshot snapshot : cardSnapshots) {
+                int nextMonth = Cents.epochDay(snapshot.getNextMonth().getEpochSecond());
+                if (day >= nextMonth) {
+                    continue;
+                }
+                if (day >= Cents.epochDay(snapshot.getMonth().getEpochSecond())) {
+                    // the days of the month are no longer known, the amount moves the month's envelope
+                    days[i] = nextMonth - 1;
+                    snapshot.setClosingBalance(plus(snapshot.getClosingBalance(), amount));
+                    snapshot.setMinBalance(Math.min(snapshot.getMinBalance(), plus(snapshot.getMinBalance(), amount)));
+                    snapshot.setMaxBalance(Math.max(snapshot.getMaxBalance(), plus(snapshot.getMaxBalance(), amount)));
+                } else {
+                    snapshot.setOpeningBalance(plus(snapshot.getOpeningBalance(), amount));
+                    snapshot.setClosingBalance(plus(snapshot.getClosingBalance(), amount));
+                    snapshot.setMinBalance(plus(snapshot.getMinBalance(), amount));
+                    snapshot.setMaxBalance(plus(snapshot.getMaxBalance(), amount));
+                }
+            }
+        }
+    }
+
+    private static double plus(double balance, long cents) {
+        return Cents.toAmount(Cents.fromAmount(balance) + cents);
+    }
+
+    private static List<Instant> distinctDates(int[] transactionDays) {
+        int[] days = transactionDays.clone();
+        Arrays.sort(days);
+        List<Instant> dates = new ArrayList<>();
+        for (int i = 0; i < days.length; i++) {
+            if (i == 0 || days[i] != days[i - 1]) {
+                dates.add(Instant.ofEpochSecond(Cents.startOfDayEpochSecond(days[i])));
+            }
+        }
+        return dates;
+    }
+
+    private record HistoryKey(int cardIndex, int day) {
+    }
+}
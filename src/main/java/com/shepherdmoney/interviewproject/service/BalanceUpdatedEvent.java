@@ -0,0 +1,10 @@
+package com.shepherdmoney.interviewproject.service;
+
+import java.util.List;
+
+/**
+ * Published by {@link BalanceUpdateService} and {@link BalanceRecomputationService} inside the transaction that changed
+ * the balance history of the given cards, and by {@link UserDeletionService} inside the one deleting them
+ */
+public record BalanceUpdatedEvent(List<String> cardNumbers) {
+}
@@ -0,0 +1,288 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import com.shepherdmoney.interviewproject.vo.request.ImportCreditCardPayload;
+import com.shepherdmoney.interviewproject.vo.request.ImportUserPayload;
+import com.shepherdmoney.interviewproject.vo.response.ImportResult;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports users and their credit cards in bulk.
+ * <p>
+ * The input is parsed incrementally and imported in chunks of about {@code import.chunk-size} rows, each chunk in a
+ * transaction of its own. The existing card numbers of a chunk are found with one query, the entities are sent in JDBC
+ * batches of the chunk size, and the persistence context is cleared after every chunk, so memory use does not grow
+ * with the input. Ids come from sequences with a pooled optimizer (see {@link User} and {@link CreditCard}). The
+ * {@link CardStore} writes its pending cards before a chunk, so their numbers count as taken, and reads the imported
+ * users and cards after it.
+ */
+@Service
+public class BulkImportService {
+    private static final String CSV_HEADER = "name,email,issuanceBank,cardNumber";
+
+    private final EntityManager entityManager;
+    private final CreditCardRepository creditCardRepository;
+    private final CardStore cardStore;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BulkImportService(EntityManager entityManager, CreditCardRepository creditCardRepository,
+                             CardStore cardStore, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${import.chunk-size:1000}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.creditCardRepository = creditCardRepository;
+        this.cardStore = cardStore;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Import a JSON array of users, each with an optional array of cards
+     */
+    public ImportResult importJson(InputStream input) {
+        Counts counts = new Counts();
+        try (MappingIterator<ImportUserPayload> users = objectMapper.readerFor(ImportUserPayload.class)
+                .readValues(input)) {
+            importUsers(users::hasNextValue, users::nextValue, counts);
+        } catch (IOException e) {
+            counts.error = "Malformed JSON: " + e.getMessage();
+        }
+        return counts.toResult();
+    }
+
+    /**
+     * Import CSV lines of name, email, issuance bank and card number, without quoting. Consecutive lines with the same
+     * email belong to one user, a line with empty card columns imports a user without cards, and a line without four
+     * columns counts as a rejected card. The header line is optional.
+     */
+    public ImportResult importCsv(InputStream input) {
+        Counts counts = new Counts();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            CsvUsers users = new CsvUsers(reader, counts);
+            importUsers(users::hasNext, users::next, counts);
+        } catch (IOException e) {
+            counts.error = "Unreadable CSV: " + e.getMessage();
+        }
+        return counts.toResult();
+    }
+
+    private void importUsers(Condition hasNext, Source next, Counts counts) throws IOException {
+        List<ImportUserPayload> chunk = new ArrayList<>();
+        int rows = 0;
+        try {
+            try {
+                while (hasNext.test()) {
+                    ImportUserPayload user = next.get();
+                    chunk.add(user);
+                    rows += 1 + (user == null || user.getCards() == null ? 0 : user.getCards().size());
+                    if (rows >= chunkSize) {
+                        importChunk(chunk, counts);
+                        chunk.clear();
+                        rows = 0;
+                    }
+                }
+            } finally {
+                // the users read before malformed input are imported as well
+                if (!chunk.isEmpty()) {
+                    importChunk(chunk, counts);
+                }
+            }
+        } catch (DataAccessException | PersistenceException e) {
+            // most likely a card number inserted concurrently, the chunk was rolled back
+            counts.error = "Import failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        }
+    }
+
+    private void importChunk(List<ImportUserPayload> chunk, Counts counts) {
+        Set<String> numbers = new HashSet<>();
+        for (ImportUserPayload user : chunk) {
+            if (isValid(user) && user.getCards() != null) {
+                for (ImportCreditCardPayload card : user.getCards()) {
+                    if (isValid(card)) {
+                        numbers.add(card.getNumber());
+                    }
+                }
+            }
+        }
+
+        Counts chunkCounts = new Counts();
+        List<Integer> importedUserIds = new ArrayList<>();
+        List<String> importedNumbers = new ArrayList<>();
+        cardStore.flush();
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<String> taken = new HashSet<>();
+            if (!numbers.isEmpty()) {
+                taken.addAll(creditCardRepository.findTakenNumbersIn(numbers));
+            }
+            entityManager.unwrap(Session.class).setJdbcBatchSize(chunkSize);
+            for (ImportUserPayload payload : chunk) {
+                List<ImportCreditCardPayload> cards =
+                        payload == null || payload.getCards() == null ? List.of() : payload.getCards();
+                if (!isValid(payload)) {
+                    chunkCounts.usersRejected++;
+                    chunkCounts.cardsRejected += cards.size();
+                    continue;
+                }
+                User user = new User();
+                user.setName(payload.getName());
+                user.setEmail(payload.getEmail());
+                user.setCreditCards(new ArrayList<>(cards.size()));
+                for (ImportCreditCardPayload cardPayload : cards) {
+                    // taken also collects the numbers of this chunk, so a repeated number is imported once
+                    if (!isValid(cardPayload) || !taken.add(cardPayload.getNumber())) {
+                        chunkCounts.cardsRejected++;
+                        continue;
+                    }
+                    CreditCard card = new CreditCard();
+                    card.setUser(user);
+                    card.setIssuanceBank(cardPayload.getIssuanceBank());
+                    card.setNumber(cardPayload.getNumber());
+                    user.getCreditCards().add(card);
+                    importedNumbers.add(card.getNumber());
+                }
+                entityManager.persist(user);
+                importedUserIds.add(user.getId());
+                chunkCounts.usersImported++;
+                chunkCounts.cardsImported += user.getCreditCards().size();
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+        counts.add(chunkCounts);
+        cardStore.reload(importedUserIds, importedNumbers);
+    }
+
+    private static boolean isValid(ImportUserPayload user) {
+        return user != null && !isBlank(user.getName()) && !isBlank(user.getEmail());
+    }
+
+    private static boolean isValid(ImportCreditCardPayload card) {
+        return card != null && !isBlank(card.getIssuanceBank()) && !isBlank(card.getNumber());
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        boolean test() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Source {
+        ImportUserPayload get() throws IOException;
+    }
+
+    /**
+     * Groups consecutive CSV lines with the same email into users, reading one line ahead
+     */
+    private static final class CsvUsers {
+        private final BufferedReader reader;
+        private final Counts counts;
+        private String[] pending;
+        private boolean first = true;
+
+        CsvUsers(BufferedReader reader, Counts counts) {
+            this.reader = reader;
+            this.counts = counts;
+        }
+
+        boolean hasNext() throws IOException {
+            if (pending == null) {
+                pending = readColumns();
+            }
+            return pending != null;
+        }
+
+        ImportUserPayload next() throws IOException {
+            hasNext();
+            ImportUserPayload user = new ImportUserPayload();
+            user.setName(pending[0]);
+            user.setEmail(pending[1]);
+            user.setCards(new ArrayList<>());
+            do {
+                if (!pending[2].isEmpty() || !pending[3].isEmpty()) {
+                    ImportCreditCardPayload card = new ImportCreditCardPayload();
+                    card.setIssuanceBank(pending[2]);
+                    card.setNumber(pending[3]);
+                    user.getCards().add(card);
+                }
+                pending = readColumns();
+            } while (pending != null && pending[1].equals(user.getEmail()));
+            return user;
+        }
+
+        private String[] readColumns() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                boolean header = first && line.trim().equalsIgnoreCase(CSV_HEADER);
+                first = false;
+                if (header || line.isBlank()) {
+                    continue;
+                }
+                String[] columns = line.split(",", -1);
+                if (columns.length != 4) {
+                    counts.cardsRejected++;
+                    continue;
+                }
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = columns[i].trim();
+                }
+                return columns;
+            }
+            return null;
+        }
+    }
+
+    private static final class Counts {
+        private long usersImported;
+        private long usersRejected;
+        private long cardsImported;
+        private long cardsRejected;
+        private String error;
+
+        void add(Counts other) {
+            usersImported += other.usersImported;
+            usersRejected += other.usersRejected;
+            cardsImported += other.cardsImported;
+            cardsRejected += other.cardsRejected;
+        }
+
+        ImportResult toResult() {
+            return ImportResult.builder()
+                    .usersImported(usersImported)
+                    .usersRejected(usersRejected)
+                    .cardsImported(cardsImported)
+                    .cardsRejected(cardsRejected)
+                    .error(error)
+                    .build();
+        }
+    }
+}
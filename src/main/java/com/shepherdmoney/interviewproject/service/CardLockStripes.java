@@ -0,0 +1,60 @@
+package com.shepherdmoney.interviewproject.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks, each guarding every card number that hashes to it. Updates of different cards mostly take
+ * different stripes and run in parallel, updates of the same card are serialized. A batch locks the stripes of all its
+ * cards in ascending stripe order, so two batches can never wait on each other in a cycle.
+ */
+class CardLockStripes {
+
+    private final ReentrantLock[] stripes;
+
+    CardLockStripes(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Lock stripe count must be positive: " + stripeCount);
+        }
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Lock the stripes of the given card numbers
+     *
+     * @return the locked stripes in locking order, to be passed to {@link #unlock(int[])}
+     */
+    int[] lock(List<String> cardNumbers) {
+        int[] indexes = new int[cardNumbers.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = Math.floorMod(cardNumbers.get(i).hashCode(), stripes.length);
+        }
+        Arrays.sort(indexes);
+        int distinct = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        int[] locked = Arrays.copyOf(indexes, distinct);
+        for (int i = 0; i < locked.length; i++) {
+            try {
+                stripes[locked[i]].lock();
+            } catch (RuntimeException | Error e) {
+                unlock(Arrays.copyOf(locked, i));
+                throw e;
+            }
+        }
+        return locked;
+    }
+
+    void unlock(int[] locked) {
+        for (int i = locked.length - 1; i >= 0; i--) {
+            stripes[locked[i]].unlock();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.cache.BoundedCache;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Resolves the owner of a credit card number through a bounded in-process cache.
+ * <p>
+ * Unknown numbers are cached as well, so every write that can change the owner of a number (adding a card, deleting
+ * a user) must invalidate it here.
+ */
+@Service
+public class CreditCardOwnerService {
+
+    private final CreditCardRepository creditCardRepository;
+
+    private final BoundedCache<String, Optional<Integer>> ownerCache;
+
+    public CreditCardOwnerService(CreditCardRepository creditCardRepository, MeterRegistry meterRegistry,
+                                  @Value("${credit-card.owner-cache.max-size:100000}") int maxSize) {
+        this.creditCardRepository = creditCardRepository;
+        this.ownerCache = new BoundedCache<>(maxSize);
+        FunctionCounter.builder("credit.card.owner.cache.requests", ownerCache, BoundedCache::getHitCount)
+                .description("Owner lookups by cache result")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("credit.card.owner.cache.requests", ownerCache, BoundedCache::getMissCount)
+                .description("Owner lookups by cache result")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("credit.card.owner.cache.size", ownerCache, BoundedCache::size)
+                .description("Card numbers in the owner cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Id of the user owning the card with the given number, or empty if there is no such card
+     */
+    public Optional<Integer> findUserId(String cardNumber) {
+        return ownerCache.get(cardNumber, creditCardRepository::findUserIdByNumber);
+    }
+
+    public void invalidate(String cardNumber) {
+        ownerCache.invalidate(cardNumber);
+    }
+
+    public void invalidateAll(Collection<String> cardNumbers) {
+        ownerCache.invalidateAll(cardNumbers);
+    }
+
+    public void clear() {
+        ownerCache.clear();
+    }
+
+    public long getHitCount() {
+        return ownerCache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return ownerCache.getMissCount();
+    }
+
+    public int getCacheSize() {
+        return ownerCache.size();
+    }
+}
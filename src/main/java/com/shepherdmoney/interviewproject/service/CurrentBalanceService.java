@@ -0,0 +1,142 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.cache.BoundedCache;
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import com.shepherdmoney.interviewproject.vo.response.CurrentBalanceView;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Current balance of cards, read through a bounded cache keyed by card number.
+ * <p>
+ * The current balance is the sum of the amounts of every day up to and including today (UTC), read by the
+ * {@link OpeningBalanceService} as the balance on tomorrow, so transactions dated in the future only count from their
+ * day on.
+ * A cached balance is only served on the day it was computed for, the first read of a later day loads it again. A
+ * committed change of a card's history, by a balance update, a recomputation or the deletion of its owner, drops the
+ * card's cached balance.
+ */
+@Service
+public class CurrentBalanceService {
+
+    private final CardStore cardStore;
+    private final OpeningBalanceService openingBalanceService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final BoundedCache<String, CurrentBalanceView> cache;
+
+    public CurrentBalanceService(CardStore cardStore, OpeningBalanceService openingBalanceService,
+                                 PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                 @Value("${current-balance.cache.max-size:100000}") int maxCacheSize) {
+        this.cardStore = cardStore;
+        this.openingBalanceService = openingBalanceService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cache = new BoundedCache<>(maxCacheSize);
+        FunctionCounter.builder("current.balance.cache.requests", cache, BoundedCache::getHitCount)
+                .description("Current balance lookups by cache result")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("current.balance.cache.requests", cache, BoundedCache::getMissCount)
+                .description("Current balance lookups by cache result")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public Optional<CurrentBalanceView> getCurrentBalance(String cardNumber) {
+        return getCurrentBalance(cardNumber, LocalDate.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * Balance of a card after every transaction up to and including the given day, taken as today
+     *
+     * @return empty if no card has the given number
+     */
+    public Optional<CurrentBalanceView> getCurrentBalance(String cardNumber, LocalDate today) {
+        return Optional.ofNullable(cache.get(cardNumber, isAsOf(today), number -> load(number, today)));
+    }
+
+    public Optional<List<CurrentBalanceView>> getCurrentBalances(Collection<String> cardNumbers) {
+        return getCurrentBalances(cardNumbers, LocalDate.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * Balances of several cards after every transaction up to and including the given day, taken as today. The cards
+     * missing from the cache are loaded together, in a fixed number of statements whatever their number.
+     *
+     * @return the balances in the order of the given numbers, or empty if a number has no card
+     */
+    public Optional<List<CurrentBalanceView>> getCurrentBalances(Collection<String> cardNumbers, LocalDate today) {
+        Map<String, CurrentBalanceView> balances =
+                cache.getAll(cardNumbers, isAsOf(today), numbers -> loadAll(numbers, today));
+        if (balances.size() != new HashSet<>(cardNumbers).size()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ArrayList<>(balances.values()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBalanceUpdated(BalanceUpdatedEvent event) {
+        cache.invalidateAll(event.cardNumbers());
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    private CurrentBalanceView load(String cardNumber, LocalDate today) {
+        return readOnlyTransaction.execute(status -> cardStore.findCardId(cardNumber)
+                .map(cardId -> view(cardNumber, today, openingBalanceService.openingBalance(cardId, today.plusDays(1))))
+                .orElse(null));
+    }
+
+    private Map<String, CurrentBalanceView> loadAll(Set<String> cardNumbers, LocalDate today) {
+        return readOnlyTransaction.execute(status -> {
+            Map<Integer, String> numbersById = new HashMap<>();
+            cardStore.findCardIds(cardNumbers).forEach((cardNumber, cardId) -> numbersById.put(cardId, cardNumber));
+            Map<String, CurrentBalanceView> balances = new HashMap<>();
+            if (numbersById.isEmpty()) {
+                return balances;
+            }
+            openingBalanceService.openingBalances(numbersById.keySet(), today.plusDays(1)).forEach((cardId, balance) ->
+                    balances.put(numbersById.get(cardId), view(numbersById.get(cardId), today, balance)));
+            return balances;
+        });
+    }
+
+    private static CurrentBalanceView view(String cardNumber, LocalDate today, long balance) {
+        return CurrentBalanceView.builder()
+                .creditCardNumber(cardNumber)
+                .asOf(today)
+                .balance(Cents.toAmount(balance))
+                .computedAt(Instant.now())
+                .build();
+    }
+
+    private static Predicate<CurrentBalanceView> isAsOf(LocalDate today) {
+        return view -> today.equals(view.getAsOf());
+    }
+}
@@ -0,0 +1,74 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.repository.DailyAmount;
+import com.shepherdmoney.interviewproject.vo.response.BalanceHistoryView;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Expands the stored change points of a card into one entry per day, on demand. Days without a stored entry get an
+ * amount of 0 and carry the balance forward, so a quiet card costs nothing until its series is read.
+ */
+class DailySeriesIterator implements Iterator<BalanceHistoryView> {
+
+    private final Iterator<DailyAmount> changes;
+
+    private final long lastDay;
+
+    private long day;
+
+    // balance on the current day in cents
+    private long balance;
+
+    private DailyAmount nextChange;
+
+    private long nextChangeDay;
+
+    /**
+     * @param changes the stored entries in [from, to], oldest first
+     * @param balanceBefore balance on the first day in cents, that is the sum of the amounts before it
+     */
+    DailySeriesIterator(Iterator<DailyAmount> changes, LocalDate from, LocalDate to, long balanceBefore) {
+        this.changes = changes;
+        this.day = from.toEpochDay();
+        this.lastDay = to.toEpochDay();
+        this.balance = balanceBefore;
+        advanceChange();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return day <= lastDay;
+    }
+
+    @Override
+    public BalanceHistoryView next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        long amount = 0;
+        // more than one stored entry for a day are added up
+        while (nextChange != null && nextChangeDay == day) {
+            amount += Cents.fromAmount(nextChange.amount());
+            advanceChange();
+        }
+        BalanceHistoryView view = BalanceHistoryView.builder()
+                .date(LocalDate.ofEpochDay(day))
+                .amount(Cents.toAmount(amount))
+                .balance(Cents.toAmount(balance))
+                .build();
+        balance += amount;
+        day++;
+        return view;
+    }
+
+    private void advanceChange() {
+        nextChange = changes.hasNext() ? changes.next() : null;
+        if (nextChange != null) {
+            nextChangeDay = Cents.epochDay(nextChange.date().getEpochSecond());
+        }
+    }
+}
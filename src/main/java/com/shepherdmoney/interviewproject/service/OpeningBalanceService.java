@@ -0,0 +1,113 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.model.BalanceSnapshot;
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.BalanceSnapshotRepository;
+import com.shepherdmoney.interviewproject.repository.CardAmount;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Balance of cards at the start of a day, the sum of the amounts of every earlier day, read without summing the whole
+ * history.
+ * <p>
+ * A compacted month's snapshot (see {@link BalanceCompactionService}) holds the exact balance on the first day of the
+ * month and of the next month. The balance on a day is read from the latest compacted month starting on or before it,
+ * with one seek on the {@code (card_id, month)} index, plus the entries from that month's end up to the day. Every
+ * month with entries before the compaction cutoff gets compacted, so the range holds at most the daily entries from
+ * the cutoff on, however old the card. A card without compacted months before the day sums its history from the start,
+ * which then has no entries before the cutoff either.
+ * <p>
+ * Must be called inside a transaction, so the snapshot and the entries are read consistently.
+ */
+@Service
+public class OpeningBalanceService {
+
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+
+    public OpeningBalanceService(BalanceHistoryRepository balanceHistoryRepository,
+                                 BalanceSnapshotRepository balanceSnapshotRepository) {
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+    }
+
+    /**
+     * Balance of a card on the given day in cents, in two statements
+     */
+    public long openingBalance(int cardId, LocalDate day) {
+        Instant date = startOf(day);
+        Optional<BalanceSnapshot> snapshot =
+                balanceSnapshotRepository.findFirstByCreditCardIdAndMonthLessThanEqualOrderByMonthDesc(cardId, date);
+        if (snapshot.isEmpty()) {
+            return Cents.fromAmount(balanceHistoryRepository.sumAmountsBefore(cardId, date));
+        }
+        Anchor anchor = Anchor.of(snapshot.get(), date);
+        return anchor.balance() + Cents.fromAmount(balanceHistoryRepository.sumAmountsBetween(cardId, anchor.from(),
+                date));
+    }
+
+    /**
+     * Balances of the given cards on the given day in cents. One statement reads the snapshots and one sums the
+     * entries of the cards sharing the end of their latest compacted month, which compaction keeps the same for most
+     * cards.
+     *
+     * @return the balance by card id, for every given card
+     */
+    public Map<Integer, Long> openingBalances(Collection<Integer> cardIds, LocalDate day) {
+        Map<Integer, Long> balances = new HashMap<>();
+        if (cardIds.isEmpty()) {
+            return balances;
+        }
+        Instant date = startOf(day);
+        Map<Integer, Anchor> anchors = new HashMap<>();
+        for (BalanceSnapshot snapshot : balanceSnapshotRepository.findLatestByCardIdInStartingBy(cardIds, date)) {
+            anchors.put(snapshot.getCreditCard().getId(), Anchor.of(snapshot, date));
+        }
+
+        // cards by the start of the entries still to add, those without compacted months under the null key
+        Map<Instant, List<Integer>> cardIdsByFrom = new HashMap<>();
+        for (int cardId : cardIds) {
+            Anchor anchor = anchors.get(cardId);
+            balances.put(cardId, anchor == null ? 0 : anchor.balance());
+            cardIdsByFrom.computeIfAbsent(anchor == null ? null : anchor.from(), from -> new ArrayList<>()).add(cardId);
+        }
+        cardIdsByFrom.forEach((from, ids) -> {
+            List<CardAmount> sums = from == null
+                    ? balanceHistoryRepository.sumAmountsBeforeByCard(ids, date)
+                    : balanceHistoryRepository.sumAmountsBetweenByCard(ids, from, date);
+            for (CardAmount sum : sums) {
+                balances.merge(sum.cardId(), Cents.fromAmount(sum.amount()), Long::sum);
+            }
+        });
+        return balances;
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /**
+     * Known balance at the start of {@code from}, the later entries up to the day still to be added. Within a
+     * compacted month the month's entry is on its last day, so it is never before the day.
+     */
+    private record Anchor(Instant from, long balance) {
+
+        static Anchor of(BalanceSnapshot snapshot, Instant date) {
+            if (date.isBefore(snapshot.getNextMonth())) {
+                return new Anchor(snapshot.getMonth(), Cents.fromAmount(snapshot.getOpeningBalance()));
+            }
+            return new Anchor(snapshot.getNextMonth(), Cents.fromAmount(snapshot.getClosingBalance()));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.cache.BoundedCache;
+import com.shepherdmoney.interviewproject.ledger.Cents;
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.DailyAmount;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import com.shepherdmoney.interviewproject.vo.response.BalanceHistoryView;
+import com.shepherdmoney.interviewproject.vo.response.PortfolioBalanceView;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Total balance of all the cards of a user, now and for every one of the last days.
+ * <p>
+ * The balance before the window is read by the {@link OpeningBalanceService}. Within the window the database adds up
+ * the history of the user's cards per day, so only one row per day with transactions is read, and the dense daily
+ * series is expanded from them as for a single card. In parallel mode the cards are split into
+ * partitions that are summed concurrently on the portfolio executor, each in a read-only transaction of its own, and
+ * the partitions' day-sorted sums are combined with a k-way merge.
+ * <p>
+ * Results are cached by user, the window last computed for each user, and served while the day and the number of
+ * days match. A committed balance update of any card of the user drops the user's entry.
+ */
+@Service
+public class PortfolioService {
+
+    private final CardStore cardStore;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final OpeningBalanceService openingBalanceService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService portfolioExecutor;
+    private final int parallelism;
+    private final BoundedCache<Integer, PortfolioBalanceView> cache;
+
+    public PortfolioService(CardStore cardStore, BalanceHistoryRepository balanceHistoryRepository,
+                            OpeningBalanceService openingBalanceService,
+                            PlatformTransactionManager transactionManager,
+                            @Qualifier("portfolioExecutor") ExecutorService portfolioExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${portfolio.parallelism:4}") int parallelism,
+                            @Value("${portfolio.cache.max-size:10000}") int maxCacheSize) {
+        this.cardStore = cardStore;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.openingBalanceService = openingBalanceService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.portfolioExecutor = portfolioExecutor;
+        this.parallelism = parallelism;
+        this.cache = new BoundedCache<>(maxCacheSize);
+        FunctionCounter.builder("portfolio.cache.requests", cache, BoundedCache::getHitCount)
+                .description("Portfolio balance requests by cache result")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("portfolio.cache.requests", cache, BoundedCache::getMissCount)
+                .description("Portfolio balance requests by cache result")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Total balance of a user's cards today, and on each of the given number of days up to today
+     *
+     * @param parallel sum partitions of the cards concurrently, worth it for users with many cards
+     * @return empty if there is no such user, or it is deleted
+     */
+    public Optional<PortfolioBalanceView> getPortfolio(int userId, int days, boolean parallel) {
+        if (!cardStore.userExists(userId)) {
+            return Optional.empty();
+        }
+        PortfolioKey key = new PortfolioKey(userId, LocalDate.now(ZoneOffset.UTC), days);
+        return Optional.of(cache.get(userId, key::matches,
+                id -> parallel ? aggregateInParallel(key) : aggregate(key)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBalanceUpdated(BalanceUpdatedEvent event) {
+        Set<Integer> userIds = new HashSet<>();
+        for (String cardNumber : event.cardNumbers()) {
+            cardStore.findUserId(cardNumber).ifPresent(userIds::add);
+        }
+        if (!userIds.isEmpty()) {
+            cache.invalidateAll(userIds);
+        }
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    private PortfolioBalanceView aggregate(PortfolioKey key) {
+        return readOnlyTransaction.execute(status -> {
+            long balanceBefore = totalOpeningBalance(cardStore.findCardIds(key.userId()), key.from());
+            List<DailyAmount> dailyAmounts = balanceHistoryRepository.sumDailyAmountsByUser(key.userId(),
+                    startOf(key.from()), startOf(key.asOf().plusDays(1)));
+            return toView(key, balanceBefore, dailyAmounts.iterator());
+        });
+    }
+
+    private PortfolioBalanceView aggregateInParallel(PortfolioKey key) {
+        List<Integer> cardIds = cardStore.findCardIds(key.userId());
+        int partitions = Math.min(parallelism, cardIds.size());
+        if (partitions <= 1) {
+            return aggregate(key);
+        }
+        List<CompletableFuture<PartialSum>> futures = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            List<Integer> partition = cardIds.subList(cardIds.size() * i / partitions,
+                    cardIds.size() * (i + 1) / partitions);
+            futures.add(CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status ->
+                    sumPartition(partition, key)), portfolioExecutor));
+        }
+        long balanceBefore = 0;
+        List<Iterator<DailyAmount>> dailyAmounts = new ArrayList<>(partitions);
+        try {
+            for (CompletableFuture<PartialSum> future : futures) {
+                PartialSum partial = future.join();
+                balanceBefore += partial.balanceBefore();
+                dailyAmounts.add(partial.dailyAmounts().iterator());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return toView(key, balanceBefore, new MergingIterator(dailyAmounts));
+    }
+
+    private PartialSum sumPartition(List<Integer> cardIds, PortfolioKey key) {
+        return new PartialSum(totalOpeningBalance(cardIds, key.from()), balanceHistoryRepository.sumDailyAmountsByCards(
+                cardIds, startOf(key.from()), startOf(key.asOf().plusDays(1))));
+    }
+
+    private long totalOpeningBalance(List<Integer> cardIds, LocalDate day) {
+        long total = 0;
+        for (long balance : openingBalanceService.openingBalances(cardIds, day).values()) {
+            total += balance;
+        }
+        return total;
+    }
+
+    private static PortfolioBalanceView toView(PortfolioKey key, long balanceBefore,
+                                               Iterator<DailyAmount> dailyAmounts) {
+        List<BalanceHistoryView> series = new ArrayList<>(key.days());
+        new DailySeriesIterator(dailyAmounts, key.from(), key.asOf(), balanceBefore).forEachRemaining(series::add);
+        BalanceHistoryView today = series.get(series.size() - 1);
+        return PortfolioBalanceView.builder()
+                .userId(key.userId())
+                .asOf(key.asOf())
+                .balance(Cents.toAmount(Cents.fromAmount(today.getBalance()) + Cents.fromAmount(today.getAmount())))
+                .series(series)
+                .build();
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private record PortfolioKey(int userId, LocalDate asOf, int days) {
+        LocalDate from() {
+            return asOf.minusDays(days - 1L);
+        }
+
+        boolean matches(PortfolioBalanceView view) {
+            return asOf.equals(view.getAsOf()) && view.getSeries().size() == days;
+        }
+    }
+
+    private record PartialSum(long balanceBefore, List<DailyAmount> dailyAmounts) {
+    }
+
+    /**
+     * Merges iterators of daily amounts sorted by date into one sorted by date. Amounts of the same day from
+     * different iterators are returned one after the other, {@link DailySeriesIterator} adds them up.
+     */
+    private static final class MergingIterator implements Iterator<DailyAmount> {
+        private final PriorityQueue<Head> heads =
+                new PriorityQueue<>((a, b) -> a.amount.date().compareTo(b.amount.date()));
+
+        private MergingIterator(List<Iterator<DailyAmount>> sources) {
+            for (Iterator<DailyAmount> source : sources) {
+                if (source.hasNext()) {
+                    heads.add(new Head(source.next(), source));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public DailyAmount next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.source.hasNext()) {
+                heads.add(new Head(head.source.next(), head.source));
+            }
+            return head.amount;
+        }
+
+        private record Head(DailyAmount amount, Iterator<DailyAmount> source) {
+        }
+    }
+}
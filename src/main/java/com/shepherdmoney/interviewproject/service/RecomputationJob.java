@@ -0,0 +1,106 @@
+package com.shepherdmoney.interviewproject.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of one recomputation of balance histories. The affected cards are recomputed in chunks, and the job is done
+ * when every card has been either recomputed or failed with its chunk.
+ */
+public class RecomputationJob {
+
+    private final String id;
+
+    private final Instant submittedAt = Instant.now();
+
+    private final int cards;
+
+    private final AtomicInteger processedCards = new AtomicInteger();
+
+    private final AtomicInteger failedCards = new AtomicInteger();
+
+    private volatile Instant startedAt;
+
+    private volatile Instant completedAt;
+
+    private volatile String error;
+
+    RecomputationJob(String id, int cards) {
+        this.id = id;
+        this.cards = cards;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+    }
+
+    void chunkProcessed(int chunkCards) {
+        processedCards.addAndGet(chunkCards);
+        finishChunk();
+    }
+
+    void chunkFailed(int chunkCards, String reason) {
+        error = reason;
+        failedCards.addAndGet(chunkCards);
+        finishChunk();
+    }
+
+    private void finishChunk() {
+        if (processedCards.get() + failedCards.get() == cards) {
+            completedAt = Instant.now();
+        }
+    }
+
+    public RecomputationJobStatus getStatus() {
+        if (completedAt != null) {
+            return failedCards.get() == 0 ? RecomputationJobStatus.SUCCEEDED : RecomputationJobStatus.FAILED;
+        }
+        return startedAt != null ? RecomputationJobStatus.RUNNING : RecomputationJobStatus.QUEUED;
+    }
+
+    /**
+     * Cards recomputed per second since the job started, up to its completion
+     */
+    public double getCardsPerSecond() {
+        Instant start = startedAt;
+        if (start == null) {
+            return 0;
+        }
+        Instant end = completedAt == null ? Instant.now() : completedAt;
+        long millis = Math.max(1, Duration.between(start, end).toMillis());
+        return processedCards.get() * 1000.0 / millis;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public int getCards() {
+        return cards;
+    }
+
+    public int getProcessedCards() {
+        return processedCards.get();
+    }
+
+    public int getFailedCards() {
+        return failedCards.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+}
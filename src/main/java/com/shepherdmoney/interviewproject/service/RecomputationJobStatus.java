@@ -0,0 +1,8 @@
+package com.shepherdmoney.interviewproject.service;
+
+public enum RecomputationJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
@@ -0,0 +1,180 @@
+package com.shepherdmoney.interviewproject.service;
+
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.BalanceSnapshotRepository;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Deletes users together with their cards and the cards' balance history.
+ * <p>
+ * Nothing is loaded into the persistence context: the history, the monthly snapshots, the cards and the user are
+ * removed by four bulk statements in one transaction, holding the balance update locks of the user's cards so that no
+ * batch writes their history meanwhile. With {@code user.deletion.mode=soft} a deletion only marks the
+ * user, which hides it and its cards from lookups and balance updates, and {@link #purgeDeletedUsers()} removes the
+ * marked users with the same four statements in the background, each under the locks of its cards, so the deleting
+ * call only updates one row.
+ * <p>
+ * The {@link CardStore} writes its pending users and cards before a deletion and reads the deleted ones again once it
+ * commits, before the locks are released.
+ */
+@Slf4j
+@Service
+// created on startup under lazy initialization too, the schedule is only registered for created beans
+@Lazy(false)
+public class UserDeletionService {
+
+    private final UserRepository userRepository;
+    private final CreditCardRepository creditCardRepository;
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final CardStore cardStore;
+    private final BalanceUpdateService balanceUpdateService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean softDelete;
+
+    public UserDeletionService(UserRepository userRepository, CreditCardRepository creditCardRepository,
+                               BalanceHistoryRepository balanceHistoryRepository,
+                               BalanceSnapshotRepository balanceSnapshotRepository,
+                               CardStore cardStore,
+                               BalanceUpdateService balanceUpdateService,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${user.deletion.mode:hard}") String mode) {
+        if (!mode.equals("hard") && !mode.equals("soft")) {
+            throw new IllegalArgumentException("user.deletion.mode must be hard or soft: " + mode);
+        }
+        this.userRepository = userRepository;
+        this.creditCardRepository = creditCardRepository;
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.cardStore = cardStore;
+        this.balanceUpdateService = balanceUpdateService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.softDelete = mode.equals("soft");
+    }
+
+    /**
+     * Delete a user and everything it owns, or only mark it in soft mode
+     *
+     * @return false if there is no such user, or it is already deleted
+     */
+    public boolean deleteUser(int userId) {
+        cardStore.flush();
+        List<String> cardNumbers = transactionTemplate.execute(status ->
+                userRepository.existsByIdAndDeletedFalse(userId) ? creditCardRepository.findNumbersByUserId(userId)
+                        : null);
+        return cardNumbers != null && withCardLocks(cardNumbers, locked -> deleteLocked(userId, locked));
+    }
+
+    /**
+     * Remove every soft deleted user with its cards and their history, one user at a time under the locks of its
+     * cards. Runs periodically in soft mode only.
+     */
+    @Scheduled(fixedDelayString = "${user.deletion.purge-interval:PT10S}")
+    public void purgeDeletedUsers() {
+        if (!softDelete) {
+            return;
+        }
+        List<Integer> userIds = transactionTemplate.execute(status -> userRepository.findDeletedIds());
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        int purged = 0;
+        for (int userId : userIds) {
+            List<String> cardNumbers = transactionTemplate.execute(status ->
+                    creditCardRepository.findNumbersByUserId(userId));
+            if (withCardLocks(cardNumbers, locked -> purgeLocked(userId, locked))) {
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            log.info("Purged {} deleted users", purged);
+            cardStore.forgetDeletedUsers();
+        }
+    }
+
+    /**
+     * Run a deletion holding the balance update locks of the given cards. A deletion that finds cards of the user
+     * added before the locks were taken returns all its card numbers instead, and runs again with their locks.
+     *
+     * @param deletion given the locked numbers, returns them if it deleted, the numbers to lock if it missed some, or
+     *                 null if there is nothing to delete
+     * @return whether the deletion ran
+     */
+    private boolean withCardLocks(List<String> cardNumbers, UnaryOperator<List<String>> deletion) {
+        List<String> locked = cardNumbers;
+        while (locked != null) {
+            List<String> numbers = locked;
+            List<String> result = balanceUpdateService.inCardTransaction(numbers, status -> deletion.apply(numbers));
+            if (result == numbers) {
+                return true;
+            }
+            locked = result;
+        }
+        return false;
+    }
+
+    private List<String> deleteLocked(int userId, List<String> lockedNumbers) {
+        if (!userRepository.existsByIdAndDeletedFalse(userId)) {
+            return null;
+        }
+        List<String> numbers = creditCardRepository.findNumbersByUserId(userId);
+        if (!new HashSet<>(lockedNumbers).containsAll(numbers)) {
+            return numbers;
+        }
+        if (softDelete) {
+            userRepository.markDeleted(userId);
+        } else {
+            deleteInBulk(userId);
+        }
+        // the cards are gone or hidden from now on, and a card number may be given out again
+        eventPublisher.publishEvent(new BalanceUpdatedEvent(numbers));
+        // still holding the locks, so no batch resolves the deleted cards from the store in between
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cardStore.reload(List.of(userId), numbers);
+            }
+        });
+        return lockedNumbers;
+    }
+
+    private List<String> purgeLocked(int userId, List<String> lockedNumbers) {
+        if (!userRepository.existsByIdAndDeletedTrue(userId)) {
+            return null;
+        }
+        List<String> numbers = creditCardRepository.findNumbersByUserId(userId);
+        if (!new HashSet<>(lockedNumbers).containsAll(numbers)) {
+            return numbers;
+        }
+        deleteInBulk(userId);
+        // drop what was cached for the numbers, a card added with one of them later starts afresh
+        eventPublisher.publishEvent(new BalanceUpdatedEvent(numbers));
+        return lockedNumbers;
+    }
+
+    private void deleteInBulk(int userId) {
+        balanceHistoryRepository.deleteByUserId(userId);
+        balanceSnapshotRepository.deleteByUserId(userId);
+        creditCardRepository.deleteByUserId(userId);
+        userRepository.deleteInBulkById(userId);
+    }
+}
@@ -0,0 +1,80 @@
+package com.shepherdmoney.interviewproject.store;
+
+import com.shepherdmoney.interviewproject.vo.response.CreditCardView;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Users and their credit cards, as the controllers and services create and look them up.
+ * <p>
+ * {@code card-store.engine} selects the implementation: {@link JpaCardStore} (the default) reads and writes the
+ * database through the repositories, {@link InMemoryCardStore} serves everything from memory and writes to the
+ * database in the background. Balance history is not part of the store, it always lives in the database.
+ */
+public interface CardStore {
+
+    /**
+     * Create a user
+     *
+     * @return the id of the new user
+     */
+    int createUser(String name, String email);
+
+    /**
+     * Whether the user exists and is not soft deleted
+     */
+    boolean userExists(int userId);
+
+    /**
+     * Add a card to a user, which must exist (see {@link #userExists})
+     *
+     * @return the id of the new card, or empty if the number is taken
+     */
+    Optional<Integer> addCard(int userId, String issuanceBank, String number);
+
+    /**
+     * Id of the user owning the card with the given number, or empty if there is no such card or its user is deleted
+     */
+    Optional<Integer> findUserId(String cardNumber);
+
+    /**
+     * Id of the card with the given number, or empty if there is no such card
+     */
+    Optional<Integer> findCardId(String cardNumber);
+
+    /**
+     * Ids of the cards with the given numbers, leaving out the numbers without a card. Every returned card is in the
+     * database already, so balance history can refer to it.
+     */
+    Map<String, Integer> findCardIds(Collection<String> cardNumbers);
+
+    /**
+     * Ids of the cards of a user, in ascending order
+     */
+    List<Integer> findCardIds(int userId);
+
+    /**
+     * Views of the cards of a user in the order they were added, empty for an unknown or soft deleted user
+     */
+    List<CreditCardView> findCardViews(int userId, Pageable pageable);
+
+    /**
+     * Wait until every user and card created so far is in the database
+     */
+    void flush();
+
+    /**
+     * Read the given users and cards again after they were written to the database directly, by an import or a
+     * deletion
+     */
+    void reload(Collection<Integer> userIds, Collection<String> cardNumbers);
+
+    /**
+     * Forget the users purged after a soft delete, and their cards
+     */
+    void forgetDeletedUsers();
+}
@@ -0,0 +1,624 @@
+package com.shepherdmoney.interviewproject.store;
+
+import com.shepherdmoney.interviewproject.vo.response.CreditCardView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Card store holding every user and credit card in memory, so that looking them up or creating them never waits for
+ * the database.
+ * <p>
+ * Cards are kept in shards by the hash of their number and users in shards by their id, each shard a plain hash map
+ * guarded by a read-write lock of its own. Where both are locked, the user's shard is locked before the card's.
+ * <p>
+ * A new user or card takes its id from the same database sequence as the entities, in blocks of
+ * {@link #ID_BLOCK_SIZE}, and is visible at once. Its row is queued and written by a single writer thread, up to
+ * {@code card-store.write-batch-size} rows per JDBC batch and transaction, in the order the rows were accepted, so a
+ * card never reaches the database before its user. The ids returned by {@link #findCardIds(Collection)} are of cards
+ * written already, waiting for the writer if needed, so balance history can refer to them. A row that cannot be
+ * written, such as a card number imported meanwhile, is dropped from the store as well.
+ * <p>
+ * The store is rebuilt from the database on startup. Everything else writing users or cards to the database reports
+ * them to {@link #reload}.
+ * <p>
+ * Balance history is not held here. Balance updates commit it together with their idempotency keys under the card
+ * locks, and compaction, recomputation and user deletion rewrite it in the database, so a copy in the shards would be
+ * a second copy to keep in step with all of them. The store takes the card lookups and card creation off the database,
+ * see {@code CardStoreBenchmark} for what that saves against the JPA store.
+ */
+@Slf4j
+public class InMemoryCardStore implements CardStore, AutoCloseable {
+    // allocationSize of the id sequences of User and CreditCard
+    static final int ID_BLOCK_SIZE = 100;
+
+    private static final String INSERT_USER = "insert into my_user (id, name, email, deleted) values (?, ?, ?, false)";
+    private static final String INSERT_CARD =
+            "insert into credit_card (id, issuance_bank, number, user_id) values (?, ?, ?, ?)";
+    private static final Pending STOP = new Pending(-1, null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<Shard<String, CardEntry>> cardShards;
+    private final List<Shard<Integer, UserEntry>> userShards;
+    private final IdBlock userIds = new IdBlock("my_user_seq");
+    private final IdBlock cardIds = new IdBlock("credit_card_seq");
+    private final int writeBatchSize;
+    private final Counter droppedRows;
+
+    // rows accepted but not written yet, in the order they were accepted
+    private final BlockingQueue<Pending> pendingRows = new LinkedBlockingQueue<>();
+    private final ReentrantLock progressLock = new ReentrantLock();
+    private final Condition writtenChanged = progressLock.newCondition();
+    // sequence numbers of the last row accepted and of the last row written or dropped
+    private long accepted;
+    private long written;
+    private final Thread writer;
+
+    public InMemoryCardStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry, int shardCount, int writeBatchSize) {
+        if (shardCount <= 0 || writeBatchSize <= 0) {
+            throw new IllegalArgumentException("Card store shards and write batch size must be positive: "
+                    + shardCount + ", " + writeBatchSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cardShards = shards(shardCount);
+        this.userShards = shards(shardCount);
+        this.writeBatchSize = writeBatchSize;
+        Gauge.builder("card.store.pending.rows", pendingRows, BlockingQueue::size)
+                .description("Users and cards accepted by the in-memory card store but not written yet")
+                .register(meterRegistry);
+        this.droppedRows = Counter.builder("card.store.dropped.rows")
+                .description("Users and cards dropped because their row could not be written")
+                .register(meterRegistry);
+        load();
+        this.writer = new Thread(this::writeLoop, "card-store-writer");
+        writer.start();
+    }
+
+    @Override
+    public int createUser(String name, String email) {
+        UserEntry user = new UserEntry(userIds.next(), false);
+        Shard<Integer, UserEntry> shard = userShard(user.id);
+        shard.lock.writeLock().lock();
+        try {
+            shard.entries.put(user.id, user);
+            accept(new UserRow(user.id, name, email));
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+        return user.id;
+    }
+
+    @Override
+    public boolean userExists(int userId) {
+        UserEntry user = get(userShard(userId), userId);
+        return user != null && !user.deleted;
+    }
+
+    @Override
+    public Optional<Integer> addCard(int userId, String issuanceBank, String number) {
+        // taken before locking, an id is skipped if the number turns out to be taken
+        int cardId = cardIds.next();
+        Shard<Integer, UserEntry> userShard = userShard(userId);
+        Shard<String, CardEntry> cardShard = cardShard(number);
+        userShard.lock.writeLock().lock();
+        try {
+            cardShard.lock.writeLock().lock();
+            try {
+                UserEntry user = userShard.entries.get(userId);
+                // the user may have been deleted since the caller checked
+                if (user == null || user.deleted || cardShard.entries.containsKey(number)) {
+                    return Optional.empty();
+                }
+                CardEntry card = new CardEntry(cardId, userId, issuanceBank, number);
+                card.sequence = accept(new CardRow(card));
+                cardShard.entries.put(number, card);
+                insertInIdOrder(user.cards, card);
+                return Optional.of(cardId);
+            } finally {
+                cardShard.lock.writeLock().unlock();
+            }
+        } finally {
+            userShard.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Integer> findUserId(String cardNumber) {
+        CardEntry card = get(cardShard(cardNumber), cardNumber);
+        if (card == null) {
+            return Optional.empty();
+        }
+        UserEntry user = get(userShard(card.userId), card.userId);
+        return user == null || user.deleted ? Optional.empty() : Optional.of(card.userId);
+    }
+
+    @Override
+    public Optional<Integer> findCardId(String cardNumber) {
+        CardEntry card = activeCard(cardNumber);
+        return card == null ? Optional.empty() : Optional.of(card.id);
+    }
+
+    @Override
+    public Map<String, Integer> findCardIds(Collection<String> cardNumbers) {
+        Map<String, Integer> cardIdsByNumber = new HashMap<>();
+        long lastSequence = 0;
+        for (String cardNumber : cardNumbers) {
+            CardEntry card = activeCard(cardNumber);
+            if (card != null) {
+                cardIdsByNumber.put(cardNumber, card.id);
+                lastSequence = Math.max(lastSequence, card.sequence);
+            }
+        }
+        if (!isWritten(lastSequence)) {
+            awaitWritten(lastSequence);
+            // the cards whose row could not be written are gone
+            cardIdsByNumber.keySet().removeIf(cardNumber -> activeCard(cardNumber) == null);
+        }
+        return cardIdsByNumber;
+    }
+
+    @Override
+    public List<Integer> findCardIds(int userId) {
+        Shard<Integer, UserEntry> shard = userShard(userId);
+        shard.lock.readLock().lock();
+        try {
+            UserEntry user = shard.entries.get(userId);
+            if (user == null) {
+                return List.of();
+            }
+            List<Integer> ids = new ArrayList<>(user.cards.size());
+            for (CardEntry card : user.cards) {
+                ids.add(card.id);
+            }
+            return ids;
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<CreditCardView> findCardViews(int userId, Pageable pageable) {
+        Shard<Integer, UserEntry> shard = userShard(userId);
+        shard.lock.readLock().lock();
+        try {
+            UserEntry user = shard.entries.get(userId);
+            if (user == null || user.deleted) {
+                return List.of();
+            }
+            int from = 0;
+            int to = user.cards.size();
+            if (pageable.isPaged()) {
+                from = (int) Math.min(pageable.getOffset(), to);
+                to = Math.min(from + pageable.getPageSize(), to);
+            }
+            List<CreditCardView> views = new ArrayList<>(to - from);
+            for (CardEntry card : user.cards.subList(from, to)) {
+                views.add(new CreditCardView(card.issuanceBank, card.number));
+            }
+            return views;
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        long target;
+        progressLock.lock();
+        try {
+            target = accepted;
+        } finally {
+            progressLock.unlock();
+        }
+        awaitWritten(target);
+    }
+
+    @Override
+    public void reload(Collection<Integer> userIds, Collection<String> cardNumbers) {
+        if (!userIds.isEmpty()) {
+            Map<Integer, Boolean> deletedById = new HashMap<>();
+            namedParameterJdbcTemplate.query("select id, deleted from my_user where id in (:ids)",
+                    Map.of("ids", userIds), (RowCallbackHandler) rs -> deletedById.put(rs.getInt(1), rs.getBoolean(2)));
+            for (int userId : userIds) {
+                Boolean deleted = deletedById.get(userId);
+                if (deleted == null) {
+                    removeUser(userId);
+                } else {
+                    putUser(userId, deleted);
+                }
+            }
+        }
+        if (!cardNumbers.isEmpty()) {
+            Map<String, CardEntry> stored = new HashMap<>();
+            namedParameterJdbcTemplate.query(
+                    "select id, user_id, issuance_bank, number from credit_card where number in (:numbers)",
+                    Map.of("numbers", cardNumbers), (RowCallbackHandler) rs -> stored.put(rs.getString(4),
+                            new CardEntry(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getString(4))));
+            for (String cardNumber : cardNumbers) {
+                CardEntry current = get(cardShard(cardNumber), cardNumber);
+                CardEntry card = stored.get(cardNumber);
+                if (card == null) {
+                    // a card still waiting for the writer is not in the database yet
+                    if (current != null && isWritten(current.sequence)) {
+                        removeCard(current);
+                    }
+                } else if (current == null || current.id != card.id) {
+                    if (current != null) {
+                        removeCard(current);
+                    }
+                    putCard(card);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forgetDeletedUsers() {
+        List<Integer> deleted = new ArrayList<>();
+        for (Shard<Integer, UserEntry> shard : userShards) {
+            shard.lock.readLock().lock();
+            try {
+                for (UserEntry user : shard.entries.values()) {
+                    if (user.deleted) {
+                        deleted.add(user.id);
+                    }
+                }
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        deleted.forEach(this::removeUser);
+    }
+
+    /**
+     * Write the rows accepted so far and stop the writer
+     */
+    @Override
+    public void close() {
+        pendingRows.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        jdbcTemplate.query("select id, deleted from my_user",
+                (RowCallbackHandler) rs -> putUser(rs.getInt(1), rs.getBoolean(2)));
+        int[] cards = new int[1];
+        // in id order, so every card is appended to its user's list
+        jdbcTemplate.query("select id, user_id, issuance_bank, number from credit_card order by id",
+                (RowCallbackHandler) rs -> {
+                    putCard(new CardEntry(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getString(4)));
+                    cards[0]++;
+                });
+        log.info("Loaded {} cards into the card store in {} ms", cards[0], (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Queue a row for the writer
+     *
+     * @return the sequence number of the row
+     */
+    private long accept(Row row) {
+        progressLock.lock();
+        try {
+            pendingRows.add(new Pending(++accepted, row));
+            return accepted;
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    private boolean isWritten(long sequence) {
+        progressLock.lock();
+        try {
+            return written >= sequence;
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    private void awaitWritten(long sequence) {
+        progressLock.lock();
+        try {
+            while (written < sequence) {
+                writtenChanged.awaitUninterruptibly();
+            }
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(writeBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(pendingRows.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            pendingRows.drainTo(batch, writeBatchSize - 1);
+            // the stop marker is queued after every row
+            if (batch.get(batch.size() - 1) == STOP) {
+                batch.remove(batch.size() - 1);
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+        } catch (RuntimeException e) {
+            // one row that cannot be written fails the whole batch, so the rows are written again one at a time
+            for (Pending pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(pending)));
+                } catch (RuntimeException rowFailure) {
+                    drop(pending.row(), rowFailure);
+                }
+            }
+        }
+        progressLock.lock();
+        try {
+            written = batch.get(batch.size() - 1).sequence();
+            writtenChanged.signalAll();
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    private void insert(List<Pending> batch) {
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> cards = new ArrayList<>();
+        for (Pending pending : batch) {
+            if (pending.row() instanceof UserRow user) {
+                users.add(new Object[]{user.id(), user.name(), user.email()});
+            } else if (pending.row() instanceof CardRow row) {
+                CardEntry card = row.card();
+                cards.add(new Object[]{card.id, card.issuanceBank, card.number, card.userId});
+            }
+        }
+        // a card is accepted after its user, so the users of a batch go first
+        if (!users.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_USER, users);
+        }
+        if (!cards.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_CARD, cards);
+        }
+    }
+
+    private void drop(Row row, RuntimeException cause) {
+        droppedRows.increment();
+        if (row instanceof UserRow user) {
+            log.warn("Dropped user {}, its row could not be written", user.id(), cause);
+            removeUser(user.id());
+        } else if (row instanceof CardRow card) {
+            log.warn("Dropped card {}, its row could not be written", card.card().id, cause);
+            removeCard(card.card());
+        }
+    }
+
+    private void putUser(int userId, boolean deleted) {
+        Shard<Integer, UserEntry> shard = userShard(userId);
+        shard.lock.writeLock().lock();
+        try {
+            UserEntry user = shard.entries.get(userId);
+            if (user == null) {
+                shard.entries.put(userId, new UserEntry(userId, deleted));
+            } else {
+                user.deleted = deleted;
+            }
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUser(int userId) {
+        Shard<Integer, UserEntry> userShard = userShard(userId);
+        userShard.lock.writeLock().lock();
+        try {
+            UserEntry user = userShard.entries.remove(userId);
+            if (user == null) {
+                return;
+            }
+            for (CardEntry card : user.cards) {
+                Shard<String, CardEntry> cardShard = cardShard(card.number);
+                cardShard.lock.writeLock().lock();
+                try {
+                    cardShard.entries.remove(card.number, card);
+                } finally {
+                    cardShard.lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            userShard.lock.writeLock().unlock();
+        }
+    }
+
+    private void putCard(CardEntry card) {
+        Shard<Integer, UserEntry> userShard = userShard(card.userId);
+        Shard<String, CardEntry> cardShard = cardShard(card.number);
+        userShard.lock.writeLock().lock();
+        try {
+            UserEntry user = userShard.entries.get(card.userId);
+            if (user == null) {
+                log.warn("Card {} belongs to unknown user {}, not loaded", card.id, card.userId);
+                return;
+            }
+            cardShard.lock.writeLock().lock();
+            try {
+                cardShard.entries.put(card.number, card);
+                insertInIdOrder(user.cards, card);
+            } finally {
+                cardShard.lock.writeLock().unlock();
+            }
+        } finally {
+            userShard.lock.writeLock().unlock();
+        }
+    }
+
+    private void removeCard(CardEntry card) {
+        Shard<Integer, UserEntry> userShard = userShard(card.userId);
+        Shard<String, CardEntry> cardShard = cardShard(card.number);
+        userShard.lock.writeLock().lock();
+        try {
+            cardShard.lock.writeLock().lock();
+            try {
+                cardShard.entries.remove(card.number, card);
+            } finally {
+                cardShard.lock.writeLock().unlock();
+            }
+            UserEntry user = userShard.entries.get(card.userId);
+            if (user != null) {
+                user.cards.remove(card);
+            }
+        } finally {
+            userShard.lock.writeLock().unlock();
+        }
+    }
+
+    private static void insertInIdOrder(List<CardEntry> cards, CardEntry card) {
+        int index = cards.size();
+        while (index > 0 && cards.get(index - 1).id > card.id) {
+            index--;
+        }
+        cards.add(index, card);
+    }
+
+    private Shard<String, CardEntry> cardShard(String cardNumber) {
+        return cardShards.get(Math.floorMod(cardNumber.hashCode(), cardShards.size()));
+    }
+
+    private Shard<Integer, UserEntry> userShard(int userId) {
+        return userShards.get(Math.floorMod(userId, userShards.size()));
+    }
+
+    // the card with the given number, or null if there is none or its user is soft deleted
+    private CardEntry activeCard(String cardNumber) {
+        CardEntry card = get(cardShard(cardNumber), cardNumber);
+        if (card == null) {
+            return null;
+        }
+        UserEntry user = get(userShard(card.userId), card.userId);
+        return user == null || user.deleted ? null : card;
+    }
+
+    private static <K, V> V get(Shard<K, V> shard, K key) {
+        shard.lock.readLock().lock();
+        try {
+            return shard.entries.get(key);
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    private static <K, V> List<Shard<K, V>> shards(int count) {
+        List<Shard<K, V>> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shards.add(new Shard<>());
+        }
+        return shards;
+    }
+
+    private static final class Shard<K, V> {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<K, V> entries = new HashMap<>();
+    }
+
+    private static final class UserEntry {
+        private final int id;
+        private volatile boolean deleted;
+        // guarded by the lock of the user's shard, in id order
+        private final List<CardEntry> cards = new ArrayList<>();
+
+        private UserEntry(int id, boolean deleted) {
+            this.id = id;
+            this.deleted = deleted;
+        }
+    }
+
+    private static final class CardEntry {
+        private final int id;
+        private final int userId;
+        private final String issuanceBank;
+        private final String number;
+        // sequence number of the card's row, 0 for a card read from the database. Set before the card is published.
+        private long sequence;
+
+        private CardEntry(int id, int userId, String issuanceBank, String number) {
+            this.id = id;
+            this.userId = userId;
+            this.issuanceBank = issuanceBank;
+            this.number = number;
+        }
+    }
+
+    private interface Row {
+    }
+
+    private record UserRow(int id, String name, String email) implements Row {
+    }
+
+    private record CardRow(CardEntry card) implements Row {
+    }
+
+    private record Pending(long sequence, Row row) {
+    }
+
+    /**
+     * Ids taken from a database sequence a block at a time
+     */
+    private final class IdBlock {
+        private final String sequence;
+        private int next = 1;
+        private int last;
+
+        private IdBlock(String sequence) {
+            this.sequence = sequence;
+        }
+
+        synchronized int next() {
+            if (next > last) {
+                Long value = jdbcTemplate.queryForObject("select next value for " + sequence, Long.class);
+                // the pooled optimizer of the entities hands out the block ending at each value it reads, so the ids
+                // taken here and by JPA never overlap
+                last = Math.toIntExact(value);
+                next = Math.max(1, last - ID_BLOCK_SIZE + 1);
+            }
+            return next++;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.shepherdmoney.interviewproject.store;
+
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardKey;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.CreditCardOwnerService;
+import com.shepherdmoney.interviewproject.vo.response.CreditCardView;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Card store reading and writing the database through the JPA repositories, with card owners cached by
+ * {@link CreditCardOwnerService}
+ */
+public class JpaCardStore implements CardStore {
+
+    private final UserRepository userRepository;
+    private final CreditCardRepository creditCardRepository;
+    private final CreditCardOwnerService creditCardOwnerService;
+
+    public JpaCardStore(UserRepository userRepository, CreditCardRepository creditCardRepository,
+                        CreditCardOwnerService creditCardOwnerService) {
+        this.userRepository = userRepository;
+        this.creditCardRepository = creditCardRepository;
+        this.creditCardOwnerService = creditCardOwnerService;
+    }
+
+    @Override
+    public int createUser(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return userRepository.save(user).getId();
+    }
+
+    @Override
+    public boolean userExists(int userId) {
+        return userRepository.existsByIdAndDeletedFalse(userId);
+    }
+
+    @Override
+    public Optional<Integer> addCard(int userId, String issuanceBank, String number) {
+        // Card numbers are unique
+        if (creditCardRepository.existsByNumber(number)) {
+            return Optional.empty();
+        }
+        CreditCard creditCard = new CreditCard();
+        creditCard.setUser(userRepository.getReferenceById(userId));
+        creditCard.setIssuanceBank(issuanceBank);
+        creditCard.setNumber(number);
+        int creditCardId;
+        try {
+            // flushed here, so that a number added concurrently fails the insert rather than the caller
+            creditCardId = creditCardRepository.saveAndFlush(creditCard).getId();
+        } catch (DataIntegrityViolationException e) {
+            if (creditCardRepository.existsByNumber(number)) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+        creditCardOwnerService.invalidate(number);
+        return Optional.of(creditCardId);
+    }
+
+    @Override
+    public Optional<Integer> findUserId(String cardNumber) {
+        return creditCardOwnerService.findUserId(cardNumber);
+    }
+
+    @Override
+    public Optional<Integer> findCardId(String cardNumber) {
+        return creditCardRepository.findIdByNumber(cardNumber);
+    }
+
+    @Override
+    public Map<String, Integer> findCardIds(Collection<String> cardNumbers) {
+        Map<String, Integer> cardIdsByNumber = new HashMap<>();
+        for (CreditCardKey key : creditCardRepository.findKeysByNumberIn(cardNumbers)) {
+            cardIdsByNumber.putIfAbsent(key.getNumber(), key.getId());
+        }
+        return cardIdsByNumber;
+    }
+
+    @Override
+    public List<Integer> findCardIds(int userId) {
+        return creditCardRepository.findIdsByUserId(userId);
+    }
+
+    @Override
+    public List<CreditCardView> findCardViews(int userId, Pageable pageable) {
+        return creditCardRepository.findViewsByUserId(userId, pageable);
+    }
+
+    @Override
+    public void flush() {
+        // every write is in the database when it returns
+    }
+
+    @Override
+    public void reload(Collection<Integer> userIds, Collection<String> cardNumbers) {
+        creditCardOwnerService.invalidateAll(cardNumbers);
+    }
+
+    @Override
+    public void forgetDeletedUsers() {
+        // the owners of soft deleted cards were invalidated when their user was marked
+    }
+}
@@ -0,0 +1,14 @@
+package com.shepherdmoney.interviewproject.vo.request;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class BalanceAtPayload {
+
+    private List<String> creditCardNumbers;
+
+    private LocalDate date;
+}
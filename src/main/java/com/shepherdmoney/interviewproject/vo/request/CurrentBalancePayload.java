@@ -0,0 +1,11 @@
+package com.shepherdmoney.interviewproject.vo.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CurrentBalancePayload {
+
+    private List<String> creditCardNumbers;
+}
@@ -0,0 +1,15 @@
+package com.shepherdmoney.interviewproject.vo.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ImportUserPayload {
+
+    private String name;
+
+    private String email;
+
+    private List<ImportCreditCardPayload> cards;
+}
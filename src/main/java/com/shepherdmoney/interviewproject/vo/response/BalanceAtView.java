@@ -0,0 +1,19 @@
+package com.shepherdmoney.interviewproject.vo.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class BalanceAtView {
+
+    private String creditCardNumber;
+
+    private LocalDate date;
+
+    private double balance;
+}
@@ -0,0 +1,19 @@
+package com.shepherdmoney.interviewproject.vo.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class BalanceHistoryPage {
+
+    private List<BalanceHistoryView> items;
+
+    // pass as "after" to get the next page, null on the last page
+    private LocalDate nextCursor;
+}
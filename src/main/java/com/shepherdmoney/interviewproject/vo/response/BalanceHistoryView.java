@@ -0,0 +1,21 @@
+package com.shepherdmoney.interviewproject.vo.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class BalanceHistoryView {
+
+    private LocalDate date;
+
+    // net amount of the transactions made on this date
+    private double amount;
+
+    // balance on this date, before this date's amount is applied
+    private double balance;
+}
@@ -0,0 +1,26 @@
+package com.shepherdmoney.interviewproject.vo.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class BalanceSummaryView {
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    private long days;
+
+    private double minBalance;
+
+    private double maxBalance;
+
+    // mean of the balances of every day in the window, rounded to cents
+    private double averageBalance;
+}
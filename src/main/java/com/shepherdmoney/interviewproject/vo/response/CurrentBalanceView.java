@@ -0,0 +1,25 @@
+package com.shepherdmoney.interviewproject.vo.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class CurrentBalanceView {
+
+    private String creditCardNumber;
+
+    private LocalDate asOf;
+
+    // balance after every transaction up to and including asOf
+    private double balance;
+
+    // when the balance was read from the balance history, not when it last changed. It is served from the cache
+    // until the card's history changes or the day ends.
+    private Instant computedAt;
+}
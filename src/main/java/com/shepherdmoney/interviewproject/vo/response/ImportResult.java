@@ -0,0 +1,24 @@
+package com.shepherdmoney.interviewproject.vo.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class ImportResult {
+
+    private long usersImported;
+
+    // users without a name or email, their cards are counted as rejected too
+    private long usersRejected;
+
+    private long cardsImported;
+
+    // cards without an issuance bank or number, or whose number already exists
+    private long cardsRejected;
+
+    // why the import stopped early, null if the whole input was read. Rows counted as imported are committed.
+    private String error;
+}
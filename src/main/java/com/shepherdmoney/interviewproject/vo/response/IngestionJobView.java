@@ -0,0 +1,42 @@
+package com.shepherdmoney.interviewproject.vo.response;
+
+import com.shepherdmoney.interviewproject.ingestion.IngestionJob;
+import com.shepherdmoney.interviewproject.ingestion.IngestionJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class IngestionJobView {
+
+    private String jobId;
+
+    private IngestionJobStatus status;
+
+    private Instant submittedAt;
+
+    // null until every partition of the job is done
+    private Instant completedAt;
+
+    private int transactions;
+
+    private int appliedTransactions;
+
+    private String error;
+
+    public static IngestionJobView of(IngestionJob job) {
+        return IngestionJobView.builder()
+                .jobId(job.getId())
+                .status(job.getStatus())
+                .submittedAt(job.getSubmittedAt())
+                .completedAt(job.getCompletedAt())
+                .transactions(job.getTransactions())
+                .appliedTransactions(job.getAppliedTransactions())
+                .error(job.getError())
+                .build();
+    }
+}
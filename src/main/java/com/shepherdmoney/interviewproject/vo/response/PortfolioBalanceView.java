@@ -0,0 +1,24 @@
+package com.shepherdmoney.interviewproject.vo.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class PortfolioBalanceView {
+
+    private int userId;
+
+    private LocalDate asOf;
+
+    // total balance over all of the user's cards, after every transaction up to and including asOf
+    private double balance;
+
+    // total balance on every one of the last days up to asOf, oldest first
+    private List<BalanceHistoryView> series;
+}
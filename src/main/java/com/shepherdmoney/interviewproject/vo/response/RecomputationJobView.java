@@ -0,0 +1,52 @@
+package com.shepherdmoney.interviewproject.vo.response;
+
+import com.shepherdmoney.interviewproject.service.RecomputationJob;
+import com.shepherdmoney.interviewproject.service.RecomputationJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class RecomputationJobView {
+
+    private String jobId;
+
+    private RecomputationJobStatus status;
+
+    private Instant submittedAt;
+
+    // null until the first chunk is picked up, and until every chunk is done
+    private Instant startedAt;
+
+    private Instant completedAt;
+
+    private int cards;
+
+    private int processedCards;
+
+    private int failedCards;
+
+    // since the job started, up to its completion
+    private double cardsPerSecond;
+
+    private String error;
+
+    public static RecomputationJobView of(RecomputationJob job) {
+        return RecomputationJobView.builder()
+                .jobId(job.getId())
+                .status(job.getStatus())
+                .submittedAt(job.getSubmittedAt())
+                .startedAt(job.getStartedAt())
+                .completedAt(job.getCompletedAt())
+                .cards(job.getCards())
+                .processedCards(job.getProcessedCards())
+                .failedCards(job.getFailedCards())
+                .cardsPerSecond(job.getCardsPerSecond())
+                .error(job.getError())
+                .build();
+    }
+}
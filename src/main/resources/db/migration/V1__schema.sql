@@ -0,0 +1,57 @@
+-- Schema of the entities in com.shepherdmoney.interviewproject.model, as Hibernate generates it for H2.
+-- Changes to the entities need a new migration, the faststart profile does not generate the schema.
+
+create sequence my_user_seq start with 1 increment by 100;
+create sequence credit_card_seq start with 1 increment by 100;
+create sequence balance_history_seq start with 1 increment by 50;
+create sequence balance_snapshot_seq start with 1 increment by 50;
+
+create table my_user (
+    id integer not null,
+    name varchar(255),
+    email varchar(255),
+    deleted boolean default false not null,
+    primary key (id)
+);
+create index ix_my_user_deleted on my_user (deleted);
+
+create table credit_card (
+    id integer not null,
+    issuance_bank varchar(255),
+    number varchar(255),
+    user_id integer not null,
+    primary key (id),
+    constraint fk_credit_card_user foreign key (user_id) references my_user
+);
+create unique index ux_credit_card_number on credit_card (number);
+
+create table balance_history (
+    id integer not null,
+    date timestamp(6) with time zone,
+    amount float(53) not null,
+    card_id integer not null,
+    primary key (id),
+    constraint fk_balance_history_card foreign key (card_id) references credit_card
+);
+create index ix_balance_history_card_date on balance_history (card_id, date);
+
+create table balance_snapshot (
+    id integer not null,
+    month timestamp(6) with time zone,
+    next_month timestamp(6) with time zone,
+    opening_balance float(53) not null,
+    closing_balance float(53) not null,
+    min_balance float(53) not null,
+    max_balance float(53) not null,
+    card_id integer not null,
+    primary key (id),
+    constraint fk_balance_snapshot_card foreign key (card_id) references credit_card
+);
+create unique index ux_balance_snapshot_card_month on balance_snapshot (card_id, month);
+
+create table processed_batch (
+    idempotency_key varchar(128) not null,
+    applied_at timestamp(6) with time zone,
+    primary key (idempotency_key)
+);
+create index ix_processed_batch_applied_at on processed_batch (applied_at);
@@ -0,0 +1,3 @@
+-- one balance history entry per card and day, keyset paging by date relies on it
+drop index ix_balance_history_card_date;
+create unique index ux_balance_history_card_date on balance_history (card_id, date);
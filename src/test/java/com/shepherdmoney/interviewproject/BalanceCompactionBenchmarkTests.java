@@ -0,0 +1,130 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceCompactionService;
+import com.shepherdmoney.interviewproject.service.BalanceHistoryService;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Row count and latency of loading a card's history and balance, before and after compacting ten years of daily
+ * history into months. Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:balance-compaction-benchmark")
+@Tag("benchmark")
+public class BalanceCompactionBenchmarkTests {
+    private static final int CARDS = 200;
+    private static final int DAYS = 3_650;
+    private static final int LOADS = 500;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceCompactionService balanceCompactionService;
+
+    @Autowired
+    private BalanceHistoryService balanceHistoryService;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void measureCompaction() {
+        LocalDate firstDay = LocalDate.now(ZoneOffset.UTC).minusDays(DAYS);
+        List<String> numbers = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        createCardsWithHistory(firstDay, numbers, ids);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+        long rowsBefore = historyRows();
+        long[] loadBefore = measureCardLoads(ids);
+        double balanceBefore = balanceQueryService.getBalanceOn(numbers.get(0), today).orElseThrow();
+
+        long start = System.nanoTime();
+        long removed = balanceCompactionService.compact();
+        long compactionMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long rowsAfter = historyRows();
+        long[] loadAfter = measureCardLoads(ids);
+        System.out.printf("history rows %,d -> %,d (%.1f%% fewer), compaction took %,d ms%n", rowsBefore, rowsAfter,
+                100.0 * (rowsBefore - rowsAfter) / rowsBefore, compactionMillis);
+        System.out.printf("card load    p50 %,8d us -> %,8d us   p99 %,8d us -> %,8d us%n",
+                loadBefore[0] / 1000, loadAfter[0] / 1000, loadBefore[1] / 1000, loadAfter[1] / 1000);
+
+        assertEquals(rowsBefore - rowsAfter, removed);
+        assertTrue(rowsAfter < rowsBefore / 2, "compaction removed less than half of the rows");
+        assertEquals(balanceBefore, balanceQueryService.getBalanceOn(numbers.get(0), today).orElseThrow());
+    }
+
+    /**
+     * p50 and p99 in nanoseconds of streaming the whole history of a random card
+     */
+    private long[] measureCardLoads(List<Integer> ids) {
+        Random random = new Random(42);
+        long[] nanos = new long[LOADS];
+        for (int i = -LOADS / 10; i < LOADS; i++) {
+            long start = System.nanoTime();
+            balanceHistoryService.streamHistory(ids.get(random.nextInt(ids.size())),
+                    BalanceHistoryService.EARLIEST_DATE, BalanceHistoryService.LATEST_DATE, view -> {
+                    });
+            if (i >= 0) {
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        return new long[]{nanos[LOADS / 2], nanos[LOADS * 99 / 100]};
+    }
+
+    private long historyRows() {
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BALANCE_HISTORY", Long.class);
+        return rows == null ? 0 : rows;
+    }
+
+    // CARDS cards, each with an amount of 1.0 on every one of DAYS days up to today
+    private void createCardsWithHistory(LocalDate firstDay, List<String> numbers, List<Integer> ids) {
+        User user = new User();
+        user.setName("compaction-benchmark-user");
+        user.setEmail("compaction-benchmark-user@example.com");
+        user = userRepository.save(user);
+        List<CreditCard> cards = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber("compaction-benchmark-" + i);
+            cards.add(card);
+        }
+        for (CreditCard card : creditCardRepository.saveAll(cards)) {
+            numbers.add(card.getNumber());
+            ids.add(card.getId());
+            jdbcTemplate.update("INSERT INTO BALANCE_HISTORY (ID, \"DATE\", AMOUNT, CARD_ID) "
+                    + "SELECT ? + X, DATEADD(DAY, X - 1, CAST(? AS TIMESTAMP WITH TIME ZONE)), 1.0, ? "
+                    + "FROM SYSTEM_RANGE(1, ?)", 100_000_000L + (long) ids.size() * DAYS,
+                    firstDay + " 00:00:00+00", card.getId(), DAYS);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.model.BalanceSnapshot;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.BalanceSnapshotRepository;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceCompactionService;
+import com.shepherdmoney.interviewproject.service.BalanceHistoryService;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.service.OpeningBalanceService;
+import com.shepherdmoney.interviewproject.vo.response.BalanceSummaryView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:balance-compaction")
+public class BalanceCompactionTests {
+    // long before the default horizon of a year
+    private static final LocalDate JANUARY = LocalDate.parse("2020-01-01");
+    private static final LocalDate RECENT = LocalDate.now(ZoneOffset.UTC).minusDays(10);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Autowired
+    private BalanceUpdateService balanceUpdateService;
+
+    @Autowired
+    private BalanceCompactionService balanceCompactionService;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Autowired
+    private OpeningBalanceService openingBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void createReadOnlyTransaction() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Test
+    void shouldRollOldHistoryIntoMonthsAndKeepBalances() {
+        int cardId = createCard("compaction-111");
+        // January: +100 on the 5th, -300 on the 10th, +50 on the 31st. March: +10 every day. Recent: +7 on one day.
+        TransactionBatch batch = new TransactionBatch();
+        batch.add("compaction-111", day(JANUARY.plusDays(4)), 10_000);
+        batch.add("compaction-111", day(JANUARY.plusDays(9)), -30_000);
+        batch.add("compaction-111", day(JANUARY.plusDays(30)), 5_000);
+        LocalDate march = JANUARY.plusMonths(2);
+        for (int i = 0; i < 31; i++) {
+            batch.add("compaction-111", day(march.plusDays(i)), 1_000);
+        }
+        batch.add("compaction-111", day(RECENT), 700);
+        assertTrue(balanceUpdateService.applyBatch(batch));
+
+        List<LocalDate> probes = List.of(JANUARY, JANUARY.plusMonths(1), march, march.plusMonths(1),
+                RECENT, RECENT.plusDays(1));
+        List<Double> before = balancesOn("compaction-111", probes);
+        assertEquals(35, historyRows(cardId));
+
+        assertEquals(35 - 3, balanceCompactionService.compact());
+
+        // one entry per compacted month, the recent day untouched
+        assertEquals(3, historyRows(cardId));
+        assertEquals(before, balancesOn("compaction-111", probes));
+        List<BalanceSnapshot> snapshots = snapshots(cardId);
+        assertEquals(2, snapshots.size());
+        BalanceSnapshot january = snapshots.get(0);
+        assertEquals(0.0, january.getOpeningBalance());
+        assertEquals(-150.0, january.getClosingBalance());
+        assertEquals(-200.0, january.getMinBalance());
+        assertEquals(100.0, january.getMaxBalance());
+        BalanceSnapshot marchSnapshot = snapshots.get(1);
+        assertEquals(-150.0, marchSnapshot.getOpeningBalance());
+        assertEquals(160.0, marchSnapshot.getClosingBalance());
+        assertEquals(-150.0, marchSnapshot.getMinBalance());
+        assertEquals(150.0, marchSnapshot.getMaxBalance());
+
+        // the summary of a window over a compacted month sees the month's envelope
+        BalanceSummaryView summary = balanceQueryService.summarize(cardId, JANUARY, JANUARY.plusDays(30));
+        assertEquals(-200.0, summary.getMinBalance());
+        assertEquals(100.0, summary.getMaxBalance());
+
+        // nothing left to compact
+        assertEquals(0, balanceCompactionService.compact());
+    }
+
+    @Test
+    void shouldApplyBackDatedTransactionToCompactedMonth() {
+        int cardId = createCard("compaction-222");
+        TransactionBatch batch = new TransactionBatch();
+        batch.add("compaction-222", day(JANUARY.plusDays(4)), 10_000);
+        batch.add("compaction-222", day(JANUARY.plusMonths(2).plusDays(4)), 2_000);
+        assertTrue(balanceUpdateService.applyBatch(batch));
+        balanceCompactionService.compact();
+
+        TransactionBatch backDated = new TransactionBatch();
+        backDated.add("compaction-222", day(JANUARY.plusDays(14)), 5_000);
+        assertTrue(balanceUpdateService.applyBatch(backDated));
+
+        // added to January's entry, and January's and March's snapshots moved
+        assertEquals(2, historyRows(cardId));
+        assertEquals(150.0, balanceQueryService.getBalanceOn("compaction-222", JANUARY.plusMonths(1)).orElseThrow());
+        assertEquals(170.0, balanceQueryService.getBalanceOn("compaction-222", JANUARY.plusMonths(3)).orElseThrow());
+        List<BalanceSnapshot> snapshots = snapshots(cardId);
+        assertEquals(150.0, snapshots.get(0).getClosingBalance());
+        assertEquals(150.0, snapshots.get(0).getMaxBalance());
+        assertEquals(150.0, snapshots.get(1).getOpeningBalance());
+        assertEquals(170.0, snapshots.get(1).getClosingBalance());
+        assertEquals(0, balanceCompactionService.compact());
+    }
+
+    @Test
+    void shouldLeaveEntriesBeforeEarliestDateInPlace() {
+        // written before times were bounded, compaction neither rolls it up nor deletes it
+        int cardId = createCard("compaction-333");
+        TransactionBatch batch = new TransactionBatch();
+        batch.add("compaction-333", day(BalanceHistoryService.EARLIEST_DATE.minusDays(10)), 4_000);
+        batch.add("compaction-333", day(JANUARY.plusDays(4)), 10_000);
+        batch.add("compaction-333", day(JANUARY.plusDays(9)), 1_000);
+        assertTrue(balanceUpdateService.applyBatch(batch));
+        List<LocalDate> probes = List.of(JANUARY, JANUARY.plusMonths(1));
+        List<Double> before = balancesOn("compaction-333", probes);
+
+        assertEquals(1, balanceCompactionService.compact());
+
+        assertEquals(2, historyRows(cardId));
+        assertEquals(before, balancesOn("compaction-333", probes));
+        // the entry still counts towards the balances of the snapshot
+        assertEquals(40.0, snapshots(cardId).get(0).getOpeningBalance());
+        assertEquals(0, balanceCompactionService.compact());
+    }
+
+    @Test
+    void shouldReadBalancesFromLatestCompactedMonth() {
+        int cardId = createCard("compaction-444");
+        TransactionBatch batch = new TransactionBatch();
+        batch.add("compaction-444", day(JANUARY.plusDays(4)), 10_000);
+        batch.add("compaction-444", day(JANUARY.plusMonths(2).plusDays(4)), 2_000);
+        batch.add("compaction-444", day(RECENT), 700);
+        assertTrue(balanceUpdateService.applyBatch(batch));
+        balanceCompactionService.compact();
+
+        // a read that summed the whole history would see January's entry change, the reads start from March's end
+        jdbcTemplate.update("UPDATE BALANCE_HISTORY SET AMOUNT = 1000000 WHERE CARD_ID = ? AND \"DATE\" < ?",
+                cardId, Timestamp.from(JANUARY.plusMonths(1).atStartOfDay(ZoneOffset.UTC).toInstant()));
+        assertEquals(120.0, openingBalance(cardId, JANUARY.plusMonths(3)));
+        assertEquals(127.0, openingBalance(cardId, RECENT.plusDays(1)));
+        assertEquals(Map.of(cardId, 12_700L), readOnlyTransaction.execute(status ->
+                openingBalanceService.openingBalances(List.of(cardId), RECENT.plusDays(1))));
+        // within March the balance reads as its opening balance
+        assertEquals(100.0, openingBalance(cardId, JANUARY.plusMonths(2).plusDays(10)));
+    }
+
+    private int createCard(String number) {
+        User user = new User();
+        user.setName("compaction-user");
+        user.setEmail("compaction-user@example.com");
+        user = userRepository.save(user);
+        CreditCard card = new CreditCard();
+        card.setUser(user);
+        card.setIssuanceBank("BoK");
+        card.setNumber(number);
+        return creditCardRepository.save(card).getId();
+    }
+
+    private double openingBalance(int cardId, LocalDate day) {
+        Long balance = readOnlyTransaction.execute(status -> openingBalanceService.openingBalance(cardId, day));
+        return balance == null ? 0 : balance / 100.0;
+    }
+
+    private List<Double> balancesOn(String cardNumber, List<LocalDate> days) {
+        List<Double> balances = new ArrayList<>();
+        for (LocalDate day : days) {
+            balances.add(balanceQueryService.getBalanceOn(cardNumber, day).orElseThrow());
+        }
+        return balances;
+    }
+
+    private int historyRows(int cardId) {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BALANCE_HISTORY WHERE CARD_ID = ?",
+                Integer.class, cardId);
+        return rows == null ? 0 : rows;
+    }
+
+    private List<BalanceSnapshot> snapshots(int cardId) {
+        return balanceSnapshotRepository.findOverlapping(cardId, Instant.EPOCH, Instant.parse("9999-01-01T00:00:00Z"));
+    }
+
+    private static int day(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+}
@@ -0,0 +1,151 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BalanceHistoryControllerTests {
+    private static final LocalDate DAY = LocalDate.parse("2023-04-10");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @BeforeEach
+    void createCardWithHistory() throws Exception {
+        if (creditCardRepository.existsByNumber("history-111")) {
+            return;
+        }
+        User user = new User();
+        user.setName("history-user");
+        user.setEmail("history-user@example.com");
+        user = userRepository.save(user);
+        CreditCard card = new CreditCard();
+        card.setUser(user);
+        card.setIssuanceBank("BoK");
+        card.setNumber("history-111");
+        creditCardRepository.save(card);
+
+        // 10 on each of 2023-04-10 .. 2023-04-14
+        UpdateBalancePayload[] payload = new UpdateBalancePayload[5];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = new UpdateBalancePayload();
+            payload[i].setCreditCardNumber("history-111");
+            payload[i].setTransactionTime(DAY.plusDays(i).atStartOfDay(ZoneOffset.UTC).toInstant());
+            payload[i].setTransactionAmount(10.0);
+        }
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldPageThroughHistoryWithCursor() throws Exception {
+        mockMvc.perform(get("/credit-card:balance-history")
+                        .param("creditCardNumber", "history-111")
+                        .param("from", "2023-04-11")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].date").value("2023-04-11"))
+                .andExpect(jsonPath("$.items[0].balance").value(10.0))
+                .andExpect(jsonPath("$.items[1].date").value("2023-04-12"))
+                .andExpect(jsonPath("$.items[1].balance").value(20.0))
+                .andExpect(jsonPath("$.nextCursor").value("2023-04-12"));
+
+        mockMvc.perform(get("/credit-card:balance-history")
+                        .param("creditCardNumber", "history-111")
+                        .param("from", "2023-04-11")
+                        .param("after", "2023-04-12")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].date").value("2023-04-13"))
+                .andExpect(jsonPath("$.items[0].balance").value(30.0))
+                .andExpect(jsonPath("$.items[1].date").value("2023-04-14"))
+                .andExpect(jsonPath("$.items[1].balance").value(40.0));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenHistoryCardNotFound() throws Exception {
+        mockMvc.perform(get("/credit-card:balance-history")
+                        .param("creditCardNumber", "history-999"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldStreamHistoryAsNdjson() throws Exception {
+        MvcResult asyncResult = mockMvc.perform(get("/credit-card:balance-history-stream")
+                        .param("creditCardNumber", "history-111")
+                        .param("to", "2023-04-12"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.trim().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(20.0, objectMapper.readTree(lines[2]).get("balance").asDouble());
+    }
+
+    @Test
+    void shouldStreamGapFreeDailySeries() throws Exception {
+        MvcResult asyncResult = mockMvc.perform(get("/credit-card:balance-series")
+                        .param("creditCardNumber", "history-111")
+                        .param("from", "2023-04-08")
+                        .param("to", "2023-04-17"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.trim().split("\n");
+        assertEquals(10, lines.length);
+        assertEquals("2023-04-08", objectMapper.readTree(lines[0]).get("date").asText());
+        assertEquals(0.0, objectMapper.readTree(lines[0]).get("amount").asDouble());
+        assertEquals(10.0, objectMapper.readTree(lines[2]).get("amount").asDouble());
+        assertEquals(0.0, objectMapper.readTree(lines[2]).get("balance").asDouble());
+        assertEquals(50.0, objectMapper.readTree(lines[9]).get("balance").asDouble());
+        assertEquals(0.0, objectMapper.readTree(lines[9]).get("amount").asDouble());
+    }
+
+    @Test
+    void shouldRejectDailySeriesWithoutRange() throws Exception {
+        mockMvc.perform(get("/credit-card:balance-series")
+                        .param("creditCardNumber", "history-111")
+                        .param("from", "2023-04-08"))
+                .andExpect(status().isBadRequest());
+    }
+}
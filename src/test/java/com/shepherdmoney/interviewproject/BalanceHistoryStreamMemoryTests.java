@@ -0,0 +1,83 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceHistoryService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streams the history of a card with a million entries and checks that the heap in use stays flat while doing so.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:history-stream;LAZY_QUERY_EXECUTION=TRUE")
+@Tag("benchmark")
+public class BalanceHistoryStreamMemoryTests {
+    private static final int ROWS = 1_000_000;
+    private static final int SAMPLE_EVERY = 100_000;
+    private static final long MAX_HEAP_GROWTH = 32L * 1024 * 1024;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceHistoryService balanceHistoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldStreamMillionRowHistoryInFlatMemory() {
+        User user = new User();
+        user.setName("stream-user");
+        user.setEmail("stream-user@example.com");
+        user = userRepository.save(user);
+        CreditCard card = new CreditCard();
+        card.setUser(user);
+        card.setIssuanceBank("BoK");
+        card.setNumber("stream-111");
+        int cardId = creditCardRepository.save(card).getId();
+
+        // one entry of 1.0 per day, starting 1000-01-01
+        jdbcTemplate.update("INSERT INTO BALANCE_HISTORY (ID, \"DATE\", AMOUNT, CARD_ID) "
+                + "SELECT X + 100000000, DATEADD(DAY, X - 1, TIMESTAMP WITH TIME ZONE '1000-01-01 00:00:00+00'), 1.0, ? "
+                + "FROM SYSTEM_RANGE(1, ?)", cardId, ROWS);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = usedHeapAfterGc(memory);
+        long[] rows = new long[1];
+        long[] peak = new long[]{baseline};
+        double[] lastBalance = new double[1];
+        balanceHistoryService.streamHistory(cardId, BalanceHistoryService.EARLIEST_DATE,
+                BalanceHistoryService.LATEST_DATE, view -> {
+                    lastBalance[0] = view.getBalance();
+                    if (++rows[0] % SAMPLE_EVERY == 0) {
+                        peak[0] = Math.max(peak[0], usedHeapAfterGc(memory));
+                    }
+                });
+
+        System.out.printf("streamed %,d rows, heap growth %,d KB%n", rows[0], (peak[0] - baseline) / 1024);
+        assertEquals(ROWS, rows[0]);
+        assertEquals(ROWS - 1, lastBalance[0]);
+        assertTrue(peak[0] - baseline < MAX_HEAP_GROWTH, "heap grew while streaming");
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,107 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Latency of point-in-time, window summary and batch balance queries against cards with long histories.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:balance-query-benchmark")
+@Tag("benchmark")
+public class BalanceQueryBenchmarkTests {
+    private static final LocalDate FIRST_DAY = LocalDate.parse("1900-01-01");
+    private static final int CARDS = 100;
+    private static final int DAYS = 20_000;
+    private static final int QUERIES = 500;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void measureQueryLatency() {
+        List<String> cards = new ArrayList<>();
+        List<Integer> cardIds = new ArrayList<>();
+        createCardsWithHistory(cards, cardIds);
+        Random random = new Random(42);
+
+        measure("balance-at", i -> balanceQueryService.getBalanceOn(cards.get(random.nextInt(CARDS)),
+                FIRST_DAY.plusDays(random.nextInt(DAYS))));
+        measure("balance-summary, 30 days", i -> {
+            LocalDate from = FIRST_DAY.plusDays(random.nextInt(DAYS - 30));
+            balanceQueryService.summarize(cardIds.get(random.nextInt(CARDS)), from, from.plusDays(29));
+        });
+        measure("balance-summary, 365 days", i -> {
+            LocalDate from = FIRST_DAY.plusDays(random.nextInt(DAYS - 365));
+            balanceQueryService.summarize(cardIds.get(random.nextInt(CARDS)), from, from.plusDays(364));
+        });
+        measure("balance-at, batch of 100 cards", i -> balanceQueryService.getBalancesOn(cards,
+                FIRST_DAY.plusDays(random.nextInt(DAYS))));
+
+        assertEquals(DAYS, balanceQueryService.getBalanceOn(cards.get(0), FIRST_DAY.plusDays(DAYS)).orElseThrow());
+    }
+
+    private static void measure(String name, IntConsumer query) {
+        for (int i = 0; i < QUERIES / 10; i++) {
+            query.accept(i);
+        }
+        long[] nanos = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            query.accept(i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-32s p50 %,8d us   p99 %,8d us%n", name, nanos[QUERIES / 2] / 1000,
+                nanos[QUERIES * 99 / 100] / 1000);
+    }
+
+    // CARDS cards, each with an amount of 1.0 on every one of DAYS days
+    private void createCardsWithHistory(List<String> numbers, List<Integer> ids) {
+        User user = new User();
+        user.setName("query-benchmark-user");
+        user.setEmail("query-benchmark-user@example.com");
+        user = userRepository.save(user);
+        List<CreditCard> cards = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber("query-benchmark-" + i);
+            cards.add(card);
+        }
+        for (CreditCard card : creditCardRepository.saveAll(cards)) {
+            numbers.add(card.getNumber());
+            ids.add(card.getId());
+            jdbcTemplate.update("INSERT INTO BALANCE_HISTORY (ID, \"DATE\", AMOUNT, CARD_ID) "
+                    + "SELECT ? + X, DATEADD(DAY, X - 1, TIMESTAMP WITH TIME ZONE '1900-01-01 00:00:00+00'), 1.0, ? "
+                    + "FROM SYSTEM_RANGE(1, ?)", 100_000_000L + (long) ids.size() * DAYS, card.getId(), DAYS);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.vo.request.BalanceAtPayload;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BalanceQueryControllerTests {
+    private static final LocalDate DAY = LocalDate.parse("2023-04-10");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @BeforeEach
+    void createCardsWithHistory() throws Exception {
+        if (creditCardRepository.existsByNumber("query-111")) {
+            return;
+        }
+        User user = new User();
+        user.setName("query-user");
+        user.setEmail("query-user@example.com");
+        user = userRepository.save(user);
+        for (String number : new String[]{"query-111", "query-222"}) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber(number);
+            creditCardRepository.save(card);
+        }
+
+        // query-111: 10 on 04-10, 20 on 04-12 and -5 on 04-13, query-222: 7 on 04-10
+        UpdateBalancePayload[] payload = {
+                transaction("query-111", DAY, 10.0),
+                transaction("query-111", DAY.plusDays(2), 20.0),
+                transaction("query-111", DAY.plusDays(3), -5.0),
+                transaction("query-222", DAY, 7.0)
+        };
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldReturnBalanceAtDate() throws Exception {
+        mockMvc.perform(get("/credit-card:balance-at")
+                        .param("creditCardNumber", "query-111")
+                        .param("date", "2023-04-10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(0.0));
+        mockMvc.perform(get("/credit-card:balance-at")
+                        .param("creditCardNumber", "query-111")
+                        .param("date", "2023-04-14"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.date").value("2023-04-14"))
+                .andExpect(jsonPath("$.balance").value(25.0));
+        mockMvc.perform(get("/credit-card:balance-at")
+                        .param("creditCardNumber", "query-unknown")
+                        .param("date", "2023-04-14"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBalancesOfManyCards() throws Exception {
+        BalanceAtPayload payload = new BalanceAtPayload();
+        payload.setCreditCardNumbers(List.of("query-222", "query-111"));
+        payload.setDate(LocalDate.parse("2023-04-13"));
+        mockMvc.perform(post("/credit-card:balance-at")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].creditCardNumber").value("query-222"))
+                .andExpect(jsonPath("$[0].balance").value(7.0))
+                .andExpect(jsonPath("$[1].creditCardNumber").value("query-111"))
+                .andExpect(jsonPath("$[1].balance").value(30.0));
+
+        payload.setCreditCardNumbers(List.of("query-111", "query-unknown"));
+        mockMvc.perform(post("/credit-card:balance-at")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldSummarizeBalancesOverWindow() throws Exception {
+        // daily balances 0, 10, 10, 30, 25
+        mockMvc.perform(get("/credit-card:balance-summary")
+                        .param("creditCardNumber", "query-111")
+                        .param("from", "2023-04-10")
+                        .param("to", "2023-04-14"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.days").value(5))
+                .andExpect(jsonPath("$.minBalance").value(0.0))
+                .andExpect(jsonPath("$.maxBalance").value(30.0))
+                .andExpect(jsonPath("$.averageBalance").value(15.0));
+        // no entry inside the window
+        mockMvc.perform(get("/credit-card:balance-summary")
+                        .param("creditCardNumber", "query-111")
+                        .param("from", "2023-05-01")
+                        .param("to", "2023-05-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.minBalance").value(25.0))
+                .andExpect(jsonPath("$.averageBalance").value(25.0));
+        mockMvc.perform(get("/credit-card:balance-summary")
+                        .param("creditCardNumber", "query-111")
+                        .param("from", "2023-04-14")
+                        .param("to", "2023-04-10"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static UpdateBalancePayload transaction(String cardNumber, LocalDate day, double amount) {
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber(cardNumber);
+        trans.setTransactionTime(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+        trans.setTransactionAmount(amount);
+        return trans;
+    }
+}
@@ -0,0 +1,112 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceCompactionService;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards that point-in-time balances read the latest compacted month and the entries after it, in a fixed number of
+ * statements, rather than summing the history of every earlier day
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:balance-query-count",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+public class BalanceQueryCountTests {
+    // a year of daily history long before the default horizon of a year, and a recent day
+    private static final LocalDate FIRST_DAY = LocalDate.parse("2020-01-01");
+    private static final LocalDate LAST_COMPACTED_MONTH = LocalDate.parse("2020-12-01");
+    private static final LocalDate RECENT = LocalDate.now(ZoneOffset.UTC).minusDays(10);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceUpdateService balanceUpdateService;
+
+    @Autowired
+    private BalanceCompactionService balanceCompactionService;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void createCompactedCards() {
+        if (!creditCardRepository.existsByNumber("query-count-111")) {
+            User user = new User();
+            user.setName("query-count-user");
+            user.setEmail("query-count-user@example.com");
+            user = userRepository.save(user);
+            TransactionBatch batch = new TransactionBatch();
+            for (String number : List.of("query-count-111", "query-count-222")) {
+                CreditCard card = new CreditCard();
+                card.setUser(user);
+                card.setIssuanceBank("BoK");
+                card.setNumber(number);
+                creditCardRepository.save(card);
+                // 1.00 every day of 2020, 7.00 on the recent day
+                for (LocalDate day = FIRST_DAY; day.getYear() == 2020; day = day.plusDays(1)) {
+                    batch.add(number, (int) day.toEpochDay(), 100);
+                }
+                batch.add(number, (int) RECENT.toEpochDay(), 700);
+            }
+            assertTrue(balanceUpdateService.applyBatch(batch));
+            balanceCompactionService.compact();
+
+            // a read summing every earlier day would see these entries change, a read from December's end does not
+            jdbcTemplate.update("UPDATE BALANCE_HISTORY SET AMOUNT = 1000000 WHERE \"DATE\" < ?",
+                    Timestamp.from(LAST_COMPACTED_MONTH.atStartOfDay(ZoneOffset.UTC).toInstant()));
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldReadBalanceOnDayFromLatestCompactedMonth() {
+        assertEquals(373.0, balanceQueryService.getBalanceOn("query-count-111", RECENT.plusDays(1)).orElseThrow());
+
+        // the card id, the snapshot and the sum of the entries since the snapshot
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void shouldReadBalancesOfManyCardsFromLatestCompactedMonths() {
+        assertEquals(Map.of("query-count-111", 373.0, "query-count-222", 373.0), balanceQueryService
+                .getBalancesOn(List.of("query-count-111", "query-count-222"), RECENT.plusDays(1)).orElseThrow());
+
+        // the card ids, the snapshots and one sum for the cards sharing the end of their latest compacted month
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,93 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of the grouped batch update compared with applying the same transactions one at a time, which is what
+ * the controller did before the batch engine. Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:balance-update-benchmark")
+@Tag("benchmark")
+public class BalanceUpdateBenchmarkTests {
+    private static final int CARDS = 100;
+    private static final int TRANSACTIONS = 5_000;
+    private static final int HISTORY_DAYS = 365;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceUpdateService balanceUpdateService;
+
+    @Test
+    void compareBatchWithPerTransactionLoop() {
+        List<UpdateBalancePayload> perTransaction = createTransactions(createCards("loop-"));
+        List<UpdateBalancePayload> batch = createTransactions(createCards("batch-"));
+
+        long start = System.nanoTime();
+        for (UpdateBalancePayload trans : perTransaction) {
+            assertTrue(balanceUpdateService.applyTransactions(List.of(trans)));
+        }
+        long loopNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        assertTrue(balanceUpdateService.applyTransactions(batch));
+        long batchNanos = System.nanoTime() - start;
+
+        System.out.printf("per-transaction loop: %,d transactions in %,d ms (%,.0f tx/s)%n",
+                TRANSACTIONS, loopNanos / 1_000_000, TRANSACTIONS * 1e9 / loopNanos);
+        System.out.printf("grouped batch:        %,d transactions in %,d ms (%,.0f tx/s)%n",
+                TRANSACTIONS, batchNanos / 1_000_000, TRANSACTIONS * 1e9 / batchNanos);
+    }
+
+    private List<String> createCards(String prefix) {
+        User user = new User();
+        user.setName(prefix + "user");
+        user.setEmail(prefix + "user@example.com");
+        user = userRepository.save(user);
+
+        List<CreditCard> cards = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber(prefix + i);
+            cards.add(card);
+        }
+        return creditCardRepository.saveAll(cards).stream().map(CreditCard::getNumber).toList();
+    }
+
+    private static List<UpdateBalancePayload> createTransactions(List<String> cardNumbers) {
+        Random random = new Random(42);
+        Instant now = Instant.now();
+        List<UpdateBalancePayload> transactions = new ArrayList<>(TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            UpdateBalancePayload trans = new UpdateBalancePayload();
+            trans.setCreditCardNumber(cardNumbers.get(random.nextInt(cardNumbers.size())));
+            trans.setTransactionTime(now.minus(random.nextInt(HISTORY_DAYS), ChronoUnit.DAYS));
+            trans.setTransactionAmount(random.nextInt(10_000) / 100.0);
+            transactions.add(trans);
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,134 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Applies batches from many threads at once. No update may be lost, whether the threads share cards or not.
+ * The throughput scaling run is tagged as a benchmark, run it with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:balance-update-concurrency")
+public class BalanceUpdateConcurrencyTests {
+    private static final LocalDate DAY = LocalDate.parse("2023-04-10");
+    private static final int DAYS = 5;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceUpdateService balanceUpdateService;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Test
+    void shouldNotLoseConcurrentUpdatesOfSharedCards() throws Exception {
+        List<String> cards = createCards("shared-", 4);
+        int threads = 16;
+        int batchesPerThread = 50;
+
+        // every batch posts 1.00 to two random cards on random days, listing the cards in random order
+        runConcurrently(threads, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < batchesPerThread; i++) {
+                TransactionBatch batch = new TransactionBatch();
+                int first = random.nextInt(cards.size());
+                int second = (first + 1 + random.nextInt(cards.size() - 1)) % cards.size();
+                batch.add(cards.get(first), epochDay(random.nextInt(DAYS)), 100);
+                batch.add(cards.get(second), epochDay(random.nextInt(DAYS)), 100);
+                assertTrue(balanceUpdateService.applyBatch(batch));
+            }
+        });
+
+        double total = 0;
+        for (String card : cards) {
+            total += balanceQueryService.getBalanceOn(card, DAY.plusDays(DAYS)).orElseThrow();
+        }
+        assertEquals(threads * batchesPerThread * 2, total);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void measureThroughputScaling() throws Exception {
+        int batchesPerThread = 200;
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            // one card per thread, so the threads never contend for a card
+            List<String> cards = createCards("scaling-" + threads + "-", threads);
+            int[] next = new int[1];
+            long start = System.nanoTime();
+            runConcurrently(threads, () -> {
+                String card;
+                synchronized (next) {
+                    card = cards.get(next[0]++);
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < batchesPerThread; i++) {
+                    TransactionBatch batch = new TransactionBatch();
+                    batch.add(card, epochDay(random.nextInt(DAYS)), 100);
+                    assertTrue(balanceUpdateService.applyBatch(batch));
+                }
+            });
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%2d threads: %,d batches in %,d ms (%,.0f batches/s)%n", threads,
+                    threads * batchesPerThread, nanos / 1_000_000, threads * batchesPerThread * 1e9 / nanos);
+        }
+    }
+
+    private static void runConcurrently(int threads, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<String> createCards(String prefix, int count) {
+        User user = new User();
+        user.setName(prefix + "user");
+        user.setEmail(prefix + "user@example.com");
+        user = userRepository.save(user);
+        List<CreditCard> cards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber(prefix + i);
+            cards.add(card);
+        }
+        return creditCardRepository.saveAll(cards).stream().map(CreditCard::getNumber).toList();
+    }
+
+    private static int epochDay(int dayOffset) {
+        return (int) DAY.plusDays(dayOffset).toEpochDay();
+    }
+}
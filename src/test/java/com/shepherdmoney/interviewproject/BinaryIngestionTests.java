@@ -0,0 +1,148 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.ingestion.BinaryTransactionFormat;
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BinaryIngestionTests {
+    private static final LocalDate DAY = LocalDate.parse("2023-04-10");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Test
+    void shouldRoundTripBatch() throws IOException {
+        // more transactions than fit in one read buffer
+        int transactions = 10_000;
+        int[] cardIndexes = new int[transactions];
+        long[] epochSeconds = new long[transactions];
+        long[] cents = new long[transactions];
+        for (int i = 0; i < transactions; i++) {
+            cardIndexes[i] = i % 3;
+            epochSeconds[i] = epochSecond(DAY.plusDays(i % 40)) + i;
+            cents[i] = i - 500;
+        }
+        byte[] bytes = encode(new String[]{"111", "222", "333"}, cardIndexes, epochSeconds, cents);
+
+        TransactionBatch batch = BinaryTransactionFormat.decode(new ByteArrayInputStream(bytes));
+        assertEquals(List.of("111", "222", "333"), batch.cardNumbers());
+        assertEquals(transactions, batch.size());
+        for (int i = 0; i < transactions; i++) {
+            assertEquals(cardIndexes[i], batch.cardIndex(i));
+            assertEquals(DAY.plusDays(i % 40).toEpochDay(), batch.day(i));
+            assertEquals(cents[i], batch.amount(i));
+        }
+    }
+
+    @Test
+    void shouldRejectMalformedBatch() throws IOException {
+        byte[] bytes = encode(new String[]{"111"}, new int[]{0}, new long[]{epochSecond(DAY)}, new long[]{100});
+        // truncated record
+        assertThrows(EOFException.class, () -> BinaryTransactionFormat.decode(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))));
+        // wrong magic
+        byte[] corrupted = bytes.clone();
+        corrupted[0] = 'X';
+        assertThrows(IOException.class, () -> BinaryTransactionFormat.decode(new ByteArrayInputStream(corrupted)));
+        // card index outside the dictionary
+        byte[] unknownCard = encode(new String[]{"111"}, new int[]{1}, new long[]{epochSecond(DAY)}, new long[]{100});
+        assertThrows(IOException.class, () -> BinaryTransactionFormat.decode(new ByteArrayInputStream(unknownCard)));
+        // a time on no day the history covers
+        byte[] farFuture = encode(new String[]{"111"}, new int[]{0}, new long[]{Long.MAX_VALUE}, new long[]{100});
+        assertThrows(IOException.class, () -> BinaryTransactionFormat.decode(new ByteArrayInputStream(farFuture)));
+        // a header announcing the most cards, without any of them
+        byte[] emptyDictionary = {'S', 'M', 'T', 'X', 1, 0, (byte) 0x98, (byte) 0x96, (byte) 0x80};
+        assertThrows(EOFException.class,
+                () -> BinaryTransactionFormat.decode(new ByteArrayInputStream(emptyDictionary)));
+    }
+
+    @Test
+    void shouldApplyBinaryUpload() throws Exception {
+        User user = new User();
+        user.setName("binary-user");
+        user.setEmail("binary-user@example.com");
+        user = userRepository.save(user);
+        for (String number : new String[]{"binary-111", "binary-222"}) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber(number);
+            creditCardRepository.save(card);
+        }
+
+        // 10.25 per day on the first card and 5 per day on the second, over 2023-04-10 .. 2023-04-19
+        int[] cardIndexes = new int[20];
+        long[] epochSeconds = new long[20];
+        long[] cents = new long[20];
+        for (int i = 0; i < 20; i++) {
+            cardIndexes[i] = i % 2;
+            epochSeconds[i] = epochSecond(DAY.plusDays(i / 2));
+            cents[i] = i % 2 == 0 ? 1025 : 500;
+        }
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(BinaryTransactionFormat.MEDIA_TYPE)
+                        .content(encode(new String[]{"binary-111", "binary-222"}, cardIndexes, epochSeconds, cents)))
+                .andExpect(status().isOk());
+
+        assertEquals(102.5, balanceQueryService.getBalanceOn("binary-111", DAY.plusDays(10)).orElseThrow());
+        assertEquals(50.0, balanceQueryService.getBalanceOn("binary-222", DAY.plusDays(10)).orElseThrow());
+    }
+
+    @Test
+    void shouldRejectMalformedOrUnknownUpload() throws Exception {
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(BinaryTransactionFormat.MEDIA_TYPE)
+                        .content(new byte[]{'S', 'M', 'T', 'X', 1, 0}))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(BinaryTransactionFormat.MEDIA_TYPE)
+                        .content(encode(new String[]{"binary-unknown"}, new int[]{0}, new long[]{epochSecond(DAY)},
+                                new long[]{100})))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static byte[] encode(String[] cardNumbers, int[] cardIndexes, long[] epochSeconds, long[] cents)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryTransactionFormat.encode(cardNumbers, cardIndexes, epochSeconds, cents, output);
+        return output.toByteArray();
+    }
+
+    private static long epochSecond(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+    }
+}
@@ -0,0 +1,62 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.cache.BoundedCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BoundedCacheTests {
+
+    @Test
+    void shouldOnlyDropLoadsOfInvalidatedKeys() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+
+        // a write to another key while "a" loads does not keep "a" out of the cache
+        assertEquals(1, cache.get("a", key -> {
+            cache.invalidate("b");
+            return 1;
+        }));
+        assertEquals(1, cache.get("a", key -> 2));
+
+        // a write to the key itself does
+        assertEquals(3, cache.get("c", key -> {
+            cache.invalidate("c");
+            return 3;
+        }));
+        assertEquals(4, cache.get("c", key -> 4));
+        assertEquals(4, cache.get("c", key -> 5));
+    }
+
+    @Test
+    void shouldOnlyDropBatchLoadsOfInvalidatedKeys() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+
+        cache.getAll(List.of("a", "b"), value -> true, keys -> {
+            cache.invalidateAll(List.of("b", "x"));
+            Map<String, Integer> loaded = new HashMap<>();
+            keys.forEach(key -> loaded.put(key, 1));
+            return loaded;
+        });
+
+        assertEquals(1, cache.get("a", key -> 2));
+        assertEquals(2, cache.get("b", key -> 2));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void shouldCacheLoadStartedAfterInvalidation() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+
+        // the outer load of "a" is invalidated, the nested one only started afterwards
+        assertEquals(1, cache.get("a", key -> {
+            cache.invalidate("a");
+            assertEquals(2, cache.get("a", nested -> 2));
+            return 1;
+        }));
+        assertEquals(2, cache.get("a", key -> 3));
+    }
+}
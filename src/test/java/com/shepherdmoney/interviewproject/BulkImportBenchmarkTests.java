@@ -0,0 +1,85 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.service.BulkImportService;
+import com.shepherdmoney.interviewproject.vo.response.ImportResult;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Imports a million cards from a generated CSV stream. Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bulk-import-benchmark")
+@Tag("benchmark")
+public class BulkImportBenchmarkTests {
+    private static final int USERS = 100_000;
+    private static final int CARDS_PER_USER = 10;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Test
+    void importMillionCards() {
+        long start = System.nanoTime();
+        ImportResult result = bulkImportService.importCsv(new GeneratedCsv());
+        long nanos = System.nanoTime() - start;
+
+        long rows = result.getUsersImported() + result.getCardsImported();
+        System.out.printf("imported %,d users and %,d cards in %,d ms (%,.0f rows/s)%n", result.getUsersImported(),
+                result.getCardsImported(), nanos / 1_000_000, rows * 1e9 / nanos);
+        assertEquals(USERS, result.getUsersImported());
+        assertEquals((long) USERS * CARDS_PER_USER, result.getCardsImported());
+    }
+
+    /**
+     * CSV generated line by line as it is read, so the input never sits in memory as a whole
+     */
+    private static final class GeneratedCsv extends InputStream {
+        private byte[] line = new byte[0];
+        private int position;
+        private int lineNumber;
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return line[position++];
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, line.length - position);
+            System.arraycopy(line, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private boolean fill() {
+            if (position < line.length) {
+                return true;
+            }
+            if (lineNumber == USERS * CARDS_PER_USER) {
+                return false;
+            }
+            int user = lineNumber / CARDS_PER_USER;
+            line = ("user-" + user + ",user-" + user + "@example.com,BoK,bulk-" + lineNumber + "\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            lineNumber++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BulkImportControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Test
+    void shouldImportJsonAndReportRejectedRows() throws Exception {
+        String body = """
+                [
+                  {"name": "import-a", "email": "import-a@example.com",
+                   "cards": [{"issuanceBank": "BoK", "number": "import-json-1"},
+                             {"issuanceBank": "BoK", "number": "import-json-2"},
+                             {"issuanceBank": "BoK", "number": "import-json-1"}]},
+                  {"name": "import-b", "email": "import-b@example.com"},
+                  {"name": "import-c", "cards": [{"issuanceBank": "BoK", "number": "import-json-3"}]},
+                  {"name": "import-d", "email": "import-d@example.com", "cards": [{"number": "import-json-4"}]}
+                ]
+                """;
+        mockMvc.perform(post("/user:import").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usersImported").value(3))
+                .andExpect(jsonPath("$.usersRejected").value(1))
+                .andExpect(jsonPath("$.cardsImported").value(2))
+                .andExpect(jsonPath("$.cardsRejected").value(3));
+        assertTrue(creditCardRepository.existsByNumber("import-json-2"));
+
+        // numbers imported before are rejected
+        mockMvc.perform(post("/user:import").contentType(MediaType.APPLICATION_JSON).content("""
+                        [{"name": "import-e", "email": "import-e@example.com",
+                          "cards": [{"issuanceBank": "BoK", "number": "import-json-1"}]}]
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usersImported").value(1))
+                .andExpect(jsonPath("$.cardsRejected").value(1));
+    }
+
+    @Test
+    void shouldImportCsvGroupingLinesByEmail() throws Exception {
+        String body = """
+                name,email,issuanceBank,cardNumber
+                import-f,import-f@example.com,BoK,import-csv-1
+                import-f,import-f@example.com,BoK,import-csv-2
+                import-g,import-g@example.com,,
+                import-h,import-h@example.com,BoK
+                """;
+        mockMvc.perform(post("/user:import").contentType("text/csv").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usersImported").value(2))
+                .andExpect(jsonPath("$.cardsImported").value(2))
+                .andExpect(jsonPath("$.cardsRejected").value(1));
+        mockMvc.perform(get("/credit-card:user-id").param("creditCardNumber", "import-csv-2"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldReportMalformedJson() throws Exception {
+        mockMvc.perform(post("/user:import").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"import-i\", \"email\": \"import-i@example.com\"}, {\"name\": "))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.usersImported").value(1))
+                .andExpect(jsonPath("$.error").exists());
+    }
+}
@@ -1,7 +1,8 @@
 package com.shepherdmoney.interviewproject;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.service.BalanceHistoryService;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
 import com.shepherdmoney.interviewproject.vo.request.AddCreditCardToUserPayload;
 import com.shepherdmoney.interviewproject.vo.request.CreateUserPayload;
 import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
@@ -16,9 +17,16 @@ import org.springframework.test.web.servlet.MvcResult;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -31,6 +39,9 @@ public class CreditCardControllerTests {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
     @Test
     void shouldReturnOKWhenACardIsCreatedWithExistingUser() throws Exception{
         int userId = 1;
@@ -146,4 +157,171 @@ public class CreditCardControllerTests {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void shouldStoreBatchedTransactionsAsDailyAmounts() throws Exception {
+        int userId = createUser("batch-user");
+        addCard(userId, "batch-111");
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        UpdateBalancePayload[] payload = new UpdateBalancePayload[2];
+        payload[0] = new UpdateBalancePayload();
+        payload[0].setCreditCardNumber("batch-111");
+        payload[0].setTransactionTime(today.minusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        payload[0].setTransactionAmount(5.0);
+        payload[1] = new UpdateBalancePayload();
+        payload[1].setCreditCardNumber("batch-111");
+        payload[1].setTransactionTime(today.minusDays(3).atStartOfDay(ZoneOffset.UTC).toInstant());
+        payload[1].setTransactionAmount(10.0);
+
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/credit-card:balance-history")
+                        .param("creditCardNumber", "batch-111"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].date").value(today.minusDays(3).toString()))
+                .andExpect(jsonPath("$.items[0].amount").value(10.0))
+                .andExpect(jsonPath("$.items[1].date").value(today.minusDays(1).toString()))
+                .andExpect(jsonPath("$.items[1].amount").value(5.0));
+
+        assertEquals(15.0, balanceQueryService.getBalanceOn("batch-111", today).orElseThrow());
+        assertEquals(10.0, balanceQueryService.getBalanceOn("batch-111", today.minusDays(1)).orElseThrow());
+        assertEquals(10.0, balanceQueryService.getBalanceOn("batch-111", today.minusDays(2)).orElseThrow());
+        assertEquals(0.0, balanceQueryService.getBalanceOn("batch-111", today.minusDays(3)).orElseThrow());
+    }
+
+    @Test
+    void shouldRejectWholeBatchWhenOneCardNotFound() throws Exception {
+        UpdateBalancePayload[] payload = new UpdateBalancePayload[2];
+        payload[0] = new UpdateBalancePayload();
+        payload[0].setCreditCardNumber("123");
+        payload[0].setTransactionTime(Instant.now());
+        payload[0].setTransactionAmount(10.0);
+        payload[1] = new UpdateBalancePayload();
+        payload[1].setCreditCardNumber("999");
+        payload[1].setTransactionTime(Instant.now());
+        payload[1].setTransactionAmount(10.0);
+
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRejectTransactionOutsideHistoryDates() throws Exception {
+        addCard(createUser("range-user"), "range-111");
+        for (Instant time : List.of(BalanceHistoryService.EARLIEST_DATE.minusDays(1).atStartOfDay(ZoneOffset.UTC)
+                        .toInstant(), BalanceHistoryService.LATEST_DATE.plusDays(1).atStartOfDay(ZoneOffset.UTC)
+                        .toInstant(), Instant.MIN, Instant.MAX)) {
+            UpdateBalancePayload[] payload = new UpdateBalancePayload[1];
+            payload[0] = new UpdateBalancePayload();
+            payload[0].setCreditCardNumber("range-111");
+            payload[0].setTransactionTime(time);
+            payload[0].setTransactionAmount(10.0);
+
+            mockMvc.perform(post("/credit-card:update-balance")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(payload)))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void shouldFindOwnerOfCardAddedAfterAMissedLookup() throws Exception {
+        int userId = createUser("owner-user");
+
+        mockMvc.perform(get("/credit-card:user-id")
+                        .param("creditCardNumber", "owner-111"))
+                .andExpect(status().isBadRequest());
+
+        AddCreditCardToUserPayload cardPayload = new AddCreditCardToUserPayload();
+        cardPayload.setCardNumber("owner-111");
+        cardPayload.setCardIssuanceBank("BoK");
+        cardPayload.setUserId(userId);
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(cardPayload)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/credit-card:user-id")
+                        .param("creditCardNumber", "owner-111"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(userId));
+    }
+
+    @Test
+    void shouldReturnConflictWhenCardNumberAlreadyExists() throws Exception {
+        int userId = createUser("conflict-user");
+
+        AddCreditCardToUserPayload cardPayload = new AddCreditCardToUserPayload();
+        cardPayload.setCardNumber("conflict-111");
+        cardPayload.setCardIssuanceBank("BoK");
+        cardPayload.setUserId(userId);
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(cardPayload)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(cardPayload)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldReturnConflictToAllButOneConcurrentAddOfANumber() throws Exception {
+        int userId = createUser("concurrent-user");
+        AddCreditCardToUserPayload cardPayload = new AddCreditCardToUserPayload();
+        cardPayload.setCardNumber("concurrent-111");
+        cardPayload.setCardIssuanceBank("BoK");
+        cardPayload.setUserId(userId);
+        String body = objectMapper.writeValueAsString(cardPayload);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> adds = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                adds.add(executor.submit(() -> mockMvc.perform(post("/credit-card")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                        .andReturn().getResponse().getStatus()));
+            }
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> add : adds) {
+                statuses.add(add.get());
+            }
+            assertEquals(1, Collections.frequency(statuses, 200), statuses.toString());
+            assertEquals(7, Collections.frequency(statuses, 409), statuses.toString());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // through the API rather than the repositories, so that either card store knows the user and card
+    private int createUser(String name) throws Exception {
+        CreateUserPayload payload = new CreateUserPayload();
+        payload.setName(name);
+        payload.setEmail(name + "@example.com");
+        String id = mockMvc.perform(put("/user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(id);
+    }
+
+    private void addCard(int userId, String number) throws Exception {
+        AddCreditCardToUserPayload payload = new AddCreditCardToUserPayload();
+        payload.setCardNumber(number);
+        payload.setCardIssuanceBank("BoK");
+        payload.setUserId(userId);
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+    }
 }
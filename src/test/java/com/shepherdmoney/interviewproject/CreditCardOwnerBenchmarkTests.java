@@ -0,0 +1,80 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.CreditCardOwnerService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency of the card number to user id lookup with a cold and with a warm owner cache. Run with
+ * {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:credit-card-owner-benchmark")
+@Tag("benchmark")
+public class CreditCardOwnerBenchmarkTests {
+    private static final int CARDS = 50_000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private CreditCardOwnerService creditCardOwnerService;
+
+    @Test
+    void compareColdAndWarmLookupLatency() {
+        User user = new User();
+        user.setName("owner-benchmark");
+        user.setEmail("owner-benchmark@example.com");
+        user = userRepository.save(user);
+        List<CreditCard> cards = new ArrayList<>(CARDS);
+        for (int i = 0; i < CARDS; i++) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber("owner-" + i);
+            cards.add(card);
+        }
+        creditCardRepository.saveAll(cards);
+
+        creditCardOwnerService.clear();
+        long[] cold = measureLookups();
+        long[] warm = measureLookups();
+
+        report("cold cache", cold);
+        report("warm cache", warm);
+        System.out.printf("hits: %,d, misses: %,d%n",
+                creditCardOwnerService.getHitCount(), creditCardOwnerService.getMissCount());
+    }
+
+    private long[] measureLookups() {
+        long[] latencies = new long[CARDS];
+        for (int i = 0; i < CARDS; i++) {
+            long start = System.nanoTime();
+            assertTrue(creditCardOwnerService.findUserId("owner-" + i).isPresent());
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void report(String name, long[] sortedLatencies) {
+        System.out.printf("%s: p50 %,d ns, p99 %,d ns, max %,d ns%n", name,
+                sortedLatencies[sortedLatencies.length / 2],
+                sortedLatencies[(int) (sortedLatencies.length * 0.99)],
+                sortedLatencies[sortedLatencies.length - 1]);
+    }
+}
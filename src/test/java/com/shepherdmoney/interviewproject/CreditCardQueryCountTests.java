@@ -0,0 +1,91 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Guards the number of SQL statements issued by the read endpoints, so that a regression back to N+1 fails the build
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+public class CreditCardQueryCountTests {
+    private static final int CARDS = 50;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private int userId;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void createUserWithCards() {
+        User user = new User();
+        user.setName("query-count-user");
+        user.setEmail("query-count-user@example.com");
+        userId = userRepository.save(user).getId();
+        List<CreditCard> cards = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber("query-count-" + userId + "-" + i);
+            cards.add(card);
+        }
+        creditCardRepository.saveAll(cards);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldListCardsOfUserWithOneStatement() throws Exception {
+        mockMvc.perform(get("/credit-card:all")
+                        .param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(CARDS)));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void shouldListOnePageOfCardsWithOneStatement() throws Exception {
+        mockMvc.perform(get("/credit-card:all")
+                        .param("userId", String.valueOf(userId))
+                        .param("page", "1")
+                        .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(20)))
+                .andExpect(jsonPath("$[0].number").value("query-count-" + userId + "-20"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,197 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.CurrentBalanceService;
+import com.shepherdmoney.interviewproject.vo.request.CurrentBalancePayload;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import com.shepherdmoney.interviewproject.vo.response.CurrentBalanceView;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CurrentBalanceControllerTests {
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private CurrentBalanceService currentBalanceService;
+
+    @Test
+    void shouldServeCurrentBalanceFromCache() throws Exception {
+        // 10 yesterday and 5 today count, 100 tomorrow does not yet
+        int userId = createUser("current-cache");
+        createCardWithHistory(userId, "current-cache-111");
+
+        long misses = currentBalanceService.getMissCount();
+        mockMvc.perform(get("/credit-card:current-balance")
+                        .param("creditCardNumber", "current-cache-111"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creditCardNumber").value("current-cache-111"))
+                .andExpect(jsonPath("$.asOf").value(TODAY.toString()))
+                .andExpect(jsonPath("$.balance").value(15.0))
+                .andExpect(jsonPath("$.computedAt").isString());
+        assertEquals(misses + 1, currentBalanceService.getMissCount());
+
+        long hits = currentBalanceService.getHitCount();
+        mockMvc.perform(get("/credit-card:current-balance")
+                        .param("creditCardNumber", "current-cache-111"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(15.0));
+        assertEquals(hits + 1, currentBalanceService.getHitCount());
+        assertEquals(misses + 1, currentBalanceService.getMissCount());
+
+        mockMvc.perform(get("/credit-card:current-balance")
+                        .param("creditCardNumber", "current-unknown"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldDropCachedBalanceOnUpdate() throws Exception {
+        int userId = createUser("current-update");
+        createCardWithHistory(userId, "current-update-111");
+        assertEquals(15.0, currentBalanceService.getCurrentBalance("current-update-111").orElseThrow().getBalance());
+
+        updateBalance(transaction("current-update-111", TODAY, 2.5));
+        mockMvc.perform(get("/credit-card:current-balance")
+                        .param("creditCardNumber", "current-update-111"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(17.5));
+    }
+
+    @Test
+    void shouldRollOverAtDateBoundary() throws Exception {
+        int userId = createUser("current-rollover");
+        createCardWithHistory(userId, "current-rollover-111");
+        assertEquals(15.0, currentBalanceService.getCurrentBalance("current-rollover-111", TODAY)
+                .orElseThrow().getBalance());
+
+        // nothing was written, the balance cached yesterday is not served today
+        long misses = currentBalanceService.getMissCount();
+        CurrentBalanceView tomorrow =
+                currentBalanceService.getCurrentBalance("current-rollover-111", TODAY.plusDays(1)).orElseThrow();
+        assertEquals(TODAY.plusDays(1), tomorrow.getAsOf());
+        assertEquals(115.0, tomorrow.getBalance());
+        assertEquals(misses + 1, currentBalanceService.getMissCount());
+
+        List<CurrentBalanceView> balances = currentBalanceService.getCurrentBalances(
+                List.of("current-rollover-111"), TODAY.plusDays(2)).orElseThrow();
+        assertEquals(115.0, balances.get(0).getBalance());
+        assertEquals(misses + 2, currentBalanceService.getMissCount());
+    }
+
+    @Test
+    void shouldReturnCurrentBalancesOfManyCards() throws Exception {
+        int userId = createUser("current-batch");
+        createCardWithHistory(userId, "current-batch-111");
+        createCard(userId, "current-batch-222");
+        currentBalanceService.getCurrentBalance("current-batch-111");
+
+        // one cached balance and one loaded, in the order of the request
+        long hits = currentBalanceService.getHitCount();
+        long misses = currentBalanceService.getMissCount();
+        CurrentBalancePayload payload = new CurrentBalancePayload();
+        payload.setCreditCardNumbers(List.of("current-batch-222", "current-batch-111"));
+        mockMvc.perform(post("/credit-card:current-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].creditCardNumber").value("current-batch-222"))
+                .andExpect(jsonPath("$[0].balance").value(0.0))
+                .andExpect(jsonPath("$[1].creditCardNumber").value("current-batch-111"))
+                .andExpect(jsonPath("$[1].balance").value(15.0));
+        assertEquals(hits + 1, currentBalanceService.getHitCount());
+        assertEquals(misses + 1, currentBalanceService.getMissCount());
+
+        payload.setCreditCardNumbers(List.of("current-batch-111", "current-unknown"));
+        mockMvc.perform(post("/credit-card:current-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isBadRequest());
+        payload.setCreditCardNumbers(List.of());
+        mockMvc.perform(post("/credit-card:current-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldForgetBalanceOfDeletedCard() throws Exception {
+        int userId = createUser("current-delete");
+        createCardWithHistory(userId, "current-delete-111");
+        mockMvc.perform(get("/credit-card:current-balance")
+                        .param("creditCardNumber", "current-delete-111"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/user")
+                        .param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/credit-card:current-balance")
+                        .param("creditCardNumber", "current-delete-111"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private int createUser(String name) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name + "@example.com");
+        return userRepository.save(user).getId();
+    }
+
+    private void createCard(int userId, String number) {
+        CreditCard card = new CreditCard();
+        card.setUser(userRepository.findById(userId).orElseThrow());
+        card.setIssuanceBank("BoK");
+        card.setNumber(number);
+        creditCardRepository.save(card);
+    }
+
+    private void createCardWithHistory(int userId, String number) throws Exception {
+        createCard(userId, number);
+        updateBalance(transaction(number, TODAY.minusDays(1), 10.0),
+                transaction(number, TODAY, 5.0),
+                transaction(number, TODAY.plusDays(1), 100.0));
+    }
+
+    private void updateBalance(UpdateBalancePayload... payload) throws Exception {
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+    }
+
+    private static UpdateBalancePayload transaction(String number, LocalDate day, double amount) {
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber(number);
+        trans.setTransactionTime(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+        trans.setTransactionAmount(amount);
+        return trans;
+    }
+}
@@ -0,0 +1,140 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceHistoryService;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares storing only the days with transactions, and expanding the daily series when it is read, with the former
+ * eager model that kept one row per card per day up to today and rewrote every later row on a back-dated transaction.
+ * The eager numbers are counted from the same workload instead of being run. Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:daily-series-benchmark")
+@Tag("benchmark")
+public class DailySeriesStorageBenchmarkTests {
+    private static final LocalDate FIRST_DAY = LocalDate.parse("2021-01-01");
+    private static final int DAYS = 3 * 365;
+    private static final int CARDS = 1_000;
+    // most cards are quiet, a card has a transaction on about one day in twenty
+    private static final double ACTIVE_DAY_RATIO = 0.05;
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceUpdateService balanceUpdateService;
+
+    @Autowired
+    private BalanceHistoryService balanceHistoryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void compareLazySeriesWithEagerDailyRows() {
+        List<CreditCard> cards = createCards();
+        Random random = new Random(42);
+        long lastDay = FIRST_DAY.toEpochDay() + DAYS - 1;
+
+        // transactions arrive in random order, so many are back-dated relative to the latest one of their card
+        List<long[]> transactions = new ArrayList<>();
+        long[] firstActiveDay = new long[CARDS];
+        Arrays.fill(firstActiveDay, Long.MAX_VALUE);
+        for (int card = 0; card < CARDS; card++) {
+            for (int day = 0; day < DAYS; day++) {
+                if (random.nextDouble() < ACTIVE_DAY_RATIO) {
+                    transactions.add(new long[]{card, FIRST_DAY.toEpochDay() + day});
+                    firstActiveDay[card] = Math.min(firstActiveDay[card], FIRST_DAY.toEpochDay() + day);
+                }
+            }
+        }
+        Collections.shuffle(transactions, random);
+
+        double rowsWrittenBefore = meterRegistry.get("balance.update.rows.written").summary().totalAmount();
+        long start = System.nanoTime();
+        for (int from = 0; from < transactions.size(); from += BATCH_SIZE) {
+            TransactionBatch batch = new TransactionBatch(BATCH_SIZE);
+            for (long[] trans : transactions.subList(from, Math.min(from + BATCH_SIZE, transactions.size()))) {
+                batch.add(cards.get((int) trans[0]).getNumber(), (int) trans[1], 100);
+            }
+            assertTrue(balanceUpdateService.applyBatch(batch));
+        }
+        long writeNanos = System.nanoTime() - start;
+        long lazyRowsWritten = (long) (meterRegistry.get("balance.update.rows.written").summary().totalAmount()
+                - rowsWrittenBefore);
+        long lazyRowsStored = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BALANCE_HISTORY", Long.class);
+
+        // eager: one row per card per day from its first transaction up to today, plus a new top row every day for
+        // every card, and a transaction rewrites the rows from its day up to today
+        long eagerRowsStored = 0;
+        for (long first : firstActiveDay) {
+            if (first != Long.MAX_VALUE) {
+                eagerRowsStored += lastDay - first + 1;
+            }
+        }
+        long eagerRowsWritten = (long) CARDS * DAYS;
+        for (long[] trans : transactions) {
+            eagerRowsWritten += lastDay - trans[1] + 1;
+        }
+
+        start = System.nanoTime();
+        long[] seriesEntries = new long[1];
+        for (CreditCard card : cards.subList(0, 100)) {
+            balanceHistoryService.streamDailySeries(card.getId(), FIRST_DAY, FIRST_DAY.plusDays(DAYS - 1),
+                    view -> seriesEntries[0]++);
+        }
+        long readNanos = System.nanoTime() - start;
+
+        System.out.printf("%,d cards over %,d days, %,d transactions%n", CARDS, DAYS, transactions.size());
+        System.out.printf("lazy:  %,12d rows stored %,12d rows written, writes took %,d ms%n",
+                lazyRowsStored, lazyRowsWritten, writeNanos / 1_000_000);
+        System.out.printf("eager: %,12d rows stored %,12d rows written%n", eagerRowsStored, eagerRowsWritten);
+        System.out.printf("expanded %,d daily entries of 100 cards in %,d ms%n", seriesEntries[0],
+                readNanos / 1_000_000);
+        assertEquals(100L * DAYS, seriesEntries[0]);
+        assertTrue(lazyRowsStored < eagerRowsStored);
+    }
+
+    private List<CreditCard> createCards() {
+        User user = new User();
+        user.setName("series-user");
+        user.setEmail("series-user@example.com");
+        user = userRepository.save(user);
+        List<CreditCard> cards = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber("series-" + i);
+            cards.add(card);
+        }
+        return creditCardRepository.saveAll(cards);
+    }
+}
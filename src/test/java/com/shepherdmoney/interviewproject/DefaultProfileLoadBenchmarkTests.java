@@ -0,0 +1,11 @@
+package com.shepherdmoney.interviewproject;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Mixed HTTP load with the default configuration. Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:default-profile-load")
+public class DefaultProfileLoadBenchmarkTests extends ProfileLoadBenchmark {
+}
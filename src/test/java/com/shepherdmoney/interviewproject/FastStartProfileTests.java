@@ -0,0 +1,109 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.vo.request.AddCreditCardToUserPayload;
+import com.shepherdmoney.interviewproject.vo.request.CreateUserPayload;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The faststart profile migrates the schema with Flyway instead of generating it. Hibernate validates the migrated
+ * schema against the entities here, so an entity change without a migration fails this test.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:faststart-profile",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.hbm2ddl.auto=validate"
+})
+@ActiveProfiles("faststart")
+@AutoConfigureMockMvc
+public class FastStartProfileTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Test
+    void shouldMigrateSchemaAndStartScheduledJobsEagerly() {
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "select count(*) from \"flyway_schema_history\" where \"version\" in ('1', '2') and \"success\"",
+                Integer.class));
+        assertTrue(context.getBeanFactory().containsSingleton("balanceCompactionService"));
+        assertTrue(context.getBeanFactory().containsSingleton("userDeletionService"));
+        assertFalse(context.getBeanFactory().containsSingleton("balanceRecomputationService"));
+    }
+
+    @Test
+    void shouldServeUsersCardsAndBalances() throws Exception {
+        CreateUserPayload user = new CreateUserPayload();
+        user.setName("faststart-user");
+        user.setEmail("faststart-user@example.com");
+        int userId = Integer.parseInt(mockMvc.perform(put("/user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        AddCreditCardToUserPayload card = new AddCreditCardToUserPayload();
+        card.setUserId(userId);
+        card.setCardIssuanceBank("BoK");
+        card.setCardNumber("faststart-111");
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(card)))
+                .andExpect(status().isOk());
+
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber("faststart-111");
+        trans.setTransactionTime(LocalDate.of(2023, 4, 11).atStartOfDay(ZoneOffset.UTC).toInstant());
+        trans.setTransactionAmount(12.5);
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateBalancePayload[]{trans})))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/credit-card:all")
+                        .param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].number").value("faststart-111"));
+        mockMvc.perform(get("/credit-card:balance-history")
+                        .param("creditCardNumber", "faststart-111")
+                        .param("from", "2023-04-11")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].date").value("2023-04-11"))
+                .andExpect(jsonPath("$.items[0].amount").value(12.5));
+
+        // a second entry of the same card and day is refused by the schema
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO BALANCE_HISTORY (ID, \"DATE\", AMOUNT, CARD_ID) "
+                        + "SELECT ID + 1000000, \"DATE\", AMOUNT, CARD_ID FROM BALANCE_HISTORY"));
+    }
+}
@@ -0,0 +1,196 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.ingestion.TransactionJournal;
+import com.shepherdmoney.interviewproject.ingestion.TransactionJournalService;
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.ProcessedBatchRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class IdempotentIngestionTests {
+    private static final LocalDate DAY = LocalDate.parse("2023-04-10");
+
+    @TempDir
+    private static Path journalDirectory;
+
+    @TempDir
+    private Path crashedJournalDirectory;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("journal.directory", () -> journalDirectory.toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private ProcessedBatchRepository processedBatchRepository;
+
+    @Autowired
+    private BalanceUpdateService balanceUpdateService;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldApplyRetriedBatchOnce() throws Exception {
+        createCards("idempotent-111");
+        String payload = objectMapper.writeValueAsString(new UpdateBalancePayload[]{
+                transaction("idempotent-111", DAY, 10.0), transaction("idempotent-111", DAY.plusDays(1), 5.0)});
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            mockMvc.perform(post("/credit-card:update-balance")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Idempotency-Key", "upload-1")
+                            .content(payload))
+                    .andExpect(status().isOk());
+        }
+        // a new key is a new batch
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", "upload-2")
+                        .content(payload))
+                .andExpect(status().isOk());
+
+        assertEquals(30.0, balanceQueryService.getBalanceOn("idempotent-111", DAY.plusDays(2)).orElseThrow());
+        assertTrue(processedBatchRepository.existsById("upload-1"));
+    }
+
+    @Test
+    void shouldRejectInvalidKey() throws Exception {
+        createCards("idempotent-222");
+        String payload = objectMapper.writeValueAsString(new UpdateBalancePayload[]{
+                transaction("idempotent-222", DAY, 10.0)});
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", "k".repeat(TransactionJournalService.MAX_KEY_LENGTH + 1))
+                        .content(payload))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReplayJournalOfCrashedProcessOnce() throws Exception {
+        createCards("idempotent-333", "idempotent-444");
+        // applied before the crash, and still journaled
+        TransactionBatch applied = batch("idempotent-333", DAY, 1_000);
+        assertTrue(balanceUpdateService.applyBatch(applied, "replay-1"));
+
+        try (TransactionJournal crashed = new TransactionJournal(crashedJournalDirectory, 1024 * 1024)) {
+            crashed.awaitDurable(crashed.append("replay-1", applied));
+            crashed.awaitDurable(crashed.append("replay-2", batch("idempotent-444", DAY, 2_500)));
+        }
+
+        TransactionJournalService restarted = new TransactionJournalService(balanceUpdateService,
+                processedBatchRepository, transactionManager, crashedJournalDirectory, 1024 * 1024, Duration.ofDays(7));
+        try {
+            restarted.run(null);
+        } finally {
+            restarted.close();
+        }
+
+        assertEquals(10.0, balanceQueryService.getBalanceOn("idempotent-333", DAY.plusDays(1)).orElseThrow());
+        assertEquals(25.0, balanceQueryService.getBalanceOn("idempotent-444", DAY.plusDays(1)).orElseThrow());
+    }
+
+    @Test
+    void shouldKeepBatchThatFailedToApplyForReplay() throws Exception {
+        createCards("idempotent-555");
+        // longer than the stored key, so storing it fails after the batch was journaled
+        String failingKey = "f".repeat(TransactionJournalService.MAX_KEY_LENGTH + 1);
+        TransactionBatch batch = batch("idempotent-555", DAY, 1_000);
+
+        for (int start = 0; start < 2; start++) {
+            TransactionJournalService service = new TransactionJournalService(balanceUpdateService,
+                    processedBatchRepository, transactionManager, crashedJournalDirectory, 1024 * 1024,
+                    Duration.ofDays(7));
+            try {
+                // the replay fails as well, but neither throws nor forgets the batch
+                service.run(null);
+                if (start == 0) {
+                    assertThrows(RuntimeException.class, () -> service.applyOnce(failingKey, batch));
+                }
+            } finally {
+                service.close();
+            }
+        }
+
+        List<String> journaled = new ArrayList<>();
+        try (TransactionJournal journal = new TransactionJournal(crashedJournalDirectory, 1024 * 1024)) {
+            journal.replay(entry -> journaled.add(entry.idempotencyKey()));
+        }
+        assertEquals(List.of(failingKey), journaled);
+        assertEquals(0.0, balanceQueryService.getBalanceOn("idempotent-555", DAY.plusDays(1)).orElseThrow());
+    }
+
+    private void createCards(String... numbers) {
+        User user = new User();
+        user.setName("idempotent-user");
+        user.setEmail("idempotent-user@example.com");
+        user = userRepository.save(user);
+        for (String number : numbers) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber(number);
+            creditCardRepository.save(card);
+        }
+    }
+
+    private static TransactionBatch batch(String cardNumber, LocalDate day, long cents) {
+        TransactionBatch batch = new TransactionBatch();
+        batch.add(cardNumber, (int) day.toEpochDay(), cents);
+        return batch;
+    }
+
+    private static UpdateBalancePayload transaction(String cardNumber, LocalDate day, double amount) {
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber(cardNumber);
+        trans.setTransactionTime(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+        trans.setTransactionAmount(amount);
+        return trans;
+    }
+}
@@ -0,0 +1,214 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.store.CardStore;
+import com.shepherdmoney.interviewproject.store.InMemoryCardStore;
+import com.shepherdmoney.interviewproject.vo.request.AddCreditCardToUserPayload;
+import com.shepherdmoney.interviewproject.vo.request.CreateUserPayload;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "card-store.engine=memory",
+        "spring.datasource.url=jdbc:h2:mem:in-memory-card-store"
+})
+@AutoConfigureMockMvc
+public class InMemoryCardStoreTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CardStore cardStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldServeUsersAndCardsFromMemory() throws Exception {
+        assertInstanceOf(InMemoryCardStore.class, cardStore);
+        int userId = createUser("memory-user");
+
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(card(userId, "memory-111"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isNumber());
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(card(userId, "memory-222"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(card(userId, "memory-111"))))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(card(-1, "memory-333"))))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/credit-card:all")
+                        .param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].number").value("memory-111"))
+                .andExpect(jsonPath("$[1].number").value("memory-222"));
+        mockMvc.perform(get("/credit-card:all")
+                        .param("userId", String.valueOf(userId))
+                        .param("page", "1")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].number").value("memory-222"));
+        mockMvc.perform(get("/credit-card:user-id")
+                        .param("creditCardNumber", "memory-222"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(userId));
+        mockMvc.perform(get("/credit-card:user-id")
+                        .param("creditCardNumber", "memory-unknown"))
+                .andExpect(status().isBadRequest());
+
+        cardStore.flush();
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "select count(*) from credit_card where user_id = ?", Integer.class, userId));
+    }
+
+    @Test
+    void shouldApplyTransactionsToACardJustAdded() throws Exception {
+        int userId = createUser("memory-balance-user");
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(card(userId, "memory-balance-111"))))
+                .andExpect(status().isOk());
+
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber("memory-balance-111");
+        trans.setTransactionTime(LocalDate.of(2023, 4, 11).atStartOfDay(ZoneOffset.UTC).toInstant());
+        trans.setTransactionAmount(12.5);
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateBalancePayload[]{trans})))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/credit-card:balance-history")
+                        .param("creditCardNumber", "memory-balance-111")
+                        .param("from", "2023-04-11")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].date").value("2023-04-11"))
+                .andExpect(jsonPath("$.items[0].amount").value(12.5))
+                .andExpect(jsonPath("$.items[0].balance").value(0.0));
+    }
+
+    @Test
+    void shouldForgetDeletedUserAndItsCards() throws Exception {
+        int userId = createUser("memory-delete-user");
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(card(userId, "memory-delete-111"))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/user")
+                        .param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/user")
+                        .param("userId", String.valueOf(userId)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/credit-card:user-id")
+                        .param("creditCardNumber", "memory-delete-111"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/credit-card:all")
+                        .param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    void shouldKnowImportedUsersAndCards() throws Exception {
+        mockMvc.perform(post("/user:import").contentType("text/csv").content("""
+                        memory-import,memory-import@example.com,BoK,memory-import-111
+                        memory-import-empty,memory-import-empty@example.com,,
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usersImported").value(2));
+        mockMvc.perform(get("/credit-card:user-id")
+                        .param("creditCardNumber", "memory-import-111"))
+                .andExpect(status().isOk());
+        int userId = jdbcTemplate.queryForObject(
+                "select id from my_user where email = 'memory-import-empty@example.com'", Integer.class);
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(card(userId, "memory-import-222"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(card(userId, "memory-import-111"))))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldRebuildFromTheDatabase() throws Exception {
+        int userId = createUser("memory-rebuild-user");
+        Optional<Integer> cardId = cardStore.addCard(userId, "BoK", "memory-rebuild-111");
+        cardStore.addCard(userId, "BoK", "memory-rebuild-222");
+        cardStore.flush();
+
+        InMemoryCardStore rebuilt = new InMemoryCardStore(jdbcTemplate, transactionManager,
+                new SimpleMeterRegistry(), 4, 10);
+        try {
+            assertEquals(Optional.of(userId), rebuilt.findUserId("memory-rebuild-111"));
+            assertEquals(cardId, rebuilt.findCardId("memory-rebuild-111"));
+            assertEquals(cardStore.findCardViews(userId, Pageable.unpaged()),
+                    rebuilt.findCardViews(userId, Pageable.unpaged()));
+            assertEquals(List.of(), rebuilt.findCardIds(-1));
+        } finally {
+            rebuilt.close();
+        }
+    }
+
+    private int createUser(String name) throws Exception {
+        CreateUserPayload payload = new CreateUserPayload();
+        payload.setName(name);
+        payload.setEmail(name + "@example.com");
+        String id = mockMvc.perform(put("/user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(id);
+    }
+
+    private static AddCreditCardToUserPayload card(int userId, String number) {
+        AddCreditCardToUserPayload payload = new AddCreditCardToUserPayload();
+        payload.setUserId(userId);
+        payload.setCardIssuanceBank("BoK");
+        payload.setCardNumber(number);
+        return payload;
+    }
+}
@@ -0,0 +1,13 @@
+package com.shepherdmoney.interviewproject;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link CreditCardControllerTests} against the in-memory card store
+ */
+@TestPropertySource(properties = {
+        "card-store.engine=memory",
+        "spring.datasource.url=jdbc:h2:mem:memory-credit-card-controller"
+})
+public class InMemoryCreditCardControllerTests extends CreditCardControllerTests {
+}
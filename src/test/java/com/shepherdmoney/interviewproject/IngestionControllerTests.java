@@ -0,0 +1,182 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.ingestion.TransactionIngestionService;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class IngestionControllerTests {
+    private static final LocalDate DAY = LocalDate.parse("2023-04-10");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Autowired
+    private TransactionIngestionService transactionIngestionService;
+
+    @Test
+    void shouldApplyBatchInBackground() throws Exception {
+        User user = new User();
+        user.setName("ingestion-user");
+        user.setEmail("ingestion-user@example.com");
+        user = userRepository.save(user);
+        for (String number : new String[]{"ingestion-111", "ingestion-222"}) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber(number);
+            creditCardRepository.save(card);
+        }
+
+        // 10 per day on the first card and 5 per day on the second, over 2023-04-10 .. 2023-04-19
+        UpdateBalancePayload[] payload = new UpdateBalancePayload[20];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = transaction(i % 2 == 0 ? "ingestion-111" : "ingestion-222", DAY.plusDays(i / 2),
+                    i % 2 == 0 ? 10.0 : 5.0);
+        }
+        MvcResult result = mockMvc.perform(post("/credit-card:update-balance-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.transactions").value(20))
+                .andReturn();
+        String jobId = objectMapper.readTree(result.getResponse().getContentAsString()).get("jobId").asText();
+
+        JsonNode job = awaitCompletion(jobId);
+        assertEquals("SUCCEEDED", job.get("status").asText());
+        assertEquals(20, job.get("appliedTransactions").asInt());
+        assertEquals(100.0, balanceQueryService.getBalanceOn("ingestion-111", DAY.plusDays(10)).orElseThrow());
+        assertEquals(50.0, balanceQueryService.getBalanceOn("ingestion-222", DAY.plusDays(10)).orElseThrow());
+    }
+
+    @Test
+    void shouldApplyRetriedKeyedBatchOnce() throws Exception {
+        User user = new User();
+        user.setName("ingestion-keyed-user");
+        user.setEmail("ingestion-keyed-user@example.com");
+        user = userRepository.save(user);
+        CreditCard card = new CreditCard();
+        card.setUser(user);
+        card.setIssuanceBank("BoK");
+        card.setNumber("ingestion-keyed-111");
+        creditCardRepository.save(card);
+
+        UpdateBalancePayload[] payload = {transaction("ingestion-keyed-111", DAY, 10.0)};
+        for (int attempt = 0; attempt < 2; attempt++) {
+            MvcResult result = mockMvc.perform(post("/credit-card:update-balance-async")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Idempotency-Key", "ingestion-upload-1")
+                            .content(objectMapper.writeValueAsString(payload)))
+                    .andExpect(status().isAccepted())
+                    .andReturn();
+            String jobId = objectMapper.readTree(result.getResponse().getContentAsString()).get("jobId").asText();
+            assertEquals("SUCCEEDED", awaitCompletion(jobId).get("status").asText());
+        }
+        assertEquals(10.0, balanceQueryService.getBalanceOn("ingestion-keyed-111", DAY.plusDays(1)).orElseThrow());
+    }
+
+    @Test
+    void shouldApplyBatchWithLongestKey() throws Exception {
+        User user = new User();
+        user.setName("ingestion-long-key-user");
+        user.setEmail("ingestion-long-key-user@example.com");
+        user = userRepository.save(user);
+        CreditCard card = new CreditCard();
+        card.setUser(user);
+        card.setIssuanceBank("BoK");
+        card.setNumber("ingestion-long-key-111");
+        creditCardRepository.save(card);
+
+        // the lane suffix of each partition still fits the stored key
+        UpdateBalancePayload[] payload = {transaction("ingestion-long-key-111", DAY, 10.0)};
+        String longestKey = "k".repeat(transactionIngestionService.getMaxKeyLength());
+        MvcResult result = mockMvc.perform(post("/credit-card:update-balance-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", longestKey)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        String jobId = objectMapper.readTree(result.getResponse().getContentAsString()).get("jobId").asText();
+        assertEquals("SUCCEEDED", awaitCompletion(jobId).get("status").asText());
+        assertEquals(10.0, balanceQueryService.getBalanceOn("ingestion-long-key-111", DAY.plusDays(1)).orElseThrow());
+
+        mockMvc.perform(post("/credit-card:update-balance-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", longestKey + "k")
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRejectBatchWithUnknownCard() throws Exception {
+        UpdateBalancePayload[] payload = {transaction("ingestion-unknown", DAY, 10.0)};
+        mockMvc.perform(post("/credit-card:update-balance-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownJob() throws Exception {
+        mockMvc.perform(get("/credit-card:update-balance-job").param("jobId", "no-such-job"))
+                .andExpect(status().isNotFound());
+    }
+
+    private JsonNode awaitCompletion(String jobId) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            MvcResult result = mockMvc.perform(get("/credit-card:update-balance-job").param("jobId", jobId))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode job = objectMapper.readTree(result.getResponse().getContentAsString());
+            String status = job.get("status").asText();
+            if (status.equals("SUCCEEDED") || status.equals("FAILED")) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        return fail("ingestion job did not complete");
+    }
+
+    private static UpdateBalancePayload transaction(String cardNumber, LocalDate day, double amount) {
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber(cardNumber);
+        trans.setTransactionTime(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+        trans.setTransactionAmount(amount);
+        return trans;
+    }
+}
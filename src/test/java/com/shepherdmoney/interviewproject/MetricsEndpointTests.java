@@ -0,0 +1,74 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsEndpointTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Test
+    void shouldExposeRequestAndUpdateMetricsForPrometheus() throws Exception {
+        User user = new User();
+        user.setName("metrics-user");
+        user.setEmail("metrics-user@example.com");
+        user = userRepository.save(user);
+        CreditCard card = new CreditCard();
+        card.setUser(user);
+        card.setIssuanceBank("BoK");
+        card.setNumber("metrics-111");
+        creditCardRepository.save(card);
+
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber("metrics-111");
+        trans.setTransactionTime(Instant.parse("2023-04-10T12:00:00Z"));
+        trans.setTransactionAmount(10.0);
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateBalancePayload[]{trans})))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/credit-card:user-id").param("creditCardNumber", "metrics-111"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("uri=\"/credit-card:update-balance\"")))
+                .andExpect(content().string(containsString("quantile=\"0.99\"")))
+                .andExpect(content().string(containsString("balance_update_batch_size_transactions_count")))
+                .andExpect(content().string(containsString("balance_update_rows_written_rows_count")))
+                .andExpect(content().string(containsString("credit_card_owner_cache_requests_total")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")))
+                .andExpect(content().string(containsString("hibernate_statements_total")));
+    }
+}
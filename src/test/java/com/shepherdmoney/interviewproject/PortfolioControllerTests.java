@@ -0,0 +1,171 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.PortfolioService;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import com.shepherdmoney.interviewproject.vo.response.PortfolioBalanceView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PortfolioControllerTests {
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    private int userId;
+
+    @BeforeEach
+    void createCardsWithHistory() throws Exception {
+        User user = userRepository.findAll().stream()
+                .filter(existing -> "portfolio@example.com".equals(existing.getEmail()))
+                .findFirst()
+                .orElse(null);
+        if (user != null) {
+            userId = user.getId();
+            return;
+        }
+        user = new User();
+        user.setName("portfolio-user");
+        user.setEmail("portfolio@example.com");
+        user = userRepository.save(user);
+        userId = user.getId();
+        for (String number : new String[]{"portfolio-1", "portfolio-2", "portfolio-3"}) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoP");
+            card.setNumber(number);
+            creditCardRepository.save(card);
+        }
+
+        // 100 before the window on portfolio-1, then 10 and 5 two days ago, -20 and 1 yesterday
+        UpdateBalancePayload[] payload = {
+                transaction("portfolio-1", TODAY.minusDays(100), 100.0),
+                transaction("portfolio-1", TODAY.minusDays(2), 10.0),
+                transaction("portfolio-2", TODAY.minusDays(2), 5.0),
+                transaction("portfolio-2", TODAY.minusDays(1), -20.0),
+                transaction("portfolio-3", TODAY.minusDays(1), 1.0)
+        };
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldSumBalancesOfAllCards() throws Exception {
+        for (String parallel : new String[]{"false", "true"}) {
+            mockMvc.perform(get("/user:portfolio-balance")
+                            .param("userId", String.valueOf(userId))
+                            .param("days", "4")
+                            .param("parallel", parallel))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.userId").value(userId))
+                    .andExpect(jsonPath("$.asOf").value(TODAY.toString()))
+                    .andExpect(jsonPath("$.series.length()").value(4))
+                    .andExpect(jsonPath("$.series[0].date").value(TODAY.minusDays(3).toString()))
+                    .andExpect(jsonPath("$.series[0].balance").value(100.0))
+                    .andExpect(jsonPath("$.series[1].balance").value(100.0))
+                    .andExpect(jsonPath("$.series[2].balance").value(115.0))
+                    .andExpect(jsonPath("$.series[3].balance").value(96.0))
+                    .andExpect(jsonPath("$.balance").value(96.0));
+        }
+    }
+
+    @Test
+    void shouldComputeTheSameSeriesInParallel() {
+        // both modes share the cache, so the windows differ to compute each of them
+        long misses = portfolioService.getMissCount();
+        PortfolioBalanceView sequential = portfolioService.getPortfolio(userId, 121, false).orElseThrow();
+        PortfolioBalanceView parallel = portfolioService.getPortfolio(userId, 120, true).orElseThrow();
+        assertEquals(misses + 2, portfolioService.getMissCount());
+        assertEquals(sequential.getSeries().subList(1, 121), parallel.getSeries());
+        assertEquals(sequential.getBalance(), parallel.getBalance());
+    }
+
+    @Test
+    void shouldDropCachedPortfolioOnBalanceUpdate() throws Exception {
+        mockMvc.perform(get("/user:portfolio-balance")
+                        .param("userId", String.valueOf(userId))
+                        .param("days", "2"))
+                .andExpect(status().isOk());
+        long hits = portfolioService.getHitCount();
+        mockMvc.perform(get("/user:portfolio-balance")
+                        .param("userId", String.valueOf(userId))
+                        .param("days", "2"))
+                .andExpect(status().isOk());
+        assertEquals(hits + 1, portfolioService.getHitCount());
+
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateBalancePayload[]{
+                                transaction("portfolio-3", TODAY, 4.0)})))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/user:portfolio-balance")
+                        .param("userId", String.valueOf(userId))
+                        .param("days", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.series[1].balance").value(96.0))
+                .andExpect(jsonPath("$.balance").value(100.0));
+        assertEquals(hits + 1, portfolioService.getHitCount());
+
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateBalancePayload[]{
+                                transaction("portfolio-3", TODAY, -4.0)})))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRejectUnknownUserAndInvalidDays() throws Exception {
+        mockMvc.perform(get("/user:portfolio-balance")
+                        .param("userId", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/user:portfolio-balance")
+                        .param("userId", String.valueOf(userId))
+                        .param("days", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/user:portfolio-balance")
+                        .param("userId", String.valueOf(userId))
+                        .param("days", "3661"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static UpdateBalancePayload transaction(String cardNumber, LocalDate day, double amount) {
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber(cardNumber);
+        trans.setTransactionTime(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+        trans.setTransactionAmount(amount);
+        return trans;
+    }
+}
@@ -0,0 +1,92 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.vo.request.AddCreditCardToUserPayload;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The prod profile serves users, cards and card queries from the second-level cache, and the write endpoints keep
+ * what is cached up to date
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:prod-profile")
+@ActiveProfiles("prod")
+@AutoConfigureMockMvc
+public class ProdProfileCacheTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void shouldServeRepeatedReadsFromCacheAndInvalidateOnWrites() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        User user = new User();
+        user.setName("prod-user");
+        user.setEmail("prod-user@example.com");
+        int userId = userRepository.save(user).getId();
+        addCard(userId, "prod-111");
+
+        statistics.clear();
+        userRepository.findById(userId);
+        userRepository.findById(userId);
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0, "user not read from the second-level cache");
+
+        mockMvc.perform(get("/credit-card:all").param("userId", String.valueOf(userId)))
+                .andExpect(jsonPath("$", hasSize(1)));
+        mockMvc.perform(get("/credit-card:all").param("userId", String.valueOf(userId)))
+                .andExpect(jsonPath("$", hasSize(1)));
+        assertTrue(statistics.getQueryCacheHitCount() > 0, "card list not read from the query cache");
+
+        // a new card invalidates the cached list
+        addCard(userId, "prod-222");
+        mockMvc.perform(get("/credit-card:all").param("userId", String.valueOf(userId)))
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        // so does the bulk deletion of the user
+        mockMvc.perform(delete("/user").param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/credit-card:all").param("userId", String.valueOf(userId)))
+                .andExpect(jsonPath("$", hasSize(0)));
+        assertTrue(userRepository.findById(userId).isEmpty());
+        assertTrue(creditCardRepository.findIdByNumber("prod-111").isEmpty());
+    }
+
+    private void addCard(int userId, String number) throws Exception {
+        AddCreditCardToUserPayload payload = new AddCreditCardToUserPayload();
+        payload.setUserId(userId);
+        payload.setCardIssuanceBank("BoK");
+        payload.setCardNumber(number);
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+    }
+}
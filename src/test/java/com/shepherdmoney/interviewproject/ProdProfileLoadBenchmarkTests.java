@@ -0,0 +1,13 @@
+package com.shepherdmoney.interviewproject;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Mixed HTTP load with the tuned prod profile. Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:prod-profile-load")
+@ActiveProfiles("prod")
+public class ProdProfileLoadBenchmarkTests extends ProfileLoadBenchmark {
+}
@@ -0,0 +1,127 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Mixed read and write HTTP load against a running server, shared by the profile comparison benchmarks. Compare the
+ * output of {@link DefaultProfileLoadBenchmarkTests} with {@link ProdProfileLoadBenchmarkTests}.
+ */
+@Tag("benchmark")
+abstract class ProfileLoadBenchmark {
+    private static final int USERS = 1_000;
+    private static final int CARDS_PER_USER = 5;
+    private static final int THREADS = 16;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void measureMixedLoad() throws Exception {
+        List<Integer> userIds = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            User user = new User();
+            user.setName("load-user-" + u);
+            user.setEmail("load-user-" + u + "@example.com");
+            user = userRepository.save(user);
+            userIds.add(user.getId());
+            List<CreditCard> cards = new ArrayList<>();
+            for (int c = 0; c < CARDS_PER_USER; c++) {
+                CreditCard card = new CreditCard();
+                card.setUser(user);
+                card.setIssuanceBank("BoK");
+                card.setNumber("load-" + u + "-" + c);
+                cards.add(card);
+            }
+            creditCardRepository.saveAll(cards);
+        }
+
+        run(userIds, WARMUP);
+        long[] latencies = run(userIds, DURATION);
+        Arrays.sort(latencies);
+        System.out.printf("%s: %,d requests in %d s (%,.0f req/s), p50 %,d us, p99 %,d us%n", getClass().getSimpleName(),
+                latencies.length, DURATION.toSeconds(), latencies.length / (double) DURATION.toSeconds(),
+                latencies[latencies.length / 2] / 1000, latencies[(int) (latencies.length * 0.99)] / 1000);
+    }
+
+    // 60% card lists, 30% owner lookups, 10% balance updates
+    private long[] run(List<Integer> userIds, Duration duration) throws Exception {
+        long end = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> latencies = new ArrayList<>();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        int user = random.nextInt(USERS);
+                        String cardNumber = "load-" + user + "-" + random.nextInt(CARDS_PER_USER);
+                        int kind = random.nextInt(10);
+                        HttpRequest request;
+                        if (kind < 6) {
+                            request = HttpRequest.newBuilder(uri("/credit-card:all?userId=" + userIds.get(user))).build();
+                        } else if (kind < 9) {
+                            request = HttpRequest.newBuilder(uri("/credit-card:user-id?creditCardNumber=" + cardNumber))
+                                    .build();
+                        } else {
+                            String body = "[{\"creditCardNumber\":\"" + cardNumber + "\",\"transactionTime\":\""
+                                    + "2023-04-" + (10 + random.nextInt(10)) + "T12:00:00Z\",\"transactionAmount\":1.0}]";
+                            request = HttpRequest.newBuilder(uri("/credit-card:update-balance"))
+                                    .header("Content-Type", "application/json")
+                                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                                    .build();
+                        }
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies.add(System.nanoTime() - start);
+                        assertEquals(200, response.statusCode());
+                    }
+                    return latencies;
+                }));
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                all.addAll(future.get());
+            }
+            return all.stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
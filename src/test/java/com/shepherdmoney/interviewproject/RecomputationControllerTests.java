@@ -0,0 +1,169 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.BalanceQueryService;
+import com.shepherdmoney.interviewproject.service.BalanceUpdateService;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// chunks of two cards, so that the five cards below are split over several fork-join tasks
+@SpringBootTest(properties = "recomputation.cards-per-chunk=2")
+@AutoConfigureMockMvc
+public class RecomputationControllerTests {
+    // recent enough to be outside of the compacted months
+    private static final LocalDate DAY = LocalDate.now(ZoneOffset.UTC).minusDays(30);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceUpdateService balanceUpdateService;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Test
+    void shouldReplaceRestatedDaysOfEveryCard() throws Exception {
+        User user = new User();
+        user.setName("recompute-user");
+        user.setEmail("recompute-user@example.com");
+        user = userRepository.save(user);
+        // 10 on each of three days on five cards
+        List<UpdateBalancePayload> transactions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            CreditCard card = new CreditCard();
+            card.setUser(user);
+            card.setIssuanceBank("BoK");
+            card.setNumber("recompute-" + i);
+            creditCardRepository.save(card);
+            for (int day = 0; day < 3; day++) {
+                transactions.add(transaction("recompute-" + i, DAY.plusDays(day), 10.0));
+            }
+        }
+        assertTrue(balanceUpdateService.applyTransactions(transactions));
+
+        // the second day is restated: two transactions on the first card, none left on the second, and a new
+        // transaction on the fourth card's fourth day
+        UpdateBalancePayload[] corrections = {
+                transaction("recompute-0", DAY.plusDays(1), 20.0),
+                transaction("recompute-0", DAY.plusDays(1), 5.0),
+                transaction("recompute-1", DAY.plusDays(1), 0.0),
+                transaction("recompute-2", DAY.plusDays(1), 1.0),
+                transaction("recompute-3", DAY.plusDays(1), 1.0),
+                transaction("recompute-3", DAY.plusDays(3), 7.0),
+                transaction("recompute-4", DAY.plusDays(1), 1.0)
+        };
+        MvcResult result = mockMvc.perform(post("/credit-card:recompute-balance-history")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(corrections)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.cards").value(5))
+                .andReturn();
+        String jobId = objectMapper.readTree(result.getResponse().getContentAsString()).get("jobId").asText();
+
+        JsonNode job = awaitCompletion(jobId);
+        assertEquals("SUCCEEDED", job.get("status").asText());
+        assertEquals(5, job.get("processedCards").asInt());
+        assertEquals(0, job.get("failedCards").asInt());
+        assertTrue(job.get("cardsPerSecond").asDouble() > 0);
+
+        LocalDate after = DAY.plusDays(5);
+        assertEquals(45.0, balanceQueryService.getBalanceOn("recompute-0", after).orElseThrow());
+        assertEquals(20.0, balanceQueryService.getBalanceOn("recompute-1", after).orElseThrow());
+        assertEquals(21.0, balanceQueryService.getBalanceOn("recompute-2", after).orElseThrow());
+        assertEquals(28.0, balanceQueryService.getBalanceOn("recompute-3", after).orElseThrow());
+        assertEquals(21.0, balanceQueryService.getBalanceOn("recompute-4", after).orElseThrow());
+        // the restated days before are left alone
+        assertEquals(10.0, balanceQueryService.getBalanceOn("recompute-0", DAY.plusDays(1)).orElseThrow());
+
+        // the day restated to nothing has no entry left
+        mockMvc.perform(get("/credit-card:balance-history")
+                        .param("creditCardNumber", "recompute-1")
+                        .param("from", DAY.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[1].date").value(DAY.plusDays(2).toString()))
+                .andExpect(jsonPath("$.items[1].balance").value(10.0));
+    }
+
+    @Test
+    void shouldRejectUnknownCardAndCompactedDays() throws Exception {
+        mockMvc.perform(post("/credit-card:recompute-balance-history")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateBalancePayload[]{
+                                transaction("recompute-unknown", DAY, 10.0)})))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/credit-card:recompute-balance-history")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateBalancePayload[]{
+                                transaction("recompute-0", LocalDate.parse("2000-01-01"), 10.0)})))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/credit-card:recompute-balance-history")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownJob() throws Exception {
+        mockMvc.perform(get("/credit-card:recompute-balance-history-job").param("jobId", "no-such-job"))
+                .andExpect(status().isNotFound());
+    }
+
+    private JsonNode awaitCompletion(String jobId) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            MvcResult result = mockMvc.perform(get("/credit-card:recompute-balance-history-job")
+                            .param("jobId", jobId))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode job = objectMapper.readTree(result.getResponse().getContentAsString());
+            String status = job.get("status").asText();
+            if (status.equals("SUCCEEDED") || status.equals("FAILED")) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        return fail("recomputation job did not complete");
+    }
+
+    private static UpdateBalancePayload transaction(String cardNumber, LocalDate day, double amount) {
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber(cardNumber);
+        trans.setTransactionTime(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+        trans.setTransactionAmount(amount);
+        return trans;
+    }
+}
@@ -0,0 +1,120 @@
+package com.shepherdmoney.interviewproject;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Startup time and first-request latency of the default and the faststart profile, each started RUNS times in a JVM of
+ * its own. Run with {@code ./gradlew benchmark}. The AOT processed build with the CDS archive is started from jars
+ * rather than the test classpath, compare the "Started" line of {@code ./gradlew bootRunCds} with the output here.
+ */
+@Tag("benchmark")
+public class StartupBenchmarkTests {
+    private static final int RUNS = 5;
+    private static final Pattern STARTED = Pattern.compile("Started InterviewProjectApplication in ([0-9.]+) seconds");
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @TempDir
+    private Path journalDirectory;
+
+    @Test
+    void measureDefaultProfile() throws Exception {
+        measure("default");
+    }
+
+    @Test
+    void measureFastStartProfile() throws Exception {
+        measure("faststart");
+    }
+
+    private void measure(String profile) throws Exception {
+        long[] startupMillis = new long[RUNS];
+        long[] firstRequestMicros = new long[RUNS];
+        long[] secondRequestMicros = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            int port = freePort();
+            Process server = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"), InterviewProjectApplication.class.getName(),
+                    "--spring.profiles.active=" + profile,
+                    "--server.port=" + port,
+                    "--spring.datasource.url=jdbc:h2:mem:startup-benchmark",
+                    "--journal.directory=" + journalDirectory.resolve(profile + "-" + run))
+                    .redirectErrorStream(true)
+                    .start();
+            try {
+                startupMillis[run] = awaitStarted(server);
+                URI uri = URI.create("http://localhost:" + port + "/credit-card:all?userId=1");
+                firstRequestMicros[run] = timeRequest(uri);
+                secondRequestMicros[run] = timeRequest(uri);
+            } finally {
+                server.destroy();
+                if (!server.waitFor(10, TimeUnit.SECONDS)) {
+                    server.destroyForcibly();
+                }
+            }
+        }
+        System.out.printf("%s profile: startup %,d ms, first request %,d us, second request %,d us (median of %d)%n",
+                profile, median(startupMillis), median(firstRequestMicros), median(secondRequestMicros), RUNS);
+    }
+
+    // the startup time Spring Boot logs, the rest of the output is drained so that the server never blocks on it
+    private static long awaitStarted(Process server) throws IOException {
+        BufferedReader output = new BufferedReader(
+                new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = output.readLine()) != null) {
+            lines.add(line);
+            Matcher matcher = STARTED.matcher(line);
+            if (matcher.find()) {
+                Thread drain = new Thread(() -> output.lines().forEach(ignored -> { }));
+                drain.setDaemon(true);
+                drain.start();
+                return Math.round(Double.parseDouble(matcher.group(1)) * 1000);
+            }
+        }
+        throw new IllegalStateException("Application exited on startup:\n" + String.join("\n", lines));
+    }
+
+    private long timeRequest(URI uri) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        long micros = (System.nanoTime() - start) / 1000;
+        assertEquals(200, response.statusCode());
+        return micros;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
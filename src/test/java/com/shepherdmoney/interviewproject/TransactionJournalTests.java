@@ -0,0 +1,155 @@
+package com.shepherdmoney.interviewproject;
+
+import com.shepherdmoney.interviewproject.ingestion.TransactionJournal;
+import com.shepherdmoney.interviewproject.ledger.TransactionBatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransactionJournalTests {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldReplayRecordsOfCrashedProcess() throws IOException {
+        // the records of the first journal are never released, as if the process died before applying them
+        try (TransactionJournal crashed = new TransactionJournal(directory, 1024 * 1024)) {
+            crashed.awaitDurable(crashed.append("batch-1", batch("111", 19_000, 1_000)));
+            crashed.awaitDurable(crashed.append("batch-2", batch("222", 19_001, -250)));
+        }
+
+        List<TransactionJournal.Entry> replayed = new ArrayList<>();
+        try (TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024)) {
+            assertEquals(2, journal.replay(replayed::add));
+        }
+
+        assertEquals("batch-1", replayed.get(0).idempotencyKey());
+        assertEquals(List.of("111"), replayed.get(0).batch().cardNumbers());
+        assertEquals(19_000, replayed.get(0).batch().day(0));
+        assertEquals(1_000, replayed.get(0).batch().amount(0));
+        assertEquals("batch-2", replayed.get(1).idempotencyKey());
+        assertEquals(-250, replayed.get(1).batch().amount(0));
+        assertEquals(0, segments().size());
+    }
+
+    @Test
+    void shouldStopReplayAtTornRecord() throws IOException {
+        try (TransactionJournal crashed = new TransactionJournal(directory, 1024 * 1024)) {
+            crashed.awaitDurable(crashed.append("batch-1", batch("111", 19_000, 1_000)));
+            crashed.awaitDurable(crashed.append("batch-2", batch("222", 19_001, 2_000)));
+        }
+
+        // flip the last byte of the second record's amount
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            long secondRecord = 8 + header.getInt(0);
+            header.clear();
+            channel.read(header, secondRecord);
+            long lastByte = secondRecord + 8 + header.getInt(0) - 1;
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, lastByte);
+            value.put(0, (byte) (value.get(0) ^ 1)).rewind();
+            channel.write(value, lastByte);
+        }
+
+        List<TransactionJournal.Entry> replayed = new ArrayList<>();
+        try (TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024)) {
+            assertEquals(1, journal.replay(replayed::add));
+        }
+        assertEquals("batch-1", replayed.get(0).idempotencyKey());
+    }
+
+    @Test
+    void shouldDeleteSegmentsOnceReleased() throws IOException {
+        try (TransactionJournal journal = new TransactionJournal(directory, 1024)) {
+            List<TransactionJournal.Position> positions = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                TransactionJournal.Position position = journal.append("batch-" + i, batch("111", 19_000 + i, i));
+                journal.awaitDurable(position);
+                positions.add(position);
+            }
+            assertEquals(true, segments().size() > 1);
+            for (TransactionJournal.Position position : positions) {
+                journal.release(position);
+            }
+            // only the segment appended to is left
+            assertEquals(1, segments().size());
+        }
+        assertEquals(0, segments().size());
+    }
+
+    @Test
+    void shouldGroupCommitConcurrentAppends() throws Exception {
+        int threads = 8;
+        int appendsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        TransactionJournal crashed = new TransactionJournal(directory, 1024 * 1024);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        crashed.awaitDurable(crashed.append(thread + "-" + i, batch("111", 19_000, 1)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            crashed.close();
+        }
+
+        long[] total = new long[1];
+        try (TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024)) {
+            assertEquals(threads * appendsPerThread, journal.replay(entry -> total[0] += entry.batch().amount(0)));
+        }
+        assertEquals(threads * appendsPerThread, total[0]);
+    }
+
+    @Test
+    void shouldRefuseDirectoryOfOpenJournal() throws IOException {
+        try (TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024)) {
+            journal.awaitDurable(journal.append("batch-1", batch("111", 19_000, 1_000)));
+            // the live segment is not taken for a left over one
+            assertThrows(IllegalStateException.class, () -> new TransactionJournal(directory, 1024 * 1024));
+            assertEquals(1, segments().size());
+        }
+        try (TransactionJournal journal = new TransactionJournal(directory, 1024 * 1024)) {
+            assertEquals(1, journal.replay(entry -> { }));
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static TransactionBatch batch(String cardNumber, int day, long cents) {
+        TransactionBatch batch = new TransactionBatch();
+        batch.add(cardNumber, day, cents);
+        return batch;
+    }
+}
@@ -0,0 +1,127 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserDeletionTests {
+    private static final Instant FIRST_DAY = Instant.parse("2023-04-10T12:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceHistoryRepository balanceHistoryRepository;
+
+    @Test
+    void shouldDeleteUserCardsAndHistoryInBulk() throws Exception {
+        int userId = createUserWithHistory("delete-hard-111");
+        int cardId = creditCardRepository.findIdByNumber("delete-hard-111").orElseThrow();
+        assertEquals(3, historySize(cardId));
+
+        mockMvc.perform(delete("/user").param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk());
+        assertFalse(userRepository.existsById(userId));
+        assertFalse(creditCardRepository.existsByNumber("delete-hard-111"));
+        assertEquals(0, historySize(cardId));
+        mockMvc.perform(get("/credit-card:user-id").param("creditCardNumber", "delete-hard-111"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/user").param("userId", String.valueOf(userId)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldNeverFailBalanceUpdatesRacingTheDeletion() throws Exception {
+        int userId = createUserWithHistory("delete-race-111");
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber("delete-race-111");
+        trans.setTransactionTime(FIRST_DAY);
+        trans.setTransactionAmount(1.0);
+        String body = objectMapper.writeValueAsString(new UpdateBalancePayload[]{trans});
+
+        // each update lands before the deletion, or finds the card gone
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> updates = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                updates.add(executor.submit(() -> mockMvc.perform(post("/credit-card:update-balance")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                        .andReturn().getResponse().getStatus()));
+            }
+            mockMvc.perform(delete("/user").param("userId", String.valueOf(userId)))
+                    .andExpect(status().isOk());
+            for (Future<Integer> update : updates) {
+                int status = update.get();
+                assertTrue(status == 200 || status == 400, "update answered " + status);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertFalse(creditCardRepository.existsByNumber("delete-race-111"));
+    }
+
+    // a user with one card that has three days of history
+    private int createUserWithHistory(String cardNumber) throws Exception {
+        User user = new User();
+        user.setName(cardNumber + "-user");
+        user.setEmail(cardNumber + "-user@example.com");
+        user = userRepository.save(user);
+        CreditCard card = new CreditCard();
+        card.setUser(user);
+        card.setIssuanceBank("BoK");
+        card.setNumber(cardNumber);
+        creditCardRepository.save(card);
+
+        UpdateBalancePayload[] payload = new UpdateBalancePayload[3];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = new UpdateBalancePayload();
+            payload[i].setCreditCardNumber(cardNumber);
+            payload[i].setTransactionTime(FIRST_DAY.plusSeconds(86_400L * i));
+            payload[i].setTransactionAmount(10.0);
+        }
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+        return user.getId();
+    }
+
+    private int historySize(int cardId) {
+        return balanceHistoryRepository.findDailyAmounts(cardId, Instant.EPOCH, FIRST_DAY.plusSeconds(86_400L * 10),
+                Pageable.unpaged()).size();
+    }
+}
@@ -0,0 +1,188 @@
+package com.shepherdmoney.interviewproject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shepherdmoney.interviewproject.model.CreditCard;
+import com.shepherdmoney.interviewproject.model.User;
+import com.shepherdmoney.interviewproject.repository.BalanceHistoryRepository;
+import com.shepherdmoney.interviewproject.repository.CreditCardRepository;
+import com.shepherdmoney.interviewproject.repository.UserRepository;
+import com.shepherdmoney.interviewproject.service.UserDeletionService;
+import com.shepherdmoney.interviewproject.vo.request.AddCreditCardToUserPayload;
+import com.shepherdmoney.interviewproject.vo.request.CreateUserPayload;
+import com.shepherdmoney.interviewproject.vo.request.UpdateBalancePayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {"user.deletion.mode=soft", "user.deletion.purge-interval=PT1H"})
+@AutoConfigureMockMvc
+public class UserSoftDeletionTests {
+    private static final Instant FIRST_DAY = Instant.parse("2023-04-10T12:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CreditCardRepository creditCardRepository;
+
+    @Autowired
+    private BalanceHistoryRepository balanceHistoryRepository;
+
+    @Autowired
+    private UserDeletionService userDeletionService;
+
+    @Test
+    void shouldHideSoftDeletedUserUntilPurged() throws Exception {
+        int userId = createUserWithHistory("delete-soft-111");
+        int cardId = creditCardRepository.findIdByNumber("delete-soft-111").orElseThrow();
+
+        mockMvc.perform(delete("/user").param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk());
+        // only marked, but already hidden from lookups
+        assertTrue(creditCardRepository.existsByNumber("delete-soft-111"));
+        mockMvc.perform(get("/credit-card:user-id").param("creditCardNumber", "delete-soft-111"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/credit-card:all").param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+        mockMvc.perform(delete("/user").param("userId", String.valueOf(userId)))
+                .andExpect(status().isBadRequest());
+        // nor does a balance update reach its cards
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateBalancePayload[]{
+                                transaction("delete-soft-111", FIRST_DAY)})))
+                .andExpect(status().isBadRequest());
+
+        userDeletionService.purgeDeletedUsers();
+        assertFalse(userRepository.existsById(userId));
+        assertFalse(creditCardRepository.existsByNumber("delete-soft-111"));
+        assertEquals(0, historySize(cardId));
+    }
+
+    @Test
+    void shouldNeverFailBalanceUpdatesRacingThePurge() throws Exception {
+        int userId = createUserWithHistory("delete-soft-race-111");
+        String body = objectMapper.writeValueAsString(new UpdateBalancePayload[]{
+                transaction("delete-soft-race-111", FIRST_DAY)});
+
+        // each update lands before the soft deletion, or finds the card hidden or gone
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> updates = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                updates.add(executor.submit(() -> mockMvc.perform(post("/credit-card:update-balance")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                        .andReturn().getResponse().getStatus()));
+            }
+            mockMvc.perform(delete("/user").param("userId", String.valueOf(userId)))
+                    .andExpect(status().isOk());
+            userDeletionService.purgeDeletedUsers();
+            for (Future<Integer> update : updates) {
+                int status = update.get();
+                assertTrue(status == 200 || status == 400, "update answered " + status);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertFalse(userRepository.existsById(userId));
+        assertFalse(creditCardRepository.existsByNumber("delete-soft-race-111"));
+    }
+
+    @Test
+    void shouldStartReaddedCardNumberAfresh() throws Exception {
+        int userId = createUserWithHistory("delete-soft-readd-111");
+        mockMvc.perform(get("/credit-card:current-balance").param("creditCardNumber", "delete-soft-readd-111"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(30.0));
+
+        mockMvc.perform(delete("/user").param("userId", String.valueOf(userId)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/credit-card:current-balance").param("creditCardNumber", "delete-soft-readd-111"))
+                .andExpect(status().isBadRequest());
+        userDeletionService.purgeDeletedUsers();
+
+        // the number is free again, and its new card has no history
+        CreateUserPayload userPayload = new CreateUserPayload();
+        userPayload.setName("delete-soft-readd-user");
+        userPayload.setEmail("delete-soft-readd-user@example.com");
+        String newUserId = mockMvc.perform(put("/user")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userPayload)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        AddCreditCardToUserPayload cardPayload = new AddCreditCardToUserPayload();
+        cardPayload.setUserId(Integer.parseInt(newUserId));
+        cardPayload.setCardIssuanceBank("BoK");
+        cardPayload.setCardNumber("delete-soft-readd-111");
+        mockMvc.perform(post("/credit-card")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(cardPayload)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/credit-card:current-balance").param("creditCardNumber", "delete-soft-readd-111"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(0.0));
+    }
+
+    // a user with one card that has three days of history
+    private int createUserWithHistory(String cardNumber) throws Exception {
+        User user = new User();
+        user.setName(cardNumber + "-user");
+        user.setEmail(cardNumber + "-user@example.com");
+        user = userRepository.save(user);
+        CreditCard card = new CreditCard();
+        card.setUser(user);
+        card.setIssuanceBank("BoK");
+        card.setNumber(cardNumber);
+        creditCardRepository.save(card);
+
+        UpdateBalancePayload[] payload = new UpdateBalancePayload[3];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = new UpdateBalancePayload();
+            payload[i].setCreditCardNumber(cardNumber);
+            payload[i].setTransactionTime(FIRST_DAY.plusSeconds(86_400L * i));
+            payload[i].setTransactionAmount(10.0);
+        }
+        mockMvc.perform(post("/credit-card:update-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk());
+        return user.getId();
+    }
+
+    private int historySize(int cardId) {
+        return balanceHistoryRepository.findDailyAmounts(cardId, Instant.EPOCH, FIRST_DAY.plusSeconds(86_400L * 10),
+                Pageable.unpaged()).size();
+    }
+
+    private static UpdateBalancePayload transaction(String cardNumber, Instant time) {
+        UpdateBalancePayload trans = new UpdateBalancePayload();
+        trans.setCreditCardNumber(cardNumber);
+        trans.setTransactionTime(time);
+        trans.setTransactionAmount(1.0);
+        return trans;
+    }
+}